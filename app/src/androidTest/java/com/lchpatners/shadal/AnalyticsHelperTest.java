@@ -0,0 +1,52 @@
+package com.lchpatners.shadal;
+
+import android.test.InstrumentationTestCase;
+
+import java.util.List;
+
+/**
+ * Checks the hits {@link com.lchpatners.shadal.AnalyticsHelper AnalyticsHelper} sends,
+ * through a {@link com.lchpatners.shadal.AnalyticsHelper.MemorySink MemorySink}.
+ */
+public class AnalyticsHelperTest extends InstrumentationTestCase {
+
+    private AnalyticsHelper helper;
+    private AnalyticsHelper.MemorySink sink;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        helper = AnalyticsHelper.getInstance(getInstrumentation().getTargetContext());
+        helper.flush();
+        sink = new AnalyticsHelper.MemorySink();
+        helper.setSink(sink);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        helper.setSampleRate(1);
+        super.tearDown();
+    }
+
+    public void testHitsAreSentInOrder() throws Exception {
+        helper.sendScreen("메인 화면");
+        helper.sendEvent("UX", "res_clicked", "교촌치킨");
+        helper.flush();
+
+        List<AnalyticsHelper.Hit> hits = sink.getHits();
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).isScreenView());
+        assertEquals("메인 화면", hits.get(0).screenName);
+        assertFalse(hits.get(1).isScreenView());
+        assertEquals("res_clicked", hits.get(1).action);
+        assertEquals("교촌치킨", hits.get(1).label);
+    }
+
+    public void testSampledOut() throws Exception {
+        helper.setSampleRate(0);
+        helper.sendEvent("UX", "res_clicked", "교촌치킨");
+        helper.flush();
+
+        assertTrue(sink.getHits().isEmpty());
+    }
+}
@@ -0,0 +1,127 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that the lists of a {@link com.lchpatners.shadal.CampusCatalog CampusCatalog} are
+ * those {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper} queries, in the same order.
+ */
+public class CampusCatalogTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "CampusCatalogTest";
+    private static final int RESTAURANTS = 60;
+    /**
+     * Minutes of the day to compare at, so that both open and closed restaurants are listed.
+     */
+    private static final int[] MINUTES = {0, 9 * 60, 13 * 60, 22 * 60};
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        TestCampus.select(context, CAMPUS);
+        context.deleteDatabase(CAMPUS);
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+
+        helper = DatabaseHelper.getInstance(context);
+        CampusGenerator generator = new CampusGenerator(RESTAURANTS, 2, 1, 1, 7);
+        for (int i = 0; i < RESTAURANTS; i++) {
+            helper.updateRestaurant(generator.restaurant(i));
+        }
+        for (int i = 0; i < RESTAURANTS; i += 4) {
+            helper.toggleFavoriteById(helper.getRestaurantFromServerId(CampusGenerator.serverId(i)).getId());
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        helper.close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    public void testListsMatchDatabase() throws Exception {
+        CampusCatalog catalog = helper.loadCatalog(null);
+        assertNotNull(catalog);
+        for (int minute : MINUTES) {
+            for (boolean openOnly : new boolean[]{false, true}) {
+                for (String category : CampusGenerator.CATEGORIES) {
+                    assertEquals(category + " at " + minute,
+                            serverIds(helper.getRestaurantsByCategory(category, minute, openOnly)),
+                            serverIds(catalog.rowsOfCategory(category, minute, openOnly)));
+                }
+                assertEquals("bookmarks at " + minute,
+                        serverIds(helper.getFavoriteRestaurants(minute, openOnly)),
+                        serverIds(catalog.rowsOfBookmarks(minute, openOnly)));
+            }
+        }
+    }
+
+    public void testBookmarksBeforeAnyCategoryList() throws Exception {
+        // As when the bookmarks tab is restored before a category tab is ever shown.
+        CategoryListAdapter.categories = null;
+        CampusCatalog catalog = helper.loadCatalog(null);
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+        assertEquals(serverIds(helper.getFavoriteRestaurants(0, false)),
+                serverIds(catalog.rowsOfBookmarks(0, false)));
+    }
+
+    public void testRestaurantMatchesDatabase() throws Exception {
+        CampusCatalog catalog = helper.loadCatalog(null);
+        Row row = catalog.rowsOfCategory(CampusGenerator.category(0), 0, false)[0];
+        Restaurant fromCatalog = ((CampusCatalog.Item)row.value).toRestaurant();
+        Restaurant fromDatabase = helper.getRestaurantFromServerId((int)row.id);
+        assertTrue(fromCatalog.hasSameContents(fromDatabase));
+        assertEquals(fromDatabase.getId(), fromCatalog.getId());
+        assertEquals(fromDatabase.getPhoneNumber(), fromCatalog.getPhoneNumber());
+        assertEquals(fromDatabase.getHoursString(), fromCatalog.getHoursString());
+    }
+
+    public void testOpenSeedsDetailCache() throws Exception {
+        RestaurantDetailCache cache = RestaurantDetailCache.getInstance();
+        cache.invalidateAll();
+        CampusCatalog catalog = helper.loadCatalog(null);
+        List<CampusCatalog.Item> items = new ArrayList<>();
+        for (Row row : catalog.rowsOfCategory(CampusGenerator.category(0), 0, false)) {
+            if (row.viewType == Row.ITEM) {
+                items.add((CampusCatalog.Item)row.value);
+            }
+        }
+        CampusCatalog.Item first = items.get(0);
+        CampusCatalog.Item second = items.get(1);
+
+        Restaurant opened = first.open();
+        assertNotNull(cache.get(opened.getServerId()));
+        assertTrue(opened.hasSameContents(cache.get(opened.getServerId()).getRestaurant()));
+
+        // Written since the catalog was loaded, so the catalog's copy may be stale.
+        cache.invalidate(second.toRestaurant().getServerId());
+        assertNull(cache.get(second.open().getServerId()));
+    }
+
+    private static List<Integer> serverIds(List<Restaurant> restaurants) {
+        List<Integer> serverIds = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            serverIds.add(restaurant.getServerId());
+        }
+        return serverIds;
+    }
+
+    private static List<Integer> serverIds(Row[] rows) {
+        List<Integer> serverIds = new ArrayList<>();
+        for (Row row : Arrays.asList(rows)) {
+            if (row.viewType == Row.ITEM) {
+                serverIds.add((int)row.id);
+            }
+        }
+        return serverIds;
+    }
+}
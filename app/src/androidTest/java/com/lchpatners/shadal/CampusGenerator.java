@@ -0,0 +1,174 @@
+package com.lchpatners.shadal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates restaurants shaped like the response of
+ * {@link com.lchpatners.shadal.Server#ALL_RESTAURANTS /allRestaurants}, with Korean names,
+ * at any scale. The same index always gives the same restaurant, so a campus can be
+ * generated one restaurant at a time without holding it all in memory.
+ * <br>Plain Java, so the benchmark module can use it as well.
+ */
+public class CampusGenerator {
+
+    /**
+     * Our biggest campus, as of writing.
+     */
+    public static final int RESTAURANTS = 400;
+    public static final int MENUS_PER_RESTAURANT = 50;
+    public static final int SECTIONS_PER_RESTAURANT = 6;
+    public static final int FLYERS_PER_RESTAURANT = 2;
+
+    public static final String[] CATEGORIES = {
+            "치킨", "피자", "중국집", "한식/분식", "도시락/돈까스", "족발/보쌈", "냉면", "기타"
+    };
+    private static final String[] BRANDS = {
+            "교촌", "굽네", "네네", "처갓집", "도미노", "피자헛", "홍콩반점", "만리장성", "김밥천국",
+            "본도시락", "한솥", "원할머니", "가장맛있는", "함흥", "봉추", "엽기"
+    };
+    private static final String[] KINDS = {
+            "치킨", "피자", "반점", "분식", "도시락", "족발", "냉면", "찜닭"
+    };
+    private static final String[] BRANCHES = {
+            "신촌점", "홍대점", "안암점", "대학로점", "회기점", "서울대입구점", "본점", "2호점"
+    };
+    private static final String[] SECTIONS = {
+            "세트 메뉴", "메인 메뉴", "사이드", "음료", "추가", "점심 특선", "야식", "신메뉴"
+    };
+    private static final String[] ADJECTIVES = {
+            "매콤", "순살", "반반", "바삭", "허니", "간장", "양념", "치즈", "불고기", "해물"
+    };
+    private static final String[] DISHES = {
+            "치킨", "피자", "짜장면", "짬뽕", "탕수육", "떡볶이", "김밥", "돈까스", "족발", "물냉면",
+            "비빔밥", "볶음밥"
+    };
+    /**
+     * Decimal hours, as the server sends them. Past 24 is after midnight.
+     */
+    private static final String[] OPENING_HOURS = {"0.0", "9.0", "10.5", "11.0", "16.0", "17.0"};
+    private static final String[] CLOSING_HOURS = {"0.0", "21.0", "22.0", "24.0", "25.5", "26.0"};
+
+    private final int restaurants;
+    private final int menusPerRestaurant;
+    private final int sectionsPerRestaurant;
+    private final int flyersPerRestaurant;
+    private final long seed;
+
+    /**
+     * @param scale Multiple of our biggest campus, e.g. 10.
+     */
+    public CampusGenerator(int scale) {
+        this(RESTAURANTS * scale, MENUS_PER_RESTAURANT, SECTIONS_PER_RESTAURANT, FLYERS_PER_RESTAURANT, 42);
+    }
+
+    public CampusGenerator(int restaurants, int menusPerRestaurant, int sectionsPerRestaurant,
+                           int flyersPerRestaurant, long seed) {
+        this.restaurants = restaurants;
+        this.menusPerRestaurant = menusPerRestaurant;
+        this.sectionsPerRestaurant = sectionsPerRestaurant;
+        this.flyersPerRestaurant = flyersPerRestaurant;
+        this.seed = seed;
+    }
+
+    public int getRestaurantCount() {
+        return restaurants;
+    }
+
+    /**
+     * @param index From 0 to {@link #getRestaurantCount()} - 1.
+     * @return Server-side id of the restaurant of the index.
+     */
+    public static int serverId(int index) {
+        return index + 1;
+    }
+
+    /**
+     * @param index From 0 to {@link #getRestaurantCount()} - 1.
+     * @return Category of the restaurant of the index. Restaurants are spread evenly.
+     */
+    public static String category(int index) {
+        return CATEGORIES[index % CATEGORIES.length];
+    }
+
+    /**
+     * @param index From 0 to {@link #getRestaurantCount()} - 1.
+     * @return The restaurant of the index, as in /allRestaurants.
+     */
+    public JSONObject restaurant(int index) {
+        Random random = new Random(seed * 31 + index);
+        int serverId = serverId(index);
+        try {
+            JSONArray menus = new JSONArray();
+            for (int i = 0; i < menusPerRestaurant; i++) {
+                // Menus come grouped by section.
+                int section = i * sectionsPerRestaurant / menusPerRestaurant;
+                menus.put(new JSONObject()
+                        .put("name", pick(random, ADJECTIVES) + " " + pick(random, DISHES))
+                        .put("section", SECTIONS[section % SECTIONS.length]
+                                + (section < SECTIONS.length ? "" : " " + (section / SECTIONS.length + 1)))
+                        .put("price", random.nextInt(10) == 0 ? 0 : 3000 + random.nextInt(50) * 500));
+            }
+            JSONArray flyers = new JSONArray();
+            for (int i = 0; i < flyersPerRestaurant; i++) {
+                flyers.put("http://www.shadal.kr/flyers/" + serverId + "_" + i + ".jpg");
+            }
+            return new JSONObject()
+                    .put("id", serverId)
+                    .put("updated_at", "2015-03-01 12:00:00")
+                    .put("name", pick(random, BRANDS) + pick(random, KINDS) + " " + pick(random, BRANCHES))
+                    .put("phone_number", String.format("02-%03d-%04d",
+                            100 + random.nextInt(900), random.nextInt(10000)))
+                    .put("category", category(index))
+                    .put("openingHours", pick(random, OPENING_HOURS))
+                    .put("closingHours", pick(random, CLOSING_HOURS))
+                    .put("has_flyer", flyersPerRestaurant > 0)
+                    .put("has_coupon", random.nextInt(4) == 0)
+                    .put("is_new", random.nextInt(10) == 0)
+                    .put("coupon_string", random.nextBoolean() ? "" : "15000원 이상 주문 시 콜라 증정")
+                    .put("menus", menus)
+                    .put("flyers_url", flyers);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Write the whole campus as a JSON array, one restaurant at a time.
+     * @param out Where to write.
+     * @throws IOException If writing failed.
+     */
+    public void writeAllRestaurants(Writer out) throws IOException {
+        out.write('[');
+        for (int i = 0; i < restaurants; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(restaurant(i).toString());
+        }
+        out.write(']');
+    }
+
+    /**
+     * @return The whole campus as a JSON array. Only for scales which fit in memory.
+     */
+    public String allRestaurants() {
+        StringWriter out = new StringWriter();
+        try {
+            writeAllRestaurants(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
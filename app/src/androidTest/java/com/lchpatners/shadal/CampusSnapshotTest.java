@@ -0,0 +1,91 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Installs a {@link com.lchpatners.shadal.CampusSnapshot CampusSnapshot} made from a database
+ * imported on the device, as the snapshot tool makes one from the same JSON.
+ */
+public class CampusSnapshotTest extends InstrumentationTestCase {
+
+    private static final String SOURCE = "SnapshotSource";
+    private static final String TARGET = "SnapshotTarget";
+    private static final int RESTAURANTS = 20;
+    private static final int MENUS = 5;
+
+    private Context context;
+    private byte[] snapshot;
+    private String sha256;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(SOURCE);
+        context.deleteDatabase(TARGET);
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+
+        TestCampus.select(context, SOURCE);
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+        CampusGenerator generator = new CampusGenerator(RESTAURANTS, MENUS, 2, 1, 42);
+        for (int i = 0; i < RESTAURANTS; i++) {
+            helper.updateRestaurant(generator.restaurant(i));
+        }
+        helper.close();
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        OutputStream out = new DigestOutputStream(new GZIPOutputStream(gzipped), digest);
+        InputStream in = new FileInputStream(context.getDatabasePath(SOURCE));
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        snapshot = gzipped.toByteArray();
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        sha256 = hex.toString();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DatabaseHelper.getInstance(context).close();
+        context.deleteDatabase(SOURCE);
+        context.deleteDatabase(TARGET);
+        super.tearDown();
+    }
+
+    public void testInstall() throws Exception {
+        assertTrue(CampusSnapshot.install(context, TARGET, new ByteArrayInputStream(snapshot), sha256));
+
+        TestCampus.select(context, TARGET);
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+        Restaurant last = helper.getRestaurantFromServerId(CampusGenerator.serverId(RESTAURANTS - 1));
+        assertNotNull(last);
+        assertEquals(MENUS, helper.getMenusByRestaurantServerId(last.getServerId()).size());
+    }
+
+    public void testRejectsWrongChecksum() throws Exception {
+        String wrong = (sha256.charAt(0) == '0' ? "1" : "0") + sha256.substring(1);
+        assertFalse(CampusSnapshot.install(context, TARGET, new ByteArrayInputStream(snapshot), wrong));
+        assertFalse(context.getDatabasePath(TARGET).exists());
+    }
+}
@@ -0,0 +1,80 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Checks that {@link com.lchpatners.shadal.CampusStorage CampusStorage} evicts campuses not in
+ * use, keeping their bookmarks as {@link com.lchpatners.shadal.SavedBookmarks SavedBookmarks}.
+ */
+public class CampusStorageTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "CampusStorageTest";
+    /**
+     * Named like the databases of the libraries, e.g. the analytics'.
+     */
+    private static final String LIBRARY_DATABASE = "CampusStorageTest_library.db";
+
+    private Context context;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        context.deleteDatabase(CAMPUS);
+        SavedBookmarks.delete(context, CAMPUS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        context.deleteDatabase(CAMPUS);
+        context.deleteDatabase(LIBRARY_DATABASE);
+        SavedBookmarks.delete(context, CAMPUS);
+        super.tearDown();
+    }
+
+    public void testSavedBookmarksMerge() throws Exception {
+        SavedBookmarks.save(context, CAMPUS, Arrays.asList(1, 2));
+        SavedBookmarks.save(context, CAMPUS, Arrays.asList(2, 3));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), SavedBookmarks.load(context, CAMPUS));
+        SavedBookmarks.delete(context, CAMPUS);
+        assertTrue(SavedBookmarks.load(context, CAMPUS).isEmpty());
+    }
+
+    public void testEvictKeepsBookmarks() throws Exception {
+        // A campus used long ago, never opened by this process, and over the budget alone.
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(CAMPUS), null);
+        try {
+            for (String sql : CampusSchema.createStatements()) {
+                db.execSQL(sql);
+            }
+            db.execSQL("INSERT INTO restaurants (server_id, name, is_favorite) VALUES (7, 'a', 1);");
+            db.execSQL("INSERT INTO restaurants (server_id, name, is_favorite) VALUES (8, 'b', 0);");
+            db.execSQL("CREATE TABLE padding (data BLOB);");
+            db.execSQL(String.format("INSERT INTO padding VALUES (zeroblob(%d));", CampusStorage.BUDGET_BYTES));
+        } finally {
+            db.close();
+        }
+
+        assertTrue(CampusStorage.enforceBudget(context) >= 1);
+        assertFalse(context.getDatabasePath(CAMPUS).exists());
+        assertEquals(new HashSet<>(Arrays.asList(7)), SavedBookmarks.load(context, CAMPUS));
+    }
+
+    public void testOtherDatabasesAreKept() throws Exception {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(LIBRARY_DATABASE), null);
+        try {
+            db.execSQL("CREATE TABLE padding (data BLOB);");
+            db.execSQL(String.format("INSERT INTO padding VALUES (zeroblob(%d));", CampusStorage.BUDGET_BYTES));
+        } finally {
+            db.close();
+        }
+
+        CampusStorage.enforceBudget(context);
+        assertTrue(context.getDatabasePath(LIBRARY_DATABASE).exists());
+    }
+}
@@ -0,0 +1,111 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.json.JSONArray;
+
+/**
+ * Checks that deleted restaurants leave no rows behind, and that
+ * {@link com.lchpatners.shadal.DatabaseMaintenance DatabaseMaintenance} sweeps and compacts.
+ */
+public class DatabaseMaintenanceTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "DatabaseMaintenanceTest";
+    private static final int RESTAURANTS = 16;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private CampusGenerator generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        TestCampus.select(context, CAMPUS);
+        context.deleteDatabase(CAMPUS);
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+
+        helper = DatabaseHelper.getInstance(context);
+        generator = new CampusGenerator(RESTAURANTS, 10, 2, 2, 42);
+        for (int i = 0; i < RESTAURANTS; i++) {
+            helper.updateRestaurant(generator.restaurant(i));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        helper.close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    public void testRemovedRestaurantLeavesNoRows() throws Exception {
+        // The category as the server lists it, without its first restaurant.
+        String category = CampusGenerator.category(0);
+        JSONArray listed = new JSONArray();
+        for (int i = 0; i < RESTAURANTS; i++) {
+            if (i != 0 && CampusGenerator.category(i).equals(category)) {
+                listed.put(generator.restaurant(i));
+            }
+        }
+        helper.updateCategory(listed, category);
+
+        SQLiteDatabase db = helper.getReadableDatabase();
+        int removed = CampusGenerator.serverId(0);
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM restaurants WHERE server_id = " + removed));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM menus WHERE restaurant_id = " + removed));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM flyers WHERE restaurant_id = " + removed));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM menus_fts WHERE docid NOT IN (SELECT id FROM menus)"));
+    }
+
+    public void testSweepAndCompact() throws Exception {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        // Left behind the way older versions deleted restaurants.
+        db.delete("restaurants", "server_id = " + CampusGenerator.serverId(1), null);
+        assertTrue(count(db, "SELECT COUNT(*) FROM menus WHERE restaurant_id = " + CampusGenerator.serverId(1)) > 0);
+
+        DatabaseMaintenance.run(db);
+
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM menus WHERE restaurant_id NOT IN (SELECT server_id FROM restaurants)"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM flyers WHERE restaurant_id NOT IN (SELECT server_id FROM restaurants)"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM menus_fts WHERE docid NOT IN (SELECT id FROM menus)"));
+        assertEquals(2, count(db, "PRAGMA auto_vacuum"));
+        assertEquals(0, count(db, "PRAGMA freelist_count"));
+        assertNotNull(helper.getRestaurantFromServerId(CampusGenerator.serverId(2)));
+    }
+
+    public void testNewDatabaseVacuumsIncrementally() throws Exception {
+        assertEquals(2, count(helper.getReadableDatabase(), "PRAGMA auto_vacuum"));
+    }
+
+    public void testIncrementalVacuumOnLaterRuns() throws Exception {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        DatabaseMaintenance.run(db);
+        for (int run = 0; run < 2; run++) {
+            // More pages than a step frees.
+            db.execSQL("CREATE TABLE padding (data BLOB);");
+            db.execSQL("INSERT INTO padding VALUES (zeroblob(1048576));");
+            db.execSQL("DROP TABLE padding;");
+            assertTrue(count(db, "PRAGMA freelist_count") > 0);
+
+            DatabaseMaintenance.run(db);
+
+            assertEquals(2, count(db, "PRAGMA auto_vacuum"));
+            assertEquals(0, count(db, "PRAGMA freelist_count"));
+        }
+        assertNotNull(helper.getRestaurantFromServerId(CampusGenerator.serverId(2)));
+    }
+
+    private static long count(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
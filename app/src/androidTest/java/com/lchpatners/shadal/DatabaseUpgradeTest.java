@@ -0,0 +1,118 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import java.util.List;
+
+/**
+ * Checks that a database of version 18, the oldest one upgraded rather than recreated, is
+ * migrated to the current schema keeping its bookmarks, and that the updates and the
+ * {@link com.lchpatners.shadal.DatabaseHelper#pendingBookmarks pending bookmarks} after the
+ * upgrade keep them too.
+ */
+public class DatabaseUpgradeTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "DatabaseUpgradeTest";
+    private static final int BOOKMARKED = CampusGenerator.serverId(0);
+    private static final int OTHER = CampusGenerator.serverId(1);
+    /**
+     * Not in the old database.
+     */
+    private static final int ADDED = CampusGenerator.serverId(2);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private CampusGenerator generator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        TestCampus.select(context, CAMPUS);
+        context.deleteDatabase(CAMPUS);
+        DatabaseHelper.pendingBookmarks.clear();
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+        generator = new CampusGenerator(3, 4, 2, 1, 42);
+
+        // The schema of version 18, as the old release created it.
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(CAMPUS), null);
+        try {
+            db.execSQL("CREATE TABLE restaurants (id INTEGER PRIMARY KEY, server_id INT, name TEXT, " +
+                    "category TEXT, openingHours TEXT, closingHours TEXT, phoneNumber TEXT, has_flyer INTEGER, " +
+                    "has_coupon INTEGER, is_new INTEGER, is_favorite INTEGER, coupon_string TEXT, updated_at TEXT);");
+            db.execSQL("CREATE TABLE menus (id INTEGER PRIMARY KEY, menu TEXT, section TEXT, " +
+                    "price INT, restaurant_id INT);");
+            db.execSQL("CREATE TABLE flyers (id INTEGER PRIMARY KEY, url TEXT, restaurant_id INT);");
+            db.execSQL(String.format("INSERT INTO restaurants (server_id, name, category, openingHours, " +
+                    "closingHours, is_favorite, updated_at) VALUES (%d, '해물짬뽕 본점', '%s', '22', '2', 1, " +
+                    "'2015-01-01 12:00:00');", BOOKMARKED, CampusGenerator.category(0)));
+            db.execSQL(String.format("INSERT INTO restaurants (server_id, name, category, openingHours, " +
+                    "closingHours, is_favorite, updated_at) VALUES (%d, '짜장면집', '%s', '11', '21', 0, " +
+                    "'2015-01-01 12:00:00');", OTHER, CampusGenerator.category(1)));
+            db.execSQL(String.format("INSERT INTO menus (menu, section, price, restaurant_id) " +
+                    "VALUES ('짬뽕', '식사', 6000, %d);", BOOKMARKED));
+            db.execSQL(String.format("INSERT INTO flyers (url, restaurant_id) " +
+                    "VALUES ('http://www.shadal.kr/flyers/%d_0.jpg', %d);", BOOKMARKED, BOOKMARKED));
+            db.setVersion(18);
+        } finally {
+            db.close();
+        }
+        helper = DatabaseHelper.getInstance(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DatabaseHelper.pendingBookmarks.clear();
+        helper.close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    public void testUpgradeKeepsBookmarks() throws Exception {
+        assertEquals(CampusSchema.VERSION, helper.getReadableDatabase().getVersion());
+
+        Restaurant bookmarked = helper.getRestaurantFromServerId(BOOKMARKED);
+        assertTrue(bookmarked.isFavorite());
+        assertFalse(helper.getRestaurantFromServerId(OTHER).isFavorite());
+        assertEquals(1, helper.getFavoriteRestaurants().size());
+
+        // The columns added and the labels moved on the way.
+        assertEquals(CampusGenerator.category(0), bookmarked.getCategory());
+        assertEquals("22:00 ~ 02:00", bookmarked.getHoursString());
+        List<Menu> menus = helper.getMenusByRestaurantServerId(BOOKMARKED);
+        assertEquals(1, menus.size());
+        assertEquals("식사", menus.get(0).getSection());
+        assertEquals(1, helper.getFlyerUrlsByRestaurantServerId(BOOKMARKED).size());
+        // Found by the full-text index built by the upgrade.
+        List<SearchResult> results = helper.search("짬뽕", 10);
+        assertEquals(1, results.size());
+        assertEquals(BOOKMARKED, results.get(0).getRestaurant().getServerId());
+    }
+
+    public void testUpdateAfterUpgradeKeepsBookmarks() throws Exception {
+        // The upgraded rows have no hashes, so both are written again.
+        assertTrue(helper.updateRestaurant(generator.restaurant(0)));
+        assertTrue(helper.updateRestaurant(generator.restaurant(1)));
+
+        assertTrue(helper.getRestaurantFromServerId(BOOKMARKED).isFavorite());
+        assertFalse(helper.getRestaurantFromServerId(OTHER).isFavorite());
+        assertEquals(generator.restaurant(0).getString("name"),
+                helper.getRestaurantFromServerId(BOOKMARKED).getName());
+    }
+
+    public void testPendingBookmarksAfterUpgrade() throws Exception {
+        // Bookmarks saved aside, e.g. by the old version, and applied by the import.
+        DatabaseHelper.pendingBookmarks.add(OTHER);
+        DatabaseHelper.pendingBookmarks.add(ADDED);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(helper.updateRestaurant(generator.restaurant(i)));
+        }
+
+        assertTrue(helper.getRestaurantFromServerId(BOOKMARKED).isFavorite());
+        assertTrue(helper.getRestaurantFromServerId(OTHER).isFavorite());
+        assertTrue(helper.getRestaurantFromServerId(ADDED).isFavorite());
+        assertEquals(3, helper.getFavoriteRestaurants().size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.lchpatners.shadal;
+
+import android.test.InstrumentationTestCase;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the order in which an {@link com.lchpatners.shadal.ImportQueue ImportQueue}
+ * hands out a {@link com.lchpatners.shadal.CampusGenerator generated} campus.
+ */
+public class ImportQueueTest extends InstrumentationTestCase {
+
+    private static final int CHUNK = 10;
+
+    private JSONArray restaurants;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        restaurants = new JSONArray(new CampusGenerator(1).allRestaurants());
+    }
+
+    public void testViewedCategoryThenBookmarksThenTheRest() throws Exception {
+        int bookmark = CampusGenerator.serverId(1);
+        ImportQueue queue = new ImportQueue(restaurants, Arrays.asList(bookmark));
+        String viewed = CampusGenerator.CATEGORIES[3];
+        int inViewed = 0;
+        for (int i = 0; i < restaurants.length(); i++) {
+            if (viewed.equals(restaurants.getJSONObject(i).getString("category"))) inViewed++;
+        }
+
+        List<JSONObject> handedOut = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            List<JSONObject> chunk = queue.next(CHUNK, viewed);
+            assertTrue(chunk.size() <= CHUNK);
+            handedOut.addAll(chunk);
+        }
+
+        for (int i = 0; i < inViewed; i++) {
+            assertEquals(viewed, handedOut.get(i).getString("category"));
+        }
+        assertEquals(bookmark, handedOut.get(inViewed).getInt("id"));
+        Set<Integer> ids = new HashSet<>();
+        for (JSONObject restaurant : handedOut) {
+            assertTrue(ids.add(restaurant.getInt("id")));
+        }
+        assertEquals(restaurants.length(), ids.size());
+    }
+
+    public void testSwitchingCategories() throws Exception {
+        ImportQueue queue = new ImportQueue(restaurants, new ArrayList<Integer>());
+        for (JSONObject restaurant : queue.next(CHUNK, CampusGenerator.CATEGORIES[0])) {
+            assertEquals(CampusGenerator.CATEGORIES[0], restaurant.getString("category"));
+        }
+        for (JSONObject restaurant : queue.next(CHUNK, CampusGenerator.CATEGORIES[5])) {
+            assertEquals(CampusGenerator.CATEGORIES[5], restaurant.getString("category"));
+        }
+        // None viewed: the server's order, skipping those handed out already.
+        List<JSONObject> rest = queue.next(restaurants.length(), null);
+        assertEquals(restaurants.length() - 2 * CHUNK, rest.size());
+        assertTrue(queue.isEmpty());
+    }
+}
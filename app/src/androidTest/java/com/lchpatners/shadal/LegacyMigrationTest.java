@@ -0,0 +1,59 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Checks that {@link com.lchpatners.shadal.LegacyMigration LegacyMigration} keeps the old
+ * version's bookmarks before deleting its database, and may be run again.
+ */
+public class LegacyMigrationTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "LegacyMigrationTest";
+
+    private Context context;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+        SavedBookmarks.delete(context, CAMPUS);
+        context.deleteDatabase(DatabaseHelper.LEGACY_DATABASE_NAME);
+        SQLiteDatabase legacyDb = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath(DatabaseHelper.LEGACY_DATABASE_NAME), null);
+        try {
+            legacyDb.execSQL("CREATE TABLE restaurants (id INTEGER PRIMARY KEY, server_id INT, is_favorite INTEGER);");
+            legacyDb.execSQL("INSERT INTO restaurants (server_id, is_favorite) VALUES (3, 1);");
+            legacyDb.execSQL("INSERT INTO restaurants (server_id, is_favorite) VALUES (4, 0);");
+            legacyDb.execSQL("INSERT INTO restaurants (server_id, is_favorite) VALUES (5, 1);");
+        } finally {
+            legacyDb.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SavedBookmarks.delete(context, CAMPUS);
+        context.deleteDatabase(DatabaseHelper.LEGACY_DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testMigrate() throws Exception {
+        assertTrue(LegacyMigration.isPending(context));
+        assertTrue(LegacyMigration.run(context, CAMPUS));
+        assertFalse(LegacyMigration.isPending(context));
+        assertEquals(new HashSet<>(Arrays.asList(3, 5)), SavedBookmarks.load(context, CAMPUS));
+    }
+
+    public void testResumeAfterSaving() throws Exception {
+        // As if the process died after the bookmarks were saved, before the file was deleted.
+        SavedBookmarks.save(context, CAMPUS, Arrays.asList(3, 9));
+        assertTrue(LegacyMigration.run(context, CAMPUS));
+        assertEquals(new HashSet<>(Arrays.asList(3, 5, 9)), SavedBookmarks.load(context, CAMPUS));
+        assertTrue(LegacyMigration.run(context, CAMPUS));
+    }
+}
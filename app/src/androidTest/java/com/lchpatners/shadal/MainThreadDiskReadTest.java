@@ -0,0 +1,145 @@
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.StrictMode;
+import android.test.InstrumentationTestCase;
+import android.widget.EditText;
+
+import java.util.ArrayList;
+
+/**
+ * Opens each screen under a {@link android.os.StrictMode StrictMode} policy which kills
+ * the process on any disk read on the main thread. A crash fails the test run.
+ */
+public class MainThreadDiskReadTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "StrictModeTest";
+    private static final String CATEGORY = CampusGenerator.category(0);
+
+    private Context context;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+
+        TestCampus.select(context, CAMPUS);
+
+        // Fill the database off the main thread, as the app does.
+        DatabaseHelper.getInstance(context).updateRestaurant(new CampusGenerator(1, 1, 1, 0, 1).restaurant(0));
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // Loaded once per process, not per screen.
+                Preferences.getCampusKoreanShortName(context);
+                AnalyticsHelper.getInstance(context);
+
+                StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                        .detectDiskReads()
+                        .penaltyLog()
+                        .penaltyDeath()
+                        .build());
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                StrictMode.setThreadPolicy(StrictMode.ThreadPolicy.LAX);
+            }
+        });
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    public void testMainActivity() throws Exception {
+        Activity activity = launchActivity(context.getPackageName(), MainActivity.class, null);
+        settle();
+        activity.finish();
+    }
+
+    public void testMenuListActivity() throws Exception {
+        Restaurant restaurant = DatabaseHelper.getInstance(context).getRestaurantsByCategory(CATEGORY).get(0);
+        Intent intent = new Intent();
+        intent.putExtra("RESTAURANT", restaurant);
+        intent.putExtra("REFERRER", "RestaurantListFragment");
+        Activity activity = launchActivityWithIntent(context.getPackageName(), MenuListActivity.class, intent);
+        settle();
+        activity.finish();
+    }
+
+    public void testCampusSelectionActivity() throws Exception {
+        Instrumentation.ActivityMonitor monitor =
+                getInstrumentation().addMonitor(MainActivity.class.getName(), null, false);
+        try {
+            final Activity activity = launchActivity(context.getPackageName(), CampusSelectionActivity.class, null);
+            settle();
+            // Confirming checks the campus's database, and then starts the main screen.
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    activity.findViewById(R.id.confirm).performClick();
+                }
+            });
+            Activity main = getInstrumentation().waitForMonitorWithTimeout(monitor, 5000);
+            assertNotNull(main);
+            settle();
+            main.finish();
+            activity.finish();
+        } finally {
+            getInstrumentation().removeMonitor(monitor);
+        }
+    }
+
+    public void testSearchActivity() throws Exception {
+        final Activity activity = launchActivity(context.getPackageName(), SearchActivity.class, null);
+        settle();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ((EditText)activity.findViewById(R.id.search_query)).setText("치킨");
+            }
+        });
+        settle();
+        activity.finish();
+    }
+
+    public void testCheapestMenuActivity() throws Exception {
+        Activity activity = launchActivity(context.getPackageName(), CheapestMenuActivity.class, null);
+        settle();
+        activity.finish();
+    }
+
+    public void testFlyerActivity() throws Exception {
+        ArrayList<String> urls = new ArrayList<>();
+        // Refused at once, so the page gives up rather than waiting on the network.
+        urls.add("http://127.0.0.1:1/flyer.jpg");
+        Intent intent = new Intent();
+        intent.putExtra("URLS", urls);
+        Activity activity = launchActivityWithIntent(context.getPackageName(), FlyerActivity.class, intent);
+        settle();
+        activity.finish();
+    }
+
+    public void testMetricsActivity() throws Exception {
+        Activity activity = launchActivity(context.getPackageName(), MetricsActivity.class, null);
+        settle();
+        activity.finish();
+    }
+
+    /**
+     * Wait for the background loads to be delivered and bound.
+     */
+    private void settle() throws InterruptedException {
+        getInstrumentation().waitForIdleSync();
+        Thread.sleep(1000);
+        getInstrumentation().waitForIdleSync();
+    }
+}
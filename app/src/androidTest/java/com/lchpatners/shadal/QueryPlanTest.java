@@ -0,0 +1,136 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs every {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper} query against
+ * a campus of realistic size, and fails if any of them scans the whole restaurants
+ * or menus table instead of using an index.
+ */
+public class QueryPlanTest extends InstrumentationTestCase {
+
+    private static final String CAMPUS = "QueryPlanTest";
+    private static final int RESTAURANTS_PER_CATEGORY = 40;
+    private static final int MENUS_PER_RESTAURANT = 40;
+    private static final int SECTIONS_PER_RESTAURANT = 4;
+    private static final int FLYERS_PER_RESTAURANT = 2;
+
+    /**
+     * e.g. "SCAN TABLE menus AS m" or, on newer SQLite, "SCAN m". Only the aliases used
+     * by DatabaseHelper are matched, and not the full-text tables, e.g. "restaurants_fts".
+     */
+    private static final Pattern FULL_SCAN =
+            Pattern.compile("^SCAN (TABLE )?(restaurants|menus|r|m)\\b(?!_)");
+    /**
+     * A random pick has to look at every row anyway.
+     */
+    private static final String RANDOM_ORDER = "ORDER BY RANDOM()";
+
+    private Context context;
+    private DatabaseHelper helper;
+    private String[] categories;
+    private CampusGenerator generator;
+
+    private static class Query {
+        final String sql;
+        final String[] args;
+
+        Query(String sql, String[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+
+        TestCampus.select(context, CAMPUS);
+
+        categories = context.getResources().getStringArray(R.array.categories);
+        CategoryListAdapter.categories = categories;
+        helper = DatabaseHelper.getInstance(context);
+        generator = new CampusGenerator(RESTAURANTS_PER_CATEGORY * CampusGenerator.CATEGORIES.length,
+                MENUS_PER_RESTAURANT, SECTIONS_PER_RESTAURANT, FLYERS_PER_RESTAURANT, 42);
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < generator.getRestaurantCount(); i++) {
+                helper.updateRestaurant(generator.restaurant(i));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DatabaseHelper.setQueryObserver(null);
+        helper.close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    public void testNoFullScans() throws Exception {
+        final List<Query> queries = new ArrayList<>();
+        DatabaseHelper.setQueryObserver(new DatabaseHelper.QueryObserver() {
+            @Override
+            public void onQuery(String sql, String[] args) {
+                queries.add(new Query(sql, args));
+            }
+        });
+
+        // Every query of the helper, the way the screens and the sync call them.
+        for (String category : categories) {
+            helper.getRestaurantsByCategory(category);
+            helper.getRestaurantsByCategory(category, 12 * 60, true);
+        }
+        helper.getFavoriteRestaurants();
+        Restaurant restaurant = helper.getRestaurantFromServerId(1);
+        helper.getRestaurantFromId(restaurant.getId());
+        helper.toggleFavoriteById(restaurant.getId());
+        helper.getMenusByRestaurantServerId(1);
+        helper.getFlyerUrlsByRestaurantServerId(1);
+        RestaurantDetailCache.getInstance().invalidateAll();
+        helper.getRestaurantDetail(2);
+        helper.search("치킨", 100);
+        helper.search("ㅊㅋ", 100);
+        List<PricedMenu> page = helper.getMenusByPrice(null, 1, 10000, null, 50);
+        helper.getMenusByPrice(null, 1, 10000, page.get(page.size() - 1), 50);
+        helper.getMenusByPrice(categories[0], 1, 10000, null, 50);
+        helper.getRandomRestaurant();
+        helper.updateRestaurant(generator.restaurant(0));
+        // The category as the server lists it, unchanged.
+        JSONArray category = new JSONArray();
+        for (int i = 0; i < generator.getRestaurantCount(); i++) {
+            if (CampusGenerator.category(i).equals(CampusGenerator.category(0))) {
+                category.put(generator.restaurant(i));
+            }
+        }
+        helper.updateCategory(category, CampusGenerator.category(0));
+
+        assertFalse(queries.isEmpty());
+        SQLiteDatabase db = helper.getReadableDatabase();
+        StringBuilder failures = new StringBuilder();
+        for (Query query : queries) {
+            if (query.sql.contains(RANDOM_ORDER)) continue;
+            for (String line : DatabaseHelper.explain(db, query.sql, query.args)) {
+                if (FULL_SCAN.matcher(line).find()) {
+                    failures.append(query.sql).append("\n    ").append(line).append('\n');
+                }
+            }
+        }
+        assertTrue("Full scans:\n" + failures, failures.length() == 0);
+    }
+}
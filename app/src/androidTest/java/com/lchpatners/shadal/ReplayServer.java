@@ -0,0 +1,365 @@
+package com.lchpatners.shadal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the server and the popup server, which replays recorded responses.
+ * Point {@link com.lchpatners.shadal.Server Server} at it with
+ * <code>Server.setEndpoints(replay.getBaseUrl(), replay.getPopupUrl())</code>.
+ * <br>A response is looked up by the method, path and parameters of the request, e.g.
+ * "GET /checkForUpdate?restaurant_id=1&updated_at=...", then by the method and path only.
+ * Missing ones are fetched from the {@link #setUpstream(String, String) upstream} if set, and
+ * recorded, so a real session can be {@link #save(java.io.File) saved} and replayed offline.
+ * <br>Latency, bandwidth, errors and timeouts can be injected to shape the network.
+ */
+public class ReplayServer {
+
+    /**
+     * The path under which the popup server's paths are served.
+     */
+    public static final String POPUP_PREFIX = "/popup";
+    private static final String CRLF = "\r\n";
+    private static final String ENCODING = "UTF-8";
+
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Random random = new Random(42);
+    private ExecutorService executor;
+    private ServerSocket socket;
+
+    private volatile String upstreamBaseUrl;
+    private volatile String upstreamPopupUrl;
+    private volatile int latencyMillis;
+    private volatile int bytesPerSecond;
+    private volatile double errorRate;
+    private volatile double timeoutRate;
+
+    /**
+     * Start serving on an ephemeral port of the loopback interface.
+     * @throws IOException If no port could be bound.
+     */
+    public void start() throws IOException {
+        socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        executor = Executors.newCachedThreadPool();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket connection = socket.accept();
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(connection);
+                            }
+                        });
+                    } catch (SocketException e) {
+                        // Stopped.
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop serving, dropping the connections in progress, e.g. the timed out ones.
+     */
+    public void stop() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Stands in for {@link com.lchpatners.shadal.Server#DEFAULT_BASE_URL}.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    /**
+     * @return Stands in for {@link com.lchpatners.shadal.Server#DEFAULT_POPUP_URL}.
+     */
+    public String getPopupUrl() {
+        return getBaseUrl() + POPUP_PREFIX;
+    }
+
+    /**
+     * @param method e.g. "GET".
+     * @param path e.g. "/allRestaurants", or "/popup/curList" for the popup server.
+     * @param params URL-encoded parameters, or <code>null</code> to answer whatever they are.
+     * @param body The response.
+     */
+    public void put(String method, String path, String params, String body) {
+        try {
+            responses.put(key(method, path, params), body.getBytes(ENCODING));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Record missing responses from real servers.
+     * @param baseUrl e.g. {@link com.lchpatners.shadal.Server#DEFAULT_BASE_URL}.
+     * @param popupUrl e.g. {@link com.lchpatners.shadal.Server#DEFAULT_POPUP_URL}.
+     */
+    public void setUpstream(String baseUrl, String popupUrl) {
+        upstreamBaseUrl = baseUrl;
+        upstreamPopupUrl = popupUrl;
+    }
+
+    /**
+     * @param latencyMillis Delay before each response.
+     */
+    public void setLatency(int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @param bytesPerSecond Rate of the response bodies, or 0 for no limit.
+     */
+    public void setBandwidth(int bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param errorRate Share of requests answered with a 500, from 0 to 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param timeoutRate Share of requests never answered, from 0 to 1.
+     */
+    public void setTimeoutRate(double timeoutRate) {
+        this.timeoutRate = timeoutRate;
+    }
+
+    /**
+     * @return The number of requests received so far.
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Save every response, one file each, to be {@link #load(java.io.File) loaded} later.
+     * @param dir Directory to save to.
+     * @throws IOException If writing failed.
+     */
+    public void save(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        for (Map.Entry<String, byte[]> response : responses.entrySet()) {
+            OutputStream out = new FileOutputStream(new File(dir, URLEncoder.encode(response.getKey(), ENCODING)));
+            try {
+                out.write(response.getValue());
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @param dir Directory {@link #save(java.io.File) saved} to.
+     * @throws IOException If reading failed.
+     */
+    public void load(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + dir);
+        }
+        for (File file : files) {
+            InputStream in = new FileInputStream(file);
+            try {
+                responses.put(URLDecoder.decode(file.getName(), ENCODING), readFully(in, -1));
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static String key(String method, String path, String params) {
+        return method + " " + path + (params == null ? "" : "?" + params);
+    }
+
+    private void serve(Socket connection) {
+        try {
+            InputStream in = connection.getInputStream();
+            String[] requestLine = readLine(in).split(" ");
+            int contentLength = 0;
+            String header;
+            while (!(header = readLine(in)).isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                    contentLength = Integer.parseInt(header.substring(colon + 1).trim());
+                }
+            }
+            String method = requestLine[0];
+            String target = requestLine[1];
+            int query = target.indexOf('?');
+            String path = query < 0 ? target : target.substring(0, query);
+            String params = query < 0 ? null : target.substring(query + 1);
+            byte[] body = readFully(in, contentLength);
+            if (body.length > 0) {
+                params = new String(body, ENCODING);
+            }
+            requestCount.incrementAndGet();
+
+            double dice;
+            synchronized (random) {
+                dice = random.nextDouble();
+            }
+            if (dice < timeoutRate) {
+                // Hold the connection until the client gives up, or the server stops.
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (dice < timeoutRate + errorRate) {
+                respond(connection, 500, "Internal Server Error", new byte[0]);
+                return;
+            }
+
+            byte[] response = responses.get(key(method, path, params));
+            if (response == null) {
+                response = responses.get(key(method, path, null));
+            }
+            if (response == null) {
+                response = fetchUpstream(method, path, params, body);
+            }
+            if (response == null) {
+                respond(connection, 404, "Not Found", new byte[0]);
+            } else {
+                respond(connection, 200, "OK", response);
+            }
+        } catch (InterruptedException e) {
+            // Stopped.
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return The upstream response, recorded under the request, or <code>null</code>
+     * if there is no upstream or it failed.
+     */
+    private byte[] fetchUpstream(String method, String path, String params, byte[] body) throws IOException {
+        String base = upstreamBaseUrl;
+        String upstreamPath = path;
+        if (path.startsWith(POPUP_PREFIX + "/")) {
+            base = upstreamPopupUrl;
+            upstreamPath = path.substring(POPUP_PREFIX.length());
+        }
+        if (base == null) {
+            return null;
+        }
+        String url = base + upstreamPath;
+        if (params != null && body.length == 0) {
+            url += "?" + params;
+        }
+        HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if (body.length > 0) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                OutputStream out = connection.getOutputStream();
+                out.write(body);
+                out.close();
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            byte[] response = readFully(connection.getInputStream(), -1);
+            responses.put(key(method, path, params), response);
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void respond(Socket connection, int status, String reason, byte[] body)
+            throws IOException, InterruptedException {
+        OutputStream out = connection.getOutputStream();
+        String head = "HTTP/1.1 " + status + " " + reason + CRLF
+                + "Content-Type: application/json; charset=utf-8" + CRLF
+                + "Content-Length: " + body.length + CRLF
+                + "Connection: close" + CRLF + CRLF;
+        out.write(head.getBytes(ENCODING));
+        int rate = bytesPerSecond;
+        if (rate <= 0) {
+            out.write(body);
+        } else {
+            // A tenth of a second's worth at a time.
+            int chunk = Math.max(1, rate / 10);
+            for (int offset = 0; offset < body.length; offset += chunk) {
+                int length = Math.min(chunk, body.length - offset);
+                out.write(body, offset, length);
+                out.flush();
+                Thread.sleep(length * 1000L / rate);
+            }
+        }
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char)c);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * @param length The number of bytes to read, or -1 to read to the end.
+     */
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(length, 1024));
+        byte[] buffer = new byte[8192];
+        int remaining = length < 0 ? Integer.MAX_VALUE : length;
+        int read;
+        while (remaining > 0 && (read = in.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        return out.toByteArray();
+    }
+}
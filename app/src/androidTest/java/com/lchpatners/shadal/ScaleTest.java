@@ -0,0 +1,207 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Imports a {@link com.lchpatners.shadal.CampusGenerator generated} campus at 1, 10 and 100
+ * times our biggest one through {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper},
+ * and fails if the import, the list queries or the heap they take grow past a budget.
+ * <br>The 100x run takes minutes, so it only runs with the large tests:
+ * <code>adb shell am instrument -w -e size large ...</code>
+ */
+public class ScaleTest extends InstrumentationTestCase {
+
+    private static final String TAG = "ScaleTest";
+    private static final String CAMPUS = "ScaleTest";
+    /**
+     * Generated and then imported in pages, so the generator isn't timed.
+     */
+    private static final int PAGE_SIZE = 100;
+    /**
+     * Every this many restaurants is a favorite.
+     */
+    private static final int FAVORITE_EVERY = 50;
+    private static final int RUNS = 5;
+    private static final int SAMPLED_RESTAURANTS = 20;
+    /**
+     * A syllable most generated menu items start a word with, e.g. "치킨" and "치즈".
+     */
+    private static final String SHORT_QUERY = "치";
+    private static final int SEARCH_LIMIT = 100;
+
+    // Budgets, with headroom for slow devices. Tighten them as the code gets faster.
+    private static final long IMPORT_MS_PER_RESTAURANT = 40;
+    private static final long LIST_MS = 50;
+    private static final double LIST_MS_PER_ROW = 0.5;
+    private static final long MENUS_MS = 30;
+    private static final long SEARCH_MS = 150;
+    private static final long HEAP_BYTES_PER_LISTED_RESTAURANT = 2048;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+
+        TestCampus.select(context, CAMPUS);
+        context.deleteDatabase(CAMPUS);
+
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+        helper = DatabaseHelper.getInstance(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        helper.close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    @MediumTest
+    public void testScale1x() throws Exception {
+        runAtScale(1);
+    }
+
+    @MediumTest
+    public void testScale10x() throws Exception {
+        runAtScale(10);
+    }
+
+    @LargeTest
+    public void testScale100x() throws Exception {
+        runAtScale(100);
+    }
+
+    private void runAtScale(int scale) throws Exception {
+        CampusGenerator generator = new CampusGenerator(scale);
+        int count = generator.getRestaurantCount();
+
+        // Import one restaurant after another, as a category refresh does.
+        long importMs = 0;
+        List<JSONObject> page = new ArrayList<>(PAGE_SIZE);
+        for (int start = 0; start < count; start += PAGE_SIZE) {
+            page.clear();
+            for (int i = start; i < Math.min(count, start + PAGE_SIZE); i++) {
+                page.add(generator.restaurant(i));
+            }
+            long begin = Metrics.now();
+            for (JSONObject restaurant : page) {
+                helper.updateRestaurant(restaurant);
+            }
+            importMs += Metrics.now() - begin;
+        }
+        for (int i = 0; i < count; i += FAVORITE_EVERY) {
+            helper.toggleFavoriteById(helper.getRestaurantFromServerId(CampusGenerator.serverId(i)).getId());
+        }
+
+        long categoryMs = 0;
+        int categoryRows = 0;
+        for (String category : CampusGenerator.CATEGORIES) {
+            final String c = category;
+            categoryMs = Math.max(categoryMs, median(new Query() {
+                @Override
+                public int run() {
+                    return helper.getRestaurantsByCategory(c).size();
+                }
+            }));
+            categoryRows = Math.max(categoryRows, helper.getRestaurantsByCategory(c).size());
+        }
+        int favorites = helper.getFavoriteRestaurants().size();
+        long favoritesMs = median(new Query() {
+            @Override
+            public int run() {
+                return helper.getFavoriteRestaurants().size();
+            }
+        });
+        long menusMs = 0;
+        for (int i = 0; i < SAMPLED_RESTAURANTS; i++) {
+            final int serverId = CampusGenerator.serverId(i * count / SAMPLED_RESTAURANTS);
+            menusMs = Math.max(menusMs, median(new Query() {
+                @Override
+                public int run() {
+                    return helper.getMenusByRestaurantServerId(serverId).size();
+                }
+            }));
+        }
+
+        // A short query matches much of the menu, yet only the kept restaurants should be loaded.
+        final int[] found = new int[1];
+        long searchMs = median(new Query() {
+            @Override
+            public int run() {
+                return found[0] = helper.search(SHORT_QUERY, SEARCH_LIMIT).size();
+            }
+        });
+
+        // The heap taken by every category's list at once, as with all tabs loaded.
+        long before = usedHeap();
+        List<List<Restaurant>> lists = new ArrayList<>();
+        for (String category : CampusGenerator.CATEGORIES) {
+            lists.add(helper.getRestaurantsByCategory(category));
+        }
+        long heapBytes = usedHeap() - before;
+        int listed = 0;
+        for (List<Restaurant> list : lists) {
+            listed += list.size();
+        }
+
+        Log.i(TAG, String.format("%dx: %d restaurants, import %d ms, category %d ms (%d rows), "
+                        + "favorites %d ms (%d rows), menus %d ms, search %d ms (%d rows), heap %d KB",
+                scale, count, importMs, categoryMs, categoryRows, favoritesMs, favorites, menusMs,
+                searchMs, found[0], heapBytes / 1024));
+
+        assertEquals(count, listed);
+        assertTrue("Import took " + importMs + " ms", importMs <= IMPORT_MS_PER_RESTAURANT * count);
+        assertTrue("Category list took " + categoryMs + " ms",
+                categoryMs <= LIST_MS + LIST_MS_PER_ROW * categoryRows);
+        assertTrue("Favorites took " + favoritesMs + " ms",
+                favoritesMs <= LIST_MS + LIST_MS_PER_ROW * favorites);
+        assertTrue("Menus took " + menusMs + " ms", menusMs <= MENUS_MS);
+        assertEquals(Math.min(count, SEARCH_LIMIT), found[0]);
+        assertTrue("Search took " + searchMs + " ms", searchMs <= SEARCH_MS);
+        assertTrue("Lists took " + heapBytes + " bytes", heapBytes <= HEAP_BYTES_PER_LISTED_RESTAURANT * listed);
+    }
+
+    private interface Query {
+        /**
+         * @return The number of rows, so the query isn't left unused.
+         */
+        int run();
+    }
+
+    /**
+     * @return The median milliseconds of {@link #RUNS} runs of the query, uncached.
+     */
+    private static long median(Query query) {
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            RestaurantDetailCache.getInstance().invalidateAll();
+            long start = Metrics.now();
+            query.run();
+            times[i] = Metrics.now() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,282 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Syncs a {@link com.lchpatners.shadal.CampusGenerator generated} campus end to end, from
+ * {@link com.lchpatners.shadal.Server Server} to the database, against a
+ * {@link com.lchpatners.shadal.ReplayServer ReplayServer} shaped like a fast and a slow network.
+ * The times are logged and kept in {@link com.lchpatners.shadal.Metrics Metrics} as "sync.*".
+ */
+public class SyncBenchmarkTest extends InstrumentationTestCase {
+
+    private static final String TAG = "SyncBenchmarkTest";
+    private static final String CAMPUS = "SyncBenchmark";
+    private static final String OTHER_CAMPUS = "SyncBenchmarkOther";
+    private static final String UPDATED_AT = "2015-03-01 12:00:00";
+    private static final String CHANGED_AT = "2015-04-01 12:00:00";
+    /**
+     * Every this many restaurants changes on the server between the cold sync and the refresh.
+     */
+    private static final int CHANGED_EVERY = 20;
+    /**
+     * A slow mobile connection.
+     */
+    private static final int SLOW_LATENCY_MS = 300;
+    private static final int SLOW_BYTES_PER_SECOND = 100 * 1024;
+
+    private Context context;
+    private ReplayServer replay;
+    private CampusGenerator generator;
+    private Server server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = getInstrumentation().getTargetContext();
+
+        JSONObject campus = TestCampus.select(context, CAMPUS);
+        context.deleteDatabase(CAMPUS);
+        CategoryListAdapter.categories = context.getResources().getStringArray(R.array.categories);
+
+        generator = new CampusGenerator(1);
+        replay = new ReplayServer();
+        replay.start();
+        replay.put("GET", Server.CAMPUSES, null, new JSONArray().put(campus).toString());
+        replay.put("GET", "/allRestaurants", null, generator.allRestaurants());
+        replay.put("GET", Server.APP_MINIMUM_VERSION, null, "{\"minimum_android_version\":1}");
+        replay.put("GET", Server.UPDATE_DEVICE, null, "{}");
+        replay.put("POST", ReplayServer.POPUP_PREFIX + Server.POPUP_LIST, null,
+                "{\"result\":\"SUCCESS\",\"popupList\":[]}");
+        putCategories(UPDATED_AT);
+        Server.setEndpoints(replay.getBaseUrl(), replay.getPopupUrl());
+        server = new Server(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Server.setEndpoints(Server.DEFAULT_BASE_URL, Server.DEFAULT_POPUP_URL);
+        Server.setTimeout(Server.DEFAULT_TIMEOUT_MS);
+        replay.stop();
+        DatabaseHelper.getInstance(context).close();
+        context.deleteDatabase(CAMPUS);
+        super.tearDown();
+    }
+
+    @LargeTest
+    public void testFastNetwork() throws Exception {
+        run("fast");
+    }
+
+    @LargeTest
+    public void testSlowNetwork() throws Exception {
+        replay.setLatency(SLOW_LATENCY_MS);
+        replay.setBandwidth(SLOW_BYTES_PER_SECOND);
+        run("slow");
+    }
+
+    public void testUnchangedRestaurantsAreSkipped() throws Exception {
+        assertTrue(server.fetchAllInChunks());
+        Metrics metrics = Metrics.getInstance();
+        long written = metrics.counter("sync.restaurants_written").get();
+        long menusWritten = metrics.counter("sync.menu_rows_written").get();
+        long skipped = metrics.counter("sync.restaurants_skipped").get();
+
+        assertTrue(server.fetchAllInChunks());
+        assertEquals(written, metrics.counter("sync.restaurants_written").get());
+        assertEquals(menusWritten, metrics.counter("sync.menu_rows_written").get());
+        assertEquals(skipped + generator.getRestaurantCount(), metrics.counter("sync.restaurants_skipped").get());
+    }
+
+    public void testMenuChangeKeepsRestaurantRow() throws Exception {
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+        JSONObject restaurant = generator.restaurant(0);
+        assertTrue(helper.updateRestaurant(restaurant));
+        Metrics metrics = Metrics.getInstance();
+        long written = metrics.counter("sync.restaurants_written").get();
+        long skipped = metrics.counter("sync.restaurants_skipped").get();
+        long menusWritten = metrics.counter("sync.menu_rows_written").get();
+
+        JSONObject menu = restaurant.getJSONArray("menus").getJSONObject(0);
+        menu.put("price", menu.getInt("price") + 500);
+        assertTrue(helper.updateRestaurant(restaurant));
+        assertEquals(written, metrics.counter("sync.restaurants_written").get());
+        assertEquals(skipped + 1, metrics.counter("sync.restaurants_skipped").get());
+        assertEquals(menusWritten + restaurant.getJSONArray("menus").length(),
+                metrics.counter("sync.menu_rows_written").get());
+
+        // The new menu hash was kept, so the same menus are skipped next time.
+        assertTrue(helper.updateRestaurant(restaurant));
+        assertEquals(menusWritten + restaurant.getJSONArray("menus").length(),
+                metrics.counter("sync.menu_rows_written").get());
+    }
+
+    public void testImportInChunks() throws Exception {
+        Metrics metrics = Metrics.getInstance();
+        long chunks = metrics.counter("sync.import_chunks").get();
+        Server.setViewedCategory(CampusGenerator.CATEGORIES[2]);
+        try {
+            assertTrue(server.fetchAllInChunks());
+        } finally {
+            Server.setViewedCategory(null);
+        }
+        int expected = (generator.getRestaurantCount() + Server.IMPORT_CHUNK_SIZE - 1) / Server.IMPORT_CHUNK_SIZE;
+        assertEquals(chunks + expected, metrics.counter("sync.import_chunks").get());
+        assertNotNull(DatabaseHelper.getInstance(context).getRestaurantFromServerId(
+                CampusGenerator.serverId(generator.getRestaurantCount() - 1)));
+    }
+
+    public void testSwitchCampusDuringImport() throws Exception {
+        // Slow enough for the campus to be switched before the first import writes anything.
+        replay.setLatency(SLOW_LATENCY_MS);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                server.importAll();
+            }
+        });
+        TestCampus.select(context, OTHER_CAMPUS);
+        context.deleteDatabase(OTHER_CAMPUS);
+        try {
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    new Server(context).importAll();
+                }
+            });
+            long deadline = SystemClock.uptimeMillis() + 60 * 1000;
+            while (isImporting()) {
+                assertTrue("Imports took over a minute", SystemClock.uptimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+
+            assertNotNull(DatabaseHelper.getInstance(context).getRestaurantFromServerId(
+                    CampusGenerator.serverId(generator.getRestaurantCount() - 1)));
+            // Left partly imported, so it is imported anew when selected again.
+            assertFalse(context.getDatabasePath(CAMPUS).exists());
+        } finally {
+            DatabaseHelper.getInstance(context).close();
+            context.deleteDatabase(OTHER_CAMPUS);
+            SavedBookmarks.delete(context, CAMPUS);
+            TestCampus.select(context, CAMPUS);
+        }
+    }
+
+    /**
+     * @return {@link Server#isImporting()}, read on the main thread, where one import ends
+     * and the next is started in the same callback.
+     */
+    private boolean isImporting() {
+        final boolean[] importing = new boolean[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                importing[0] = Server.isImporting();
+            }
+        });
+        return importing[0];
+    }
+
+    public void testServerErrors() throws Exception {
+        replay.setErrorRate(1);
+        assertFalse(server.fetchAllInChunks());
+        assertTrue(DatabaseHelper.getInstance(context).getRestaurantsByCategory(
+                CampusGenerator.CATEGORIES[0]).isEmpty());
+    }
+
+    public void testTimeouts() throws Exception {
+        replay.setTimeoutRate(1);
+        Server.setTimeout(500);
+        long start = Metrics.now();
+        assertFalse(server.fetchAllInChunks());
+        assertTrue(Metrics.now() - start < 5000);
+    }
+
+    private void run(String network) throws Exception {
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+
+        // First run: everything is downloaded and imported.
+        long start = Metrics.now();
+        assertTrue(server.fetchAllInChunks());
+        long coldMs = Metrics.now() - start;
+        assertNotNull(helper.getRestaurantFromServerId(CampusGenerator.serverId(generator.getRestaurantCount() - 1)));
+
+        // Refresh with nothing changed: only the category lists are downloaded.
+        int requests = replay.getRequestCount();
+        start = Metrics.now();
+        for (String category : CampusGenerator.CATEGORIES) {
+            assertTrue(server.fetchCategory(category));
+        }
+        long unchangedMs = Metrics.now() - start;
+        assertEquals(CampusGenerator.CATEGORIES.length, replay.getRequestCount() - requests);
+
+        // Refresh after some restaurants changed: those are downloaded as well.
+        putCategories(CHANGED_AT);
+        start = Metrics.now();
+        for (String category : CampusGenerator.CATEGORIES) {
+            assertTrue(server.fetchCategory(category));
+        }
+        long changedMs = Metrics.now() - start;
+        for (int i = 0; i < generator.getRestaurantCount(); i += CHANGED_EVERY) {
+            assertEquals(CHANGED_AT, helper.getRestaurantFromServerId(CampusGenerator.serverId(i)).getUpdatedTime());
+        }
+
+        Metrics metrics = Metrics.getInstance();
+        metrics.histogram("sync." + network + ".cold_ms").update(coldMs);
+        metrics.histogram("sync." + network + ".refresh_unchanged_ms").update(unchangedMs);
+        metrics.histogram("sync." + network + ".refresh_changed_ms").update(changedMs);
+        Log.i(TAG, String.format("%s network, %d restaurants: cold %d ms, refresh %d ms unchanged, %d ms changed",
+                network, generator.getRestaurantCount(), coldMs, unchangedMs, changedMs));
+    }
+
+    /**
+     * Serve /checkForResInCategory for every category, and /checkForUpdate for the
+     * restaurants which changed.
+     * @param changedAt Update time of every {@link #CHANGED_EVERY}th restaurant.
+     */
+    private void putCategories(String changedAt) throws Exception {
+        List<JSONArray> categories = new ArrayList<>();
+        for (String ignored : CampusGenerator.CATEGORIES) {
+            categories.add(new JSONArray());
+        }
+        for (int i = 0; i < generator.getRestaurantCount(); i++) {
+            JSONObject restaurant = generator.restaurant(i);
+            if (i % CHANGED_EVERY == 0) {
+                restaurant.put("updated_at", changedAt);
+                replay.put("GET", Server.CHECK_FOR_UPDATE, URLEncodedUtils.format(params(
+                        "restaurant_id", Integer.toString(CampusGenerator.serverId(i)),
+                        "updated_at", UPDATED_AT), "utf-8"), restaurant.toString());
+            }
+            // The category lists lack the menus and flyers.
+            restaurant.remove("menus");
+            restaurant.remove("flyers_url");
+            categories.get(i % CampusGenerator.CATEGORIES.length).put(restaurant);
+        }
+        for (int i = 0; i < CampusGenerator.CATEGORIES.length; i++) {
+            replay.put("GET", Server.CHECK_FOR_RES_IN_CATEGORY, URLEncodedUtils.format(params(
+                    "campus", CAMPUS, "category", CampusGenerator.CATEGORIES[i]), "utf-8"),
+                    categories.get(i).toString());
+        }
+    }
+
+    private static List<NameValuePair> params(String... namesAndValues) {
+        List<NameValuePair> params = new ArrayList<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            params.add(new BasicNameValuePair(namesAndValues[i], namesAndValues[i + 1]));
+        }
+        return params;
+    }
+}
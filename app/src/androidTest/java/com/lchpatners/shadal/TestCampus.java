@@ -0,0 +1,32 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Selects a made-up campus for the tests, as if the user had picked it from the list.
+ * Its database is named after it, so each test class gets a database of its own.
+ * <br>Not part of {@link com.lchpatners.shadal.CampusGenerator CampusGenerator}, which the
+ * benchmark module compiles as plain Java.
+ */
+public class TestCampus {
+
+    /**
+     * @param context {@link android.content.Context Context}
+     * @param name Every name of the campus, English and Korean alike.
+     * @return The campus, shaped like an element of {@link com.lchpatners.shadal.Server#CAMPUSES
+     * /campuses}, e.g. to be served by a {@link com.lchpatners.shadal.ReplayServer ReplayServer}.
+     * @throws JSONException Never, in practice.
+     */
+    public static JSONObject select(Context context, String name) throws JSONException {
+        JSONObject campus = new JSONObject();
+        campus.put("name_eng", name);
+        campus.put("name_kor", name);
+        campus.put("name_kor_short", name);
+        campus.put("email", "campusdal@gmail.com");
+        Preferences.setCampus(context, campus);
+        return campus;
+    }
+}
@@ -1,63 +1,280 @@
-package com.lchpatners.shadal;
-
-
-import android.content.Context;
-import android.util.Log;
-
-import com.google.android.gms.analytics.GoogleAnalytics;
-import com.google.android.gms.analytics.HitBuilders;
-import com.google.android.gms.analytics.Tracker;
-
-/**
- * Sends data for Google Analytics.
- */
-public class AnalyticsHelper {
-
-    Context context;
-    /**
-     * @see com.google.android.gms.analytics.Tracker Tracker
-     */
-    Tracker tracker;
-
-    /**
-     * Initializes members.
-     * @param context {@link android.content.Context}
-     */
-    public AnalyticsHelper(Context context) {
-        this.context = context;
-        GoogleAnalytics ga = GoogleAnalytics.getInstance(context);
-        tracker = ga.newTracker(R.xml.tracker_configuation);
-    }
-
-    /**
-     * Set the screen information and send it to the Google Analytics. Used to
-     * track movements on the user's screen. It can be either an {@link android.app.Activity
-     * Activity} or a {@link android.support.v4.app.Fragment Fragment}.
-     * @param screenName The screen's name to be sent.
-     */
-    public void sendScreen(String screenName) {
-        tracker.setScreenName(screenName);
-        HitBuilders.ScreenViewBuilder builder = new HitBuilders.ScreenViewBuilder();
-        String campusName = Preferences.getCampusKoreanShortName(context);
-        if (campusName != null) {
-            builder.setCustomDimension(1, campusName);
-        }
-        tracker.send(builder.build());
-    }
-
-    /**
-     * Send information about an event when it occurs.
-     * @param category The category of the event.
-     * @param action The action of the event.
-     * @param label The label of the event.
-     */
-    public void sendEvent(String category, String action, String label) {
-        tracker.send(new HitBuilders.EventBuilder()
-                .setCustomDimension(1, Preferences.getCampusKoreanShortName(context))
-                .setCategory(category)
-                .setAction(action)
-                .setLabel(label)
-                .build());
-    }
-
-}
+package com.lchpatners.shadal;
+
+
+import android.content.Context;
+import android.os.Process;
+
+import com.google.android.gms.analytics.GoogleAnalytics;
+import com.google.android.gms.analytics.HitBuilders;
+import com.google.android.gms.analytics.Tracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends data for Google Analytics. One instance serves the whole process.
+ * <br>Sending returns right away: hits are queued without locking, and a background
+ * thread sends them in batches, to the {@link com.google.android.gms.analytics.Tracker Tracker}
+ * or to whichever {@link com.lchpatners.shadal.AnalyticsHelper.Sink Sink} is set.
+ * The tracker and the campus dimension are looked up once, on that thread.
+ */
+public class AnalyticsHelper {
+
+    /**
+     * Receives the hits sent, on the background thread.
+     */
+    public interface Sink {
+        void send(List<Hit> batch);
+    }
+
+    /**
+     * A screen view or an event.
+     */
+    public static class Hit {
+
+        /**
+         * Screen name for a screen view, or <code>null</code> for an event.
+         */
+        public final String screenName;
+        public final String category;
+        public final String action;
+        public final String label;
+        /**
+         * The campus dimension when the hit was made, or <code>null</code>
+         * if it was not looked up yet.
+         */
+        final String campusName;
+
+        private Hit(String screenName, String category, String action, String label, String campusName) {
+            this.screenName = screenName;
+            this.category = category;
+            this.action = action;
+            this.label = label;
+            this.campusName = campusName;
+        }
+
+        public boolean isScreenView() {
+            return screenName != null;
+        }
+    }
+
+    /**
+     * Keeps the hits in memory, for tests to check what would have been sent.
+     */
+    public static class MemorySink implements Sink {
+
+        private final List<Hit> hits = Collections.synchronizedList(new ArrayList<Hit>());
+
+        @Override
+        public void send(List<Hit> batch) {
+            hits.addAll(batch);
+        }
+
+        /**
+         * @return A copy of the hits received so far.
+         */
+        public List<Hit> getHits() {
+            synchronized (hits) {
+                return new ArrayList<>(hits);
+            }
+        }
+    }
+
+    /**
+     * A batch is sent once this many hits are queued...
+     */
+    private static final int BATCH_SIZE = 20;
+    /**
+     * ...or this long after the first of them was.
+     */
+    private static final long BATCH_DELAY_MILLIS = 2000;
+
+    /**
+     * The singleton object.
+     */
+    private static AnalyticsHelper instance;
+
+    private final Context context;
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "AnalyticsHelper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final ConcurrentLinkedQueue<Hit> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * The number of hits in {@link #queue}, which does not count them cheaply itself.
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Random random = new Random();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            List<Hit> batch = new ArrayList<>();
+            Hit hit;
+            while ((hit = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(hit);
+            }
+            if (!batch.isEmpty()) {
+                sink.send(batch);
+            }
+        }
+    };
+
+    /**
+     * Where the hits go. Accessed on the background thread only, except by {@link #setSink(Sink)}.
+     */
+    private volatile Sink sink = new Sink() {
+        /**
+         * Created on first use, on the background thread.
+         * @see com.google.android.gms.analytics.Tracker Tracker
+         */
+        private Tracker tracker;
+
+        @Override
+        public void send(List<Hit> batch) {
+            if (tracker == null) {
+                tracker = GoogleAnalytics.getInstance(context).newTracker(R.xml.tracker_configuation);
+            }
+            for (Hit hit : batch) {
+                String campusName = hit.campusName != null ? hit.campusName : getCampusName();
+                if (hit.isScreenView()) {
+                    tracker.setScreenName(hit.screenName);
+                    HitBuilders.ScreenViewBuilder builder = new HitBuilders.ScreenViewBuilder();
+                    if (campusName != null) {
+                        builder.setCustomDimension(1, campusName);
+                    }
+                    tracker.send(builder.build());
+                } else {
+                    tracker.send(new HitBuilders.EventBuilder()
+                            .setCustomDimension(1, campusName)
+                            .setCategory(hit.category)
+                            .setAction(hit.action)
+                            .setLabel(hit.label)
+                            .build());
+                }
+            }
+        }
+    };
+    /**
+     * The fraction of hits sent, from 0 to 1.
+     */
+    private volatile float sampleRate = 1;
+    /**
+     * Cached campus dimension.
+     */
+    private volatile String campusName;
+    private volatile boolean campusNameLoaded;
+
+    /**
+     * @param context {@link android.content.Context}
+     * @return The {@link com.lchpatners.shadal.AnalyticsHelper AnalyticsHelper} instance.
+     */
+    public static synchronized AnalyticsHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new AnalyticsHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AnalyticsHelper(Context context) {
+        this.context = context;
+        Preferences.addOnCampusChangeListener(new Preferences.OnCampusChangeListener() {
+            @Override
+            public void onCampusChanged(Preferences.Snapshot settings) {
+                campusName = settings.campusKoreanShortName;
+                campusNameLoaded = true;
+            }
+        });
+    }
+
+    /**
+     * Set the screen information and send it to the Google Analytics. Used to
+     * track movements on the user's screen. It can be either an {@link android.app.Activity
+     * Activity} or a {@link android.support.v4.app.Fragment Fragment}.
+     * @param screenName The screen's name to be sent.
+     */
+    public void sendScreen(String screenName) {
+        enqueue(new Hit(screenName, null, null, null, campusName));
+    }
+
+    /**
+     * Send information about an event when it occurs.
+     * @param category The category of the event.
+     * @param action The action of the event.
+     * @param label The label of the event.
+     */
+    public void sendEvent(String category, String action, String label) {
+        enqueue(new Hit(null, category, action, label, campusName));
+    }
+
+    /**
+     * @param sampleRate The fraction of hits to send, from 0 to 1. The rest are dropped.
+     */
+    public void setSampleRate(float sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Send the hits to another {@link com.lchpatners.shadal.AnalyticsHelper.Sink Sink},
+     * e.g. a {@link com.lchpatners.shadal.AnalyticsHelper.MemorySink MemorySink} in tests.
+     * @param sink Where the hits go from now on.
+     */
+    public void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Send the queued hits now, and wait until they are sent.
+     */
+    public void flush() {
+        try {
+            sender.submit(drain).get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void enqueue(Hit hit) {
+        if (sampleRate < 1 && random.nextFloat() >= sampleRate) return;
+        queue.offer(hit);
+        if (queued.incrementAndGet() >= BATCH_SIZE) {
+            sender.execute(drain);
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            sender.schedule(drain, BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return The campus dimension, read from the preferences the first time.
+     * Called on the background thread.
+     */
+    private String getCampusName() {
+        if (!campusNameLoaded) {
+            campusName = Preferences.getCampusKoreanShortName(context);
+            campusNameLoaded = true;
+        }
+        return campusName;
+    }
+}
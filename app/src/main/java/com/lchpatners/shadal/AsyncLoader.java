@@ -0,0 +1,106 @@
+package com.lchpatners.shadal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs database queries on a background thread and delivers the results on the UI thread.
+ * Each instance serves one consumer, e.g. an adapter or an {@link android.app.Activity Activity}:
+ * starting a new load cancels the previous one, so only the newest result is ever delivered,
+ * and nothing is delivered after {@link #release()}, which the consumer calls when its
+ * views are destroyed.
+ */
+public class AsyncLoader {
+
+    /**
+     * A query to run on the background thread.
+     * @param <T> Type of the result.
+     */
+    public interface Task<T> {
+        /**
+         * @return The result. Should not be modified afterwards.
+         */
+        T load();
+    }
+
+    /**
+     * Receives the result on the UI thread.
+     * @param <T> Type of the result.
+     */
+    public interface Callback<T> {
+        void onLoaded(T result);
+    }
+
+    /**
+     * Shared by all loaders. SQLite serializes the queries anyway.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "AsyncLoader");
+        }
+    });
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    /**
+     * Incremented on every load and on release. A result is delivered only if
+     * the generation it was loaded for is still the current one.
+     */
+    private volatile int generation;
+    private boolean released;
+    private Future<?> pending;
+
+    /**
+     * Start a load, cancelling the one in progress if any. Must be called on the UI thread.
+     * @param task {@link com.lchpatners.shadal.AsyncLoader.Task Task} to run.
+     * @param callback {@link com.lchpatners.shadal.AsyncLoader.Callback Callback} to deliver to.
+     * @param <T> Type of the result.
+     */
+    public <T> void load(final Task<T> task, final Callback<T> callback) {
+        if (released) return;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        final int loadGeneration = ++generation;
+        pending = EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (loadGeneration != generation) return;
+                final T result = task.load();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!released && loadGeneration == generation) {
+                            pending = null;
+                            callback.onLoaded(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancel the load in progress, and stop delivering for good.
+     */
+    public void release() {
+        released = true;
+        generation++;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
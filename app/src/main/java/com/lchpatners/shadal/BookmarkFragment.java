@@ -1,96 +1,115 @@
-package com.lchpatners.shadal;
-
-import android.app.Activity;
-import android.content.Intent;
-import android.os.Bundle;
-import android.support.v4.app.Fragment;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ImageView;
-import android.widget.ListView;
-
-/**
- * Displays bookmarks.
- */
-public class BookmarkFragment extends Fragment {
-
-    /**
-     * The {@link android.app.Activity Activity} to which this attaches.
-     */
-    private Activity activity;
-    /**
-     * The lastly instantiated instance's {@link com.lchpatners.shadal.RestaurantListAdapter
-     * RestaurantListAdapter}. Used to reload the view from another {@link android.app.Activity Activity}.
-     */
-    public static RestaurantListAdapter latestAdapter;
-
-    public static BookmarkFragment newInstance() {
-        return new BookmarkFragment();
-    }
-
-    @Override
-    public void onAttach(Activity activity) {
-        super.onAttach(activity);
-        this.activity = activity;
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        /*
-         * Without this condition check, there would be multiple onResume() calls of
-         * all the Fragments in the parent ViewPager this and they belong. This is because
-         * of the relationship of Fragment life cycle and Activity life cycle.
-         */
-        if (getUserVisibleHint()) {
-            AnalyticsHelper helper = new AnalyticsHelper(activity.getApplication());
-            helper.sendScreen("즐겨찾기 화면");
-        }
-    }
-
-    @Override
-    public void setUserVisibleHint(boolean isVisibleToUser) {
-        super.setUserVisibleHint(isVisibleToUser);
-        if (isVisibleToUser && isResumed()) {
-            onResume();
-        }
-    }
-
-    @Override
-    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        View view = inflater.inflate(R.layout.list_view, container, false);
-        ListView listView = (ListView)view.findViewById(R.id.list_view);
-
-        // Create and set the empty view to show up when the list is empty.
-        ImageView img = new ImageView(activity);
-        img.setImageResource(R.drawable.bg_bookmarks_empty);
-        img.setVisibility(View.GONE);
-        ((ViewGroup)listView.getParent()).addView(img);
-        listView.setEmptyView(img);
-
-        final RestaurantListAdapter adapter
-                = new RestaurantListAdapter(activity, RestaurantListAdapter.BOOKMARK);
-        latestAdapter = adapter;
-        listView.setAdapter(adapter);
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                if (adapter.getItem(position) instanceof Restaurant) {
-                    Restaurant restaurant = (Restaurant) adapter.getItem(position);
-
-                    AnalyticsHelper helper = new AnalyticsHelper(getActivity().getApplication());
-                    helper.sendEvent("UX", "res_in_favorite_clicked", restaurant.getName());
-
-                    Intent intent = new Intent(activity, MenuListActivity.class);
-                    intent.putExtra("RESTAURANT", restaurant);
-                    intent.putExtra("REFERRER", "BookmarkFragment");
-                    startActivity(intent);
-                }
-            }
-        });
-        return view;
-    }
-
-}
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+/**
+ * Displays bookmarks.
+ */
+public class BookmarkFragment extends Fragment {
+
+    /**
+     * The {@link android.app.Activity Activity} to which this attaches.
+     */
+    private Activity activity;
+    /**
+     * {@link com.lchpatners.shadal.RestaurantListAdapter RestaurantListAdapter} of this.
+     */
+    private RestaurantListAdapter adapter;
+
+    public static BookmarkFragment newInstance() {
+        return new BookmarkFragment();
+    }
+
+    @Override
+    public void onAttach(Activity activity) {
+        super.onAttach(activity);
+        this.activity = activity;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        /*
+         * Without this condition check, there would be multiple onResume() calls of
+         * all the Fragments in the parent ViewPager this and they belong. This is because
+         * of the relationship of Fragment life cycle and Activity life cycle.
+         */
+        if (getUserVisibleHint()) {
+            AnalyticsHelper helper = AnalyticsHelper.getInstance(activity.getApplication());
+            helper.sendScreen("즐겨찾기 화면");
+        }
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (isVisibleToUser && isResumed()) {
+            onResume();
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.recycler_view, container, false);
+        RecyclerView recyclerView = (RecyclerView)view.findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.addItemDecoration(new DividerItemDecoration(activity));
+
+        // Create and set the empty view to show up when the list is empty.
+        final ImageView img = new ImageView(activity);
+        img.setImageResource(R.drawable.bg_bookmarks_empty);
+        img.setVisibility(View.GONE);
+        ((ViewGroup)recyclerView.getParent()).addView(img);
+
+        adapter = new RestaurantListAdapter(activity, RestaurantListAdapter.BOOKMARK);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                img.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                onChanged();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                onChanged();
+            }
+        });
+        recyclerView.setAdapter(adapter);
+        adapter.releaseWith(view);
+        adapter.setOnItemClickListener(new DiffingAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(Object item) {
+                if (item instanceof CampusCatalog.Item) {
+                    item = ((CampusCatalog.Item)item).open();
+                }
+                if (item instanceof Restaurant) {
+                    Restaurant restaurant = (Restaurant)item;
+
+                    AnalyticsHelper helper = AnalyticsHelper.getInstance(getActivity().getApplication());
+                    helper.sendEvent("UX", "res_in_favorite_clicked", restaurant.getName());
+                    Metrics.getInstance().startSpan(MenuListActivity.TAP_TO_MENUS);
+
+                    Intent intent = new Intent(activity, MenuListActivity.class);
+                    intent.putExtra("RESTAURANT", restaurant);
+                    intent.putExtra("REFERRER", "BookmarkFragment");
+                    startActivity(intent);
+                }
+            }
+        });
+        return view;
+    }
+
+}
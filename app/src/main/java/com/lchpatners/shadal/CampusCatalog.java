@@ -0,0 +1,431 @@
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Every restaurant of the campus, held in memory so the lists are built without reading
+ * the database. A campus is a few hundred restaurants which change rarely, so they are kept
+ * in parallel arrays, one per column, with the labels shared between rows. The restaurants of
+ * each category and the bookmarks are indexed ahead, ordered as the lists show them, and
+ * every restaurant's {@link com.lchpatners.shadal.Row Row} is built once, so a list is only
+ * a filter over an index.
+ * <br>Instances are immutable. A new one is loaded in the background after every write to
+ * the restaurants table, and replaces the {@link #get(String) current one} as a whole;
+ * the lists then load again, as they depend on {@link #TABLE}. Until the first one is loaded,
+ * the lists read the database as before.
+ * <br>The time to load is recorded in {@link com.lchpatners.shadal.Metrics Metrics} as
+ * "catalog.load_ms".
+ */
+public class CampusCatalog {
+
+    /**
+     * Recorded to {@link com.lchpatners.shadal.ChangeTracker ChangeTracker} as changed
+     * whenever a new catalog replaces the current one.
+     */
+    public static final String TABLE = "catalog";
+
+    public static final byte FLYER = 1;
+    public static final byte COUPON = 1 << 1;
+    public static final byte NEW = 1 << 2;
+    public static final byte FAVORITE = 1 << 3;
+
+    private static final int[] NONE = new int[0];
+
+    private static volatile CampusCatalog current;
+
+    /**
+     * A restaurant of a catalog, the {@link com.lchpatners.shadal.Row#value value} of its row.
+     */
+    public static class Item {
+        public final CampusCatalog catalog;
+        public final int index;
+
+        Item(CampusCatalog catalog, int index) {
+            this.catalog = catalog;
+            this.index = index;
+        }
+
+        public boolean hasFlag(byte flag) {
+            return (catalog.flags[index] & flag) != 0;
+        }
+
+        /**
+         * @return The restaurant as {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper}
+         * would load it, e.g. to be opened.
+         */
+        public Restaurant toRestaurant() {
+            return new Restaurant(catalog, index);
+        }
+
+        /**
+         * @return {@link #toRestaurant()}, also put in the
+         * {@link com.lchpatners.shadal.RestaurantDetailCache RestaurantDetailCache}, as the lists
+         * loaded from the database do, so that opening it reads only its menus and flyer urls.
+         */
+        public Restaurant open() {
+            Restaurant restaurant = toRestaurant();
+            RestaurantDetailCache.getInstance().putRestaurants(
+                    Collections.singletonList(restaurant), catalog.cacheGeneration);
+            return restaurant;
+        }
+
+        /**
+         * @param other An item of the same restaurant, usually of another catalog.
+         * @return If both would be displayed the same way in a list.
+         * @see com.lchpatners.shadal.Restaurant#hasSameContents(Restaurant)
+         */
+        public boolean hasSameContents(Item other) {
+            CampusCatalog a = catalog;
+            CampusCatalog b = other.catalog;
+            int i = index;
+            int j = other.index;
+            return a.flags[i] == b.flags[j] && a.categoryIds[i] == b.categoryIds[j]
+                    && a.openMinutes[i] == b.openMinutes[j] && a.closeMinutes[i] == b.closeMinutes[j]
+                    && equalsOrBothNull(a.names[i], b.names[j])
+                    && equalsOrBothNull(a.updatedTimes[i], b.updatedTimes[j]);
+        }
+    }
+
+    /**
+     * English name of the campus.
+     */
+    final String campus;
+    /**
+     * The {@link com.lchpatners.shadal.RestaurantDetailCache#generation() generation} of the
+     * cache read before loading, so that restaurants written since are never cached from here.
+     */
+    final int cacheGeneration;
+    final int size;
+    final int[] ids;
+    final int[] serverIds;
+    final int[] categoryIds;
+    final int[] openMinutes;
+    final int[] closeMinutes;
+    /**
+     * {@link #FLYER}, {@link #COUPON}, {@link #NEW} and {@link #FAVORITE} of each restaurant.
+     */
+    final byte[] flags;
+    final String[] names;
+    final String[] categories;
+    final String[] phoneNumbers;
+    final String[] openingHours;
+    final String[] closingHours;
+    final String[] hoursStrings;
+    final String[] couponStrings;
+    final String[] updatedTimes;
+
+    /**
+     * Indexes of the restaurants of each category, by category, flyers first and then by name.
+     */
+    private final Map<String, int[]> byCategory = new HashMap<>();
+    /**
+     * Indexes of the bookmarked restaurants, by category in the order of the
+     * <code>categoryOrder</code> loaded with, then as in {@link #byCategory}.
+     */
+    private final int[] bookmarks;
+    /**
+     * The row of each restaurant, whose {@link com.lchpatners.shadal.Row#value value} is its {@link Item}.
+     */
+    private final Row[] rows;
+    /**
+     * Header rows of the categories, by category id.
+     */
+    private final Map<Integer, Row> headers = new HashMap<>();
+
+    /**
+     * Load from every row of the restaurants table.
+     * @param campus English name of the campus.
+     * @param db The database.
+     * @param cursor Rows of the restaurants table, of all the columns.
+     * @param categoryLabels The lookup table of the rows' category_id.
+     * @param categoryOrder The categories in the order the tabs show them.
+     * @param previous The catalog this replaces, whose strings are reused where equal, or <code>null</code>.
+     * @param cacheGeneration The {@link com.lchpatners.shadal.RestaurantDetailCache#generation()
+     * generation} of the cache read before querying.
+     */
+    CampusCatalog(String campus, SQLiteDatabase db, Cursor cursor, LabelTable categoryLabels,
+                  String[] categoryOrder, CampusCatalog previous, int cacheGeneration) {
+        this.campus = campus;
+        this.cacheGeneration = cacheGeneration;
+        size = cursor.getCount();
+        ids = new int[size];
+        serverIds = new int[size];
+        categoryIds = new int[size];
+        openMinutes = new int[size];
+        closeMinutes = new int[size];
+        flags = new byte[size];
+        names = new String[size];
+        categories = new String[size];
+        phoneNumbers = new String[size];
+        openingHours = new String[size];
+        closingHours = new String[size];
+        hoursStrings = new String[size];
+        couponStrings = new String[size];
+        updatedTimes = new String[size];
+
+        Map<String, String> pool = new HashMap<>();
+        if (previous != null) {
+            for (String name : previous.names) {
+                pool.put(name, name);
+            }
+        }
+        int id = cursor.getColumnIndex("id");
+        int serverId = cursor.getColumnIndex("server_id");
+        int categoryId = cursor.getColumnIndex("category_id");
+        int openMinute = cursor.getColumnIndex("open_minute");
+        int closeMinute = cursor.getColumnIndex("close_minute");
+        int hasFlyer = cursor.getColumnIndex("has_flyer");
+        int hasCoupon = cursor.getColumnIndex("has_coupon");
+        int isNew = cursor.getColumnIndex("is_new");
+        int isFavorite = cursor.getColumnIndex("is_favorite");
+        int name = cursor.getColumnIndex("name");
+        int phoneNumber = cursor.getColumnIndex("phoneNumber");
+        int opening = cursor.getColumnIndex("openingHours");
+        int closing = cursor.getColumnIndex("closingHours");
+        int hoursString = cursor.getColumnIndex("hours_string");
+        int couponString = cursor.getColumnIndex("coupon_string");
+        int updatedAt = cursor.getColumnIndex("updated_at");
+        for (int i = 0; i < size && cursor.moveToNext(); i++) {
+            ids[i] = cursor.getInt(id);
+            serverIds[i] = cursor.getInt(serverId);
+            categoryIds[i] = cursor.getInt(categoryId);
+            openMinutes[i] = cursor.getInt(openMinute);
+            closeMinutes[i] = cursor.getInt(closeMinute);
+            flags[i] = (byte)((cursor.getInt(hasFlyer) == 1 ? FLYER : 0)
+                    | (cursor.getInt(hasCoupon) == 1 ? COUPON : 0)
+                    | (cursor.getInt(isNew) == 1 ? NEW : 0)
+                    | (cursor.getInt(isFavorite) == 1 ? FAVORITE : 0));
+            names[i] = intern(pool, cursor.getString(name));
+            // Already shared by the lookup table.
+            categories[i] = categoryLabels.nameOf(db, categoryIds[i]);
+            phoneNumbers[i] = cursor.getString(phoneNumber);
+            openingHours[i] = cursor.getString(opening);
+            closingHours[i] = cursor.getString(closing);
+            hoursStrings[i] = cursor.getString(hoursString);
+            couponStrings[i] = cursor.getString(couponString);
+            updatedTimes[i] = cursor.getString(updatedAt);
+        }
+
+        rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = Row.item(serverIds[i], new Item(this, i), names[i], null);
+            if (categories[i] != null && !headers.containsKey(categoryIds[i])) {
+                headers.put(categoryIds[i], Row.header(categories[i]));
+            }
+        }
+        indexCategories();
+        bookmarks = indexBookmarks(categoryOrder);
+    }
+
+    private static String intern(Map<String, String> pool, String string) {
+        if (string == null) return null;
+        String pooled = pool.get(string);
+        if (pooled == null) {
+            pool.put(string, string);
+            return string;
+        }
+        return pooled;
+    }
+
+    /**
+     * Fill {@link #byCategory}, in the order the database lists each category but for
+     * the open ones first, which depends on the time and is done by {@link #addRows}.
+     */
+    private void indexCategories() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Integer count = counts.get(categories[i]);
+            counts.put(categories[i], count == null ? 1 : count + 1);
+        }
+        Map<String, Integer> filled = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int[] indexes = byCategory.get(categories[i]);
+            if (indexes == null) {
+                indexes = new int[counts.get(categories[i])];
+                byCategory.put(categories[i], indexes);
+                filled.put(categories[i], 0);
+            }
+            int next = filled.get(categories[i]);
+            indexes[next] = i;
+            filled.put(categories[i], next + 1);
+        }
+        Comparator<Integer> order = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                boolean flyerA = (flags[a] & FLYER) != 0;
+                boolean flyerB = (flags[b] & FLYER) != 0;
+                if (flyerA != flyerB) {
+                    return flyerA ? -1 : 1;
+                }
+                return compareNames(names[a], names[b]);
+            }
+        };
+        for (int[] indexes : byCategory.values()) {
+            Integer[] boxed = new Integer[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                boxed[i] = indexes[i];
+            }
+            Arrays.sort(boxed, order);
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = boxed[i];
+            }
+        }
+    }
+
+    /**
+     * @param categoryOrder The categories in the order the tabs show them.
+     * @return The bookmarks, in the order described at {@link #bookmarks}.
+     */
+    private int[] indexBookmarks(String[] categoryOrder) {
+        int count = 0;
+        for (byte flag : flags) {
+            if ((flag & FAVORITE) != 0) count++;
+        }
+        if (count == 0) {
+            return NONE;
+        }
+        int[] indexes = new int[count];
+        int filled = 0;
+        for (String category : categoryOrder) {
+            int[] ofCategory = byCategory.get(category);
+            if (ofCategory == null) continue;
+            for (int index : ofCategory) {
+                if ((flags[index] & FAVORITE) != 0) {
+                    indexes[filled++] = index;
+                }
+            }
+        }
+        return filled == count ? indexes : Arrays.copyOf(indexes, filled);
+    }
+
+    /**
+     * Order as SQLite's default collation does, by UTF-16 code unit, which differs from it
+     * only outside the Basic Multilingual Plane.
+     */
+    private static int compareNames(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * @param campus English name of the selected campus.
+     * @return The catalog of the campus, or <code>null</code> if it is not loaded yet.
+     */
+    public static CampusCatalog get(String campus) {
+        CampusCatalog catalog = current;
+        return catalog != null && catalog.campus.equals(campus) ? catalog : null;
+    }
+
+    /**
+     * Load the catalog of the selected campus now and after every write to the restaurants
+     * table, for as long as the {@link android.app.Activity Activity} lives.
+     * @param activity {@link android.app.Activity Activity} showing the lists.
+     */
+    public static void observe(final Activity activity) {
+        new LiveQuery<CampusCatalog>(new AsyncLoader.Task<CampusCatalog>() {
+            @Override
+            public CampusCatalog load() {
+                long start = Metrics.now();
+                CampusCatalog catalog = DatabaseHelper.getInstance(activity).loadCatalog(current);
+                Metrics.getInstance().recordSince("catalog.load_ms", start);
+                return catalog;
+            }
+        }, new AsyncLoader.Callback<CampusCatalog>() {
+            @Override
+            public void onLoaded(CampusCatalog catalog) {
+                if (catalog == null) return;
+                current = catalog;
+                ChangeTracker.getInstance().recordChange(TABLE);
+            }
+        }, DatabaseHelper.RESTAURANTS).releaseWith(activity).start();
+    }
+
+    /**
+     * @param category A category.
+     * @param minute Minute of the day to check if open at.
+     * @param openOnly If only the restaurants open at <code>minute</code> are wanted.
+     * @return Rows of the restaurants of the category, the open ones first.
+     */
+    public Row[] rowsOfCategory(String category, int minute, boolean openOnly) {
+        int[] indexes = byCategory.get(category);
+        if (indexes == null) {
+            indexes = NONE;
+        }
+        Row[] result = new Row[indexes.length];
+        int count = addRows(indexes, 0, indexes.length, minute, openOnly, result, 0);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @param minute Minute of the day to check if open at.
+     * @param openOnly If only the restaurants open at <code>minute</code> are wanted.
+     * @return Rows of the bookmarks under a header for each category, the open ones first in each.
+     */
+    public Row[] rowsOfBookmarks(int minute, boolean openOnly) {
+        Row[] result = new Row[bookmarks.length * 2];
+        int count = 0;
+        int start = 0;
+        while (start < bookmarks.length) {
+            int categoryId = categoryIds[bookmarks[start]];
+            int end = start;
+            while (end < bookmarks.length && categoryIds[bookmarks[end]] == categoryId) {
+                end++;
+            }
+            int added = addRows(bookmarks, start, end, minute, openOnly, result, count + 1);
+            if (added > 0) {
+                result[count] = headers.get(categoryId);
+                count += added + 1;
+            }
+            start = end;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Copy the rows of <code>indexes[start..end)</code>, the open ones first.
+     * @return The number of rows copied.
+     */
+    private int addRows(int[] indexes, int start, int end, int minute, boolean openOnly, Row[] into, int at) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (isOpenAt(indexes[i], minute)) {
+                into[at + count++] = rows[indexes[i]];
+            }
+        }
+        if (!openOnly) {
+            for (int i = start; i < end; i++) {
+                if (!isOpenAt(indexes[i], minute)) {
+                    into[at + count++] = rows[indexes[i]];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param random Source of randomness.
+     * @return A random restaurant, or <code>null</code> if there is none.
+     */
+    public Restaurant randomRestaurant(Random random) {
+        return size == 0 ? null : new Restaurant(this, random.nextInt(size));
+    }
+
+    private boolean isOpenAt(int index, int minute) {
+        return OpeningHours.isOpenAt(openMinutes[index], closeMinutes[index], minute);
+    }
+
+    private static boolean equalsOrBothNull(String a, String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+}
@@ -0,0 +1,121 @@
+package com.lchpatners.shadal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The schema of a campus database, shared by {@link com.lchpatners.shadal.DatabaseHelper
+ * DatabaseHelper} and the tool building {@link com.lchpatners.shadal.CampusSnapshot snapshots}.
+ * Plain Java, so it can be compiled outside the app; keep it free of android.* imports.
+ */
+public final class CampusSchema {
+
+    /**
+     * Database version, stored as the <code>user_version</code> of the file.
+     */
+    public static final int VERSION = 24;
+
+    /**
+     * The restaurants table's name.
+     */
+    public static final String RESTAURANTS = "restaurants";
+    /**
+     * The menu table's name.
+     */
+    public static final String MENUS = "menus";
+    /**
+     * The flyer table's name.
+     */
+    public static final String FLYERS = "flyers";
+    /**
+     * The lookup table of restaurant categories.
+     * @see com.lchpatners.shadal.LabelTable LabelTable
+     */
+    public static final String CATEGORIES = "categories";
+    /**
+     * The lookup table of menu sections.
+     * @see com.lchpatners.shadal.LabelTable LabelTable
+     */
+    public static final String SECTIONS = "sections";
+    /**
+     * The full-text index of restaurant names. Its docid is the restaurant's server-side id.
+     * @see com.lchpatners.shadal.SearchTokens SearchTokens
+     */
+    public static final String RESTAURANTS_FTS = "restaurants_fts";
+    /**
+     * The full-text index of menu items. Its docid is the menu's id.
+     * @see com.lchpatners.shadal.SearchTokens SearchTokens
+     */
+    public static final String MENUS_FTS = "menus_fts";
+
+    public static final String RESTAURANT_COLUMNS = "(id INTEGER PRIMARY KEY, server_id INT, name TEXT, " +
+            "category_id INTEGER, openingHours TEXT, closingHours TEXT, phoneNumber TEXT, has_flyer INTEGER, " +
+            "has_coupon INTEGER, is_new INTEGER, is_favorite INTEGER, coupon_string TEXT, updated_at TEXT, " +
+            "open_minute INTEGER, close_minute INTEGER, hours_string TEXT, " +
+            "row_hash INTEGER, menus_hash INTEGER, flyers_hash INTEGER)";
+    public static final String MENU_COLUMNS = "(id INTEGER PRIMARY KEY, menu TEXT, section_id INTEGER, " +
+            "price INT, restaurant_id INT)";
+    public static final String FLYER_COLUMNS = "(id INTEGER PRIMARY KEY, url TEXT, restaurant_id INT)";
+    /**
+     * Columns of every label table.
+     */
+    public static final String LABEL_COLUMNS = "(id INTEGER PRIMARY KEY, name TEXT UNIQUE NOT NULL)";
+    /**
+     * Answers "open at time T" queries.
+     * @see com.lchpatners.shadal.OpeningHours#openAtClause(int) OpeningHours.openAtClause(int)
+     */
+    public static final String HOURS_INDEX = "CREATE INDEX IF NOT EXISTS restaurants_hours " +
+            "ON restaurants (close_minute, open_minute);";
+    /**
+     * Answers price-range queries in order of price.
+     */
+    public static final String PRICE_INDEX = "CREATE INDEX IF NOT EXISTS menus_price ON menus (price);";
+    /**
+     * Looks restaurants up by their server-side ids, e.g. for menus joined with them.
+     */
+    public static final String SERVER_ID_INDEX = "CREATE INDEX IF NOT EXISTS restaurants_server_id " +
+            "ON restaurants (server_id);";
+    /**
+     * Answers the restaurant lists, which are by category.
+     */
+    public static final String CATEGORY_INDEX = "CREATE INDEX IF NOT EXISTS restaurants_category_id " +
+            "ON restaurants (category_id);";
+    /**
+     * Looks a restaurant's menus up.
+     */
+    public static final String MENU_RESTAURANT_INDEX = "CREATE INDEX IF NOT EXISTS menus_restaurant_id " +
+            "ON menus (restaurant_id);";
+    /**
+     * Looks a restaurant's flyers up.
+     */
+    public static final String FLYER_RESTAURANT_INDEX = "CREATE INDEX IF NOT EXISTS flyers_restaurant_id " +
+            "ON flyers (restaurant_id);";
+    /**
+     * Columns of the full-text indexes: suffixes of the words, and of their initial consonants.
+     */
+    public static final String FTS_COLUMNS = "USING fts4(tokens, chosung)";
+
+    private CampusSchema() {
+    }
+
+    /**
+     * @return The statements creating the tables and indexes of an empty database, in order.
+     */
+    public static List<String> createStatements() {
+        List<String> statements = new ArrayList<>();
+        statements.add(String.format("CREATE TABLE IF NOT EXISTS %s %s;", CATEGORIES, LABEL_COLUMNS));
+        statements.add(String.format("CREATE TABLE IF NOT EXISTS %s %s;", SECTIONS, LABEL_COLUMNS));
+        statements.add(String.format("CREATE TABLE IF NOT EXISTS %s %s;", RESTAURANTS, RESTAURANT_COLUMNS));
+        statements.add(String.format("CREATE TABLE IF NOT EXISTS %s %s;", MENUS, MENU_COLUMNS));
+        statements.add(String.format("CREATE TABLE IF NOT EXISTS %s %s;", FLYERS, FLYER_COLUMNS));
+        statements.add(HOURS_INDEX);
+        statements.add(PRICE_INDEX);
+        statements.add(SERVER_ID_INDEX);
+        statements.add(CATEGORY_INDEX);
+        statements.add(MENU_RESTAURANT_INDEX);
+        statements.add(FLYER_RESTAURANT_INDEX);
+        statements.add(String.format("CREATE VIRTUAL TABLE %s %s;", RESTAURANTS_FTS, FTS_COLUMNS));
+        statements.add(String.format("CREATE VIRTUAL TABLE %s %s;", MENUS_FTS, FTS_COLUMNS));
+        return statements;
+    }
+}
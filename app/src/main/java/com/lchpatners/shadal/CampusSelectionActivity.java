@@ -1,310 +1,319 @@
-package com.lchpatners.shadal;
-
-import android.app.Activity;
-import android.app.AlertDialog;
-import android.content.Context;
-import android.content.DialogInterface;
-import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.os.AsyncTask;
-import android.os.Bundle;
-import android.util.Log;
-import android.util.TypedValue;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.BaseAdapter;
-import android.widget.Button;
-import android.widget.ListView;
-import android.widget.RelativeLayout;
-import android.widget.TextView;
-import android.widget.Toast;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.File;
-
-/**
- * Shows campuses list and gets the user's selection.
- */
-public class CampusSelectionActivity extends Activity {
-
-    /**
-     * A {@link org.json.JSONArray} of campus data.
-     */
-    private JSONArray campuses;
-
-    /**
-     * Indicates if the database file existed at the time when the application
-     * started. If <code>true</code>, it is likely that the user is using the
-     * app for the first time. Or he/she may have cleared the cache.
-     */
-    private boolean hasNoDatabase;
-
-    /**
-     * A {@link android.widget.ListView} to display a campus list.
-     */
-    ListView listView;
-    /**
-     * A confirm {@link android.widget.Button}.
-     */
-    private Button confirm;
-
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_campus_selection);
-
-        listView = (ListView)findViewById(R.id.list_view);
-
-        TextView emptyView = new TextView(this);
-        emptyView.setText("loading...");
-        emptyView.setTextColor(getResources().getColor(R.color.white100));
-        emptyView.setTextSize(TypedValue.COMPLEX_UNIT_DIP, 20);
-        RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(
-                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        params.addRule(RelativeLayout.CENTER_IN_PARENT);
-        emptyView.setLayoutParams(params);
-        emptyView.setVisibility(View.GONE);
-        ((ViewGroup)listView.getParent()).addView(emptyView);
-        listView.setEmptyView(emptyView);
-
-        if (campuses != null) {
-            setListView();
-        }
-        tryShowingCampusesFromServer();
-
-        confirm = (Button)findViewById(R.id.confirm);
-        if (Preferences.getCampusKoreanShortName(this) != null) {
-            confirm.setAlpha(1.0f);
-            confirm.setClickable(true);
-        }
-        confirm.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                if (Preferences.getCampusKoreanShortName(CampusSelectionActivity.this) == null) {
-                    return;
-                }
-
-                boolean isFirst = initializeDatabase();
-
-                AnalyticsHelper helper = new AnalyticsHelper(getApplication());
-                helper.sendEvent("UX", isFirst ? "select_campus_start" : "select_campus",
-                        Preferences.getCampusKoreanShortName(CampusSelectionActivity.this));
-
-                Intent intent = new Intent(CampusSelectionActivity.this, MainActivity.class);
-                intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-                startActivity(intent);
-                finish();
-            }
-        });
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        AnalyticsHelper helper = new AnalyticsHelper(getApplication());
-        helper.sendScreen("캠퍼스 선택하기 화면");
-    }
-
-    /**
-     * Request the campus list to the server and set the view, as a callback behavior.
-     * @see com.lchpatners.shadal.Server.CampusesLoadingTask CampusesLoadingTask
-     */
-    public void showCampusesFromServer() {
-        new Server.CampusesLoadingTask() {
-            @Override
-            protected void onPostExecute(Void aVoid) {
-                super.onPostExecute(aVoid);
-                campuses = results;
-                Log.d("campuses",campuses.toString());
-                setListView();
-            }
-        }.execute();
-    }
-
-    /**
-     * Set the view of {@link #listView};
-     */
-    public void setListView() {
-        BaseAdapter adapter = new BaseAdapter() {
-            @Override
-            public int getCount() {
-                return campuses.length();
-            }
-
-            @Override
-            public JSONObject getItem(int position) {
-                try {
-                    return campuses.getJSONObject(position);
-                } catch (JSONException e) {
-                    return null;
-                }
-            }
-
-            @Override
-            public long getItemId(int position) {
-                return position;
-            }
-
-            @Override
-            public View getView(int position, View convertView, ViewGroup parent) {
-                if (convertView == null) {
-                    LayoutInflater inflater = (LayoutInflater)getSystemService(LAYOUT_INFLATER_SERVICE);
-                    convertView = inflater.inflate(R.layout.list_item_campus, parent, false);
-                }
-                TextView textView = (TextView)convertView;
-
-                final JSONObject campus = getItem(position);
-                try {
-                    textView.setText(campus.getString("name_kor_short"));
-                } catch (JSONException e) {
-                    return null;
-                } catch (NullPointerException e) {
-                    return null;
-                }
-                String selected = Preferences.getCampusKoreanShortName(CampusSelectionActivity.this);
-                if (textView.getText().equals(selected)) {
-                    textView.setTextColor(getResources().getColor(R.color.white100));
-                    textView.setBackgroundColor(getResources().getColor(R.color.primary_light));
-                } else {
-                    textView.setTextColor(getResources().getColor(R.color.black87));
-                    textView.setBackgroundColor(getResources().getColor(R.color.white100));
-                }
-                textView.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        Preferences.setCampus(CampusSelectionActivity.this, campus);
-
-                        for (int i = 0; i < listView.getChildCount(); i++) {
-                            View child = listView.getChildAt(i);
-                            child.setBackgroundColor(getResources().getColor(R.color.white100));
-                            ((TextView)child).setTextColor(getResources().getColor(R.color.black87));
-                        }
-                        v.setBackgroundColor(getResources().getColor(R.color.primary_light));
-                        ((TextView)v).setTextColor(getResources().getColor(R.color.white100));
-
-                        if (confirm != null) {
-                            confirm.setAlpha(1.0f);
-                            confirm.setClickable(true);
-                        }
-
-                        Server server = new Server(CampusSelectionActivity.this);
-                        server.sendUuid();
-                    }
-                });
-                return textView;
-            }
-        };
-        listView.setAdapter(adapter);
-    }
-
-    /**
-     * Call {@link #showCampusesFromServer()} if connected to the network
-     * or try again with an {@link android.app.AlertDialog AlertDialog};
-     */
-    public void tryShowingCampusesFromServer() {
-        ConnectivityManager connectivityManager = (ConnectivityManager)getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null && networkInfo.isConnected()) {
-            showCampusesFromServer();
-        } else {
-            AlertDialog.Builder builder = new AlertDialog.Builder(this);
-            builder.setMessage(R.string.please_check_connectivity)
-                    .setPositiveButton(R.string.retry, new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int id) {
-                            tryShowingCampusesFromServer();
-                        }
-                    })
-                    .setNegativeButton(R.string.exit, new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int id) {
-                            finish();
-                        }
-                    });
-            AlertDialog dialog = builder.create();
-            dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
-                @Override
-                public void onCancel(DialogInterface dialog) {
-                    finish();
-                }
-            });
-            dialog.show();
-        }
-    }
-
-    /**
-     * Initialize the database by getting an instance of
-     * {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper}.
-     * Delete the database file of old versions, if any.
-     * And finally call {@link #tryLoadingFromServer()}.
-     * @return If the user uses the app for the first time.
-     */
-    public boolean initializeDatabase() {
-        DatabaseHelper helper = DatabaseHelper.getInstance(CampusSelectionActivity.this);
-        boolean isFirst = hasNoDatabase = !helper.checkDatabase(Preferences.getCampusEnglishName(this));
-        if (hasNoDatabase) {
-            Cursor cursor = null;
-            try {
-                if (getDatabasePath(DatabaseHelper.LEGACY_DATABASE_NAME).exists()) {
-                    File legacyFile = getDatabasePath(DatabaseHelper.LEGACY_DATABASE_NAME);
-                    SQLiteDatabase legacyDb = SQLiteDatabase.openDatabase(legacyFile.getPath(), null, 0); // EXCEPTION OCCURS
-                    cursor = legacyDb.rawQuery("SELECT server_id FROM restaurants WHERE is_favorite = 1;", null);
-                    if (cursor != null && cursor.moveToFirst()) {
-                        do {
-                            int id = cursor.getInt(cursor.getColumnIndex("server_id"));
-                            DatabaseHelper.legacyBookmarks.add(id);
-                        } while (cursor.moveToNext());
-                    }
-                    legacyFile.delete();
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
-            }
-            tryLoadingFromServer();
-        }
-        return isFirst;
-    }
-
-    /**
-     * Get all restaurant data of the selected campus if online. Otherwise, try again.
-     */
-    public void tryLoadingFromServer() {
-        ConnectivityManager connectivityManager = (ConnectivityManager)getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        if (networkInfo != null && networkInfo.isConnected()) {
-            new Server(this).updateAll();
-            hasNoDatabase = false;
-            Toast.makeText(this, getString(R.string.initial_download_guide), Toast.LENGTH_LONG).show();
-        } else {
-            AlertDialog.Builder builder = new AlertDialog.Builder(this);
-            builder.setMessage(R.string.please_check_connectivity)
-                    .setPositiveButton(R.string.retry, new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int id) {
-                            tryLoadingFromServer();
-                        }
-                    })
-                    .setNegativeButton(R.string.exit, new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int id) {
-                            finish();
-                        }
-                    });
-            AlertDialog dialog = builder.create();
-            dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
-                @Override
-                public void onCancel(DialogInterface dialog) {
-                    finish();
-                }
-            });
-            dialog.show();
-        }
-    }
-}
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.ListView;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Shows campuses list and gets the user's selection.
+ */
+public class CampusSelectionActivity extends Activity {
+
+    /**
+     * A {@link org.json.JSONArray} of campus data.
+     */
+    private JSONArray campuses;
+
+    /**
+     * Indicates if the database file existed at the time when the application
+     * started. If <code>true</code>, it is likely that the user is using the
+     * app for the first time. Or he/she may have cleared the cache.
+     */
+    private boolean hasNoDatabase;
+
+    /**
+     * A {@link android.widget.ListView} to display a campus list.
+     */
+    ListView listView;
+    /**
+     * A confirm {@link android.widget.Button}.
+     */
+    private Button confirm;
+    /**
+     * Checks the selected campus's database off the UI thread.
+     */
+    private AsyncLoader loader = new AsyncLoader();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_campus_selection);
+
+        listView = (ListView)findViewById(R.id.list_view);
+
+        TextView emptyView = new TextView(this);
+        emptyView.setText("loading...");
+        emptyView.setTextColor(getResources().getColor(R.color.white100));
+        emptyView.setTextSize(TypedValue.COMPLEX_UNIT_DIP, 20);
+        RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        params.addRule(RelativeLayout.CENTER_IN_PARENT);
+        emptyView.setLayoutParams(params);
+        emptyView.setVisibility(View.GONE);
+        ((ViewGroup)listView.getParent()).addView(emptyView);
+        listView.setEmptyView(emptyView);
+
+        if (campuses != null) {
+            setListView();
+        }
+        tryShowingCampusesFromServer();
+
+        confirm = (Button)findViewById(R.id.confirm);
+        if (Preferences.getCampusKoreanShortName(this) != null) {
+            confirm.setAlpha(1.0f);
+            confirm.setClickable(true);
+        }
+        confirm.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (Preferences.getCampusKoreanShortName(CampusSelectionActivity.this) == null) {
+                    return;
+                }
+
+                // Checking the database file is a disk read, so it is done off the UI thread.
+                final String campus = Preferences.getCampusEnglishName(CampusSelectionActivity.this);
+                loader.load(new AsyncLoader.Task<Boolean>() {
+                    @Override
+                    public Boolean load() {
+                        return DatabaseHelper.getInstance(CampusSelectionActivity.this).checkDatabase(campus);
+                    }
+                }, new AsyncLoader.Callback<Boolean>() {
+                    @Override
+                    public void onLoaded(Boolean hasDatabase) {
+                        onCampusConfirmed(hasDatabase);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.release();
+    }
+
+    /**
+     * Start with the campus selected, once its database has been checked.
+     * @param hasDatabase If the campus's database was already imported.
+     */
+    private void onCampusConfirmed(boolean hasDatabase) {
+        boolean isFirst = initializeDatabase(hasDatabase);
+        // The campus left may now be evicted.
+        CampusStorage.enforceBudgetInBackground(this);
+
+        AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+        helper.sendEvent("UX", isFirst ? "select_campus_start" : "select_campus",
+                Preferences.getCampusKoreanShortName(this));
+
+        Intent intent = new Intent(this, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        startActivity(intent);
+        finish();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+        helper.sendScreen("캠퍼스 선택하기 화면");
+    }
+
+    /**
+     * Request the campus list to the server and set the view, as a callback behavior.
+     * @see com.lchpatners.shadal.Server.CampusesLoadingTask CampusesLoadingTask
+     */
+    public void showCampusesFromServer() {
+        new Server.CampusesLoadingTask() {
+            @Override
+            protected void onPostExecute(Void aVoid) {
+                super.onPostExecute(aVoid);
+                campuses = results;
+                Log.d("campuses",campuses.toString());
+                setListView();
+            }
+        }.execute();
+    }
+
+    /**
+     * Set the view of {@link #listView};
+     */
+    public void setListView() {
+        BaseAdapter adapter = new BaseAdapter() {
+            @Override
+            public int getCount() {
+                return campuses.length();
+            }
+
+            @Override
+            public JSONObject getItem(int position) {
+                try {
+                    return campuses.getJSONObject(position);
+                } catch (JSONException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return position;
+            }
+
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                if (convertView == null) {
+                    LayoutInflater inflater = (LayoutInflater)getSystemService(LAYOUT_INFLATER_SERVICE);
+                    convertView = inflater.inflate(R.layout.list_item_campus, parent, false);
+                }
+                TextView textView = (TextView)convertView;
+
+                final JSONObject campus = getItem(position);
+                try {
+                    textView.setText(campus.getString("name_kor_short"));
+                } catch (JSONException e) {
+                    return null;
+                } catch (NullPointerException e) {
+                    return null;
+                }
+                String selected = Preferences.getCampusKoreanShortName(CampusSelectionActivity.this);
+                if (textView.getText().equals(selected)) {
+                    textView.setTextColor(getResources().getColor(R.color.white100));
+                    textView.setBackgroundColor(getResources().getColor(R.color.primary_light));
+                } else {
+                    textView.setTextColor(getResources().getColor(R.color.black87));
+                    textView.setBackgroundColor(getResources().getColor(R.color.white100));
+                }
+                textView.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        Preferences.setCampus(CampusSelectionActivity.this, campus);
+
+                        for (int i = 0; i < listView.getChildCount(); i++) {
+                            View child = listView.getChildAt(i);
+                            child.setBackgroundColor(getResources().getColor(R.color.white100));
+                            ((TextView)child).setTextColor(getResources().getColor(R.color.black87));
+                        }
+                        v.setBackgroundColor(getResources().getColor(R.color.primary_light));
+                        ((TextView)v).setTextColor(getResources().getColor(R.color.white100));
+
+                        if (confirm != null) {
+                            confirm.setAlpha(1.0f);
+                            confirm.setClickable(true);
+                        }
+
+                        Server server = new Server(CampusSelectionActivity.this);
+                        server.sendUuid();
+                    }
+                });
+                return textView;
+            }
+        };
+        listView.setAdapter(adapter);
+    }
+
+    /**
+     * Call {@link #showCampusesFromServer()} if connected to the network
+     * or try again with an {@link android.app.AlertDialog AlertDialog};
+     */
+    public void tryShowingCampusesFromServer() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo != null && networkInfo.isConnected()) {
+            showCampusesFromServer();
+        } else {
+            AlertDialog.Builder builder = new AlertDialog.Builder(this);
+            builder.setMessage(R.string.please_check_connectivity)
+                    .setPositiveButton(R.string.retry, new DialogInterface.OnClickListener() {
+                        public void onClick(DialogInterface dialog, int id) {
+                            tryShowingCampusesFromServer();
+                        }
+                    })
+                    .setNegativeButton(R.string.exit, new DialogInterface.OnClickListener() {
+                        public void onClick(DialogInterface dialog, int id) {
+                            finish();
+                        }
+                    });
+            AlertDialog dialog = builder.create();
+            dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+                @Override
+                public void onCancel(DialogInterface dialog) {
+                    finish();
+                }
+            });
+            dialog.show();
+        }
+    }
+
+    /**
+     * Initialize the database, if the selected campus has none yet,
+     * by calling {@link #tryLoadingFromServer()}, whose import also migrates the
+     * database file of old versions, if any, in the background.
+     * @param hasDatabase If {@link com.lchpatners.shadal.DatabaseHelper#checkDatabase(String)
+     * DatabaseHelper.checkDatabase()} found the campus's database.
+     * @return If the user uses the app for the first time.
+     * @see com.lchpatners.shadal.LegacyMigration LegacyMigration
+     */
+    public boolean initializeDatabase(boolean hasDatabase) {
+        boolean isFirst = hasNoDatabase = !hasDatabase;
+        if (hasNoDatabase) {
+            tryLoadingFromServer();
+        }
+        return isFirst;
+    }
+
+    /**
+     * Get all restaurant data of the selected campus if online. Otherwise, try again.
+     * @see com.lchpatners.shadal.Server#importAll() Server.importAll()
+     */
+    public void tryLoadingFromServer() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo != null && networkInfo.isConnected()) {
+            new Server(this).importAll();
+            hasNoDatabase = false;
+            Toast.makeText(this, getString(R.string.initial_download_guide), Toast.LENGTH_LONG).show();
+        } else {
+            AlertDialog.Builder builder = new AlertDialog.Builder(this);
+            builder.setMessage(R.string.please_check_connectivity)
+                    .setPositiveButton(R.string.retry, new DialogInterface.OnClickListener() {
+                        public void onClick(DialogInterface dialog, int id) {
+                            tryLoadingFromServer();
+                        }
+                    })
+                    .setNegativeButton(R.string.exit, new DialogInterface.OnClickListener() {
+                        public void onClick(DialogInterface dialog, int id) {
+                            finish();
+                        }
+                    });
+            AlertDialog dialog = builder.create();
+            dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+                @Override
+                public void onCancel(DialogInterface dialog) {
+                    finish();
+                }
+            });
+            dialog.show();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A prebuilt campus database, built from a response of /allRestaurants by the
+ * <code>:snapshot</code> tool and bundled as <code>assets/snapshots/&lt;campus&gt;.db.gz</code>,
+ * along with the SHA-256 of the uncompressed file in <code>&lt;campus&gt;.db.gz.sha256</code>.
+ * <br>Installing one takes about as long as copying the file, instead of importing every
+ * restaurant row by row. The copy is checked, then renamed into place, so the campus database
+ * is either the whole snapshot or absent. What changed on the server since the snapshot was
+ * built is fetched afterwards, by category.
+ */
+public class CampusSnapshot {
+
+    /**
+     * Directory of the snapshots in the assets.
+     */
+    public static final String ASSET_DIR = "snapshots";
+    public static final String EXTENSION = ".db.gz";
+    public static final String CHECKSUM_EXTENSION = ".sha256";
+
+    /**
+     * Install the snapshot bundled for a campus as its database, if there is one.
+     * Blocks on the disk, so call it off the main thread.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus, which is also the database's name.
+     * @return If the database was installed. If not, it is left as it was.
+     */
+    public static boolean installFromAssets(Context context, String campus) {
+        String name = ASSET_DIR + "/" + campus + EXTENSION;
+        String sha256;
+        InputStream in = null;
+        try {
+            in = context.getAssets().open(name + CHECKSUM_EXTENSION);
+            sha256 = new String(readFully(in), "UTF-8").trim();
+        } catch (FileNotFoundException e) {
+            // None bundled for this campus.
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            close(in);
+        }
+        try {
+            in = context.getAssets().open(name);
+            return install(context, campus, in, sha256);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Install a snapshot as the database of a campus, replacing it if any. The database must
+     * not be open meanwhile. The time taken is recorded in
+     * {@link com.lchpatners.shadal.Metrics Metrics} as "db.snapshot_install_ms".
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus, which is also the database's name.
+     * @param gzipped The gzipped database, e.g. downloaded.
+     * @param sha256 SHA-256 of the uncompressed database, in hex.
+     * @return If the database was installed. If not, it is left as it was.
+     */
+    public static boolean install(Context context, String campus, InputStream gzipped, String sha256) {
+        long start = Metrics.now();
+        Metrics metrics = Metrics.getInstance();
+        File target = context.getDatabasePath(campus);
+        File temp = new File(target.getPath() + ".snapshot");
+        try {
+            File dir = target.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return false;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            InputStream in = new DigestInputStream(new GZIPInputStream(gzipped), digest);
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                // On the disk before the rename, so a crash never leaves a partial database.
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!toHex(digest.digest()).equalsIgnoreCase(sha256) || !isValid(temp)) {
+                metrics.counter("db.snapshot_rejected").increment();
+                return false;
+            }
+            // A journal left by the replaced database would be rolled back into the new one.
+            new File(target.getPath() + "-journal").delete();
+            if (!temp.renameTo(target)) {
+                return false;
+            }
+            metrics.recordSince("db.snapshot_install_ms", start);
+            return true;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            // Gone already if renamed.
+            temp.delete();
+        }
+    }
+
+    /**
+     * @return If the file is an intact database of {@link com.lchpatners.shadal.CampusSchema#VERSION}.
+     */
+    private static boolean isValid(File file) {
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        try {
+            db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            if (db.getVersion() != CampusSchema.VERSION) {
+                return false;
+            }
+            cursor = db.rawQuery("PRAGMA quick_check;", null);
+            return cursor.moveToFirst() && "ok".equals(cursor.getString(0));
+        } catch (SQLiteException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (db != null) {
+                db.close();
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void close(InputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
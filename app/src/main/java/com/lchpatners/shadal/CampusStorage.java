@@ -0,0 +1,218 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the databases and flyers of the campuses used before within a disk budget.
+ * When last each campus was used is recorded, and once over {@link #BUDGET_BYTES}, the
+ * campuses least recently used are evicted first. Their bookmarks are kept as
+ * {@link com.lchpatners.shadal.SavedBookmarks SavedBookmarks}, and restored by the next import.
+ * The selected campus, and any opened since the app started, are never evicted.
+ * <br>Evictions are counted in {@link com.lchpatners.shadal.Metrics Metrics} as
+ * "storage.campuses_evicted", and the bytes in use recorded as "storage.bytes".
+ */
+public class CampusStorage {
+
+    private static final String TAG = "CampusStorage";
+    /**
+     * A few campuses of the biggest size fit, with their flyers.
+     */
+    public static final long BUDGET_BYTES = 32 * 1024 * 1024;
+    /**
+     * Last use of each campus, in milliseconds since the epoch, by English name.
+     */
+    private static final String PREFS_NAME = "CampusStorage";
+
+    /**
+     * Campuses opened by this process, whose databases may be open still.
+     */
+    private static final Set<String> opened = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * A campus on the disk.
+     */
+    private static class Campus {
+        final String name;
+        final long lastUse;
+        final long bytes;
+
+        Campus(String name, long lastUse, long bytes) {
+            this.name = name;
+            this.lastUse = lastUse;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Record that a campus's database is opened now.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     */
+    public static void touch(Context context, String campus) {
+        if (campus == null) return;
+        opened.add(campus);
+        getSettings(context).edit().putLong(campus, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * {@link #enforceBudget(android.content.Context) Enforce the budget} in the background.
+     * @param context {@link android.content.Context Context}
+     */
+    public static void enforceBudgetInBackground(Context context) {
+        final Context appContext = context.getApplicationContext();
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                enforceBudget(appContext);
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @param name Name of a database of the app.
+     * @return If it is a campus's, which is named after the campus's English name. Journals
+     * and the like go with their database, and the databases of the libraries, e.g. the
+     * analytics', are named like files, as in "google_analytics_v4.db".
+     */
+    private static boolean isCampusDatabase(String name) {
+        return name.indexOf('.') == -1 && !name.endsWith("-journal") && !name.endsWith("-wal")
+                && !name.endsWith("-shm") && !name.equals(DatabaseHelper.LEGACY_DATABASE_NAME);
+    }
+
+    /**
+     * Evict the campuses least recently used until the rest fit in {@link #BUDGET_BYTES}.
+     * Blocks on the disk.
+     * @param context {@link android.content.Context Context}
+     * @return The number of campuses evicted.
+     */
+    public static synchronized int enforceBudget(Context context) {
+        String selected = Preferences.getCampusEnglishName(context);
+        SharedPreferences settings = getSettings(context);
+        List<Campus> evictable = new ArrayList<>();
+        long total = 0;
+        for (String name : context.databaseList()) {
+            if (!isCampusDatabase(name)) continue;
+            long bytes = context.getDatabasePath(name).length() + sizeOf(FlyerCache.dir(context, name));
+            total += bytes;
+            if (!name.equals(selected) && !opened.contains(name)) {
+                // Never recorded: from before uses were recorded, so the oldest.
+                evictable.add(new Campus(name, settings.getLong(name, 0), bytes));
+            }
+        }
+        Collections.sort(evictable, new Comparator<Campus>() {
+            @Override
+            public int compare(Campus a, Campus b) {
+                return a.lastUse < b.lastUse ? -1 : (a.lastUse == b.lastUse ? 0 : 1);
+            }
+        });
+
+        int evicted = 0;
+        for (Campus campus : evictable) {
+            if (total <= BUDGET_BYTES) break;
+            if (evict(context, campus.name)) {
+                total -= campus.bytes;
+                evicted++;
+            }
+        }
+        Metrics.getInstance().counter("storage.campuses_evicted").add(evicted);
+        Metrics.getInstance().histogram("storage.bytes").update(total);
+        return evicted;
+    }
+
+    /**
+     * Evict a campus whose first import was stopped partway, so that it is imported again,
+     * rather than taken as imported, when next selected.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus, whose database must be closed.
+     * @return If it was deleted. It is kept if its bookmarks could not be saved.
+     */
+    public static synchronized boolean evictIncomplete(Context context, String campus) {
+        opened.remove(campus);
+        return evict(context, campus);
+    }
+
+    /**
+     * Delete a campus's database and flyers, keeping its bookmarks aside.
+     * @return If it was deleted. It is kept if its bookmarks could not be saved.
+     */
+    private static boolean evict(Context context, String campus) {
+        try {
+            SavedBookmarks.save(context, campus, readBookmarks(context.getDatabasePath(campus)));
+        } catch (IOException | SQLiteException e) {
+            e.printStackTrace();
+            return false;
+        }
+        context.deleteDatabase(campus);
+        deleteRecursively(FlyerCache.dir(context, campus));
+        getSettings(context).edit().remove(campus).apply();
+        Log.i(TAG, "Evicted " + campus);
+        return true;
+    }
+
+    /**
+     * @return Server-side ids of the bookmarked restaurants in a database which is not open.
+     */
+    private static List<Integer> readBookmarks(File db) {
+        List<Integer> serverIds = new ArrayList<>();
+        SQLiteDatabase database = SQLiteDatabase.openDatabase(db.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+            Cursor cursor = database.rawQuery(String.format(
+                    "SELECT server_id FROM %s WHERE is_favorite = 1;", CampusSchema.RESTAURANTS), null);
+            try {
+                while (cursor.moveToNext()) {
+                    serverIds.add(cursor.getInt(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            database.close();
+        }
+        return serverIds;
+    }
+
+    private static long sizeOf(File file) {
+        if (!file.isDirectory()) {
+            return file.length();
+        }
+        long bytes = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                bytes += sizeOf(child);
+            }
+        }
+        return bytes;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static SharedPreferences getSettings(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, 0);
+    }
+}
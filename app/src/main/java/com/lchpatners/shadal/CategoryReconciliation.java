@@ -0,0 +1,68 @@
+package com.lchpatners.shadal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What {@link com.lchpatners.shadal.DatabaseHelper#updateCategory(org.json.JSONArray, String)
+ * DatabaseHelper.updateCategory()} has to do to bring a category up to date with the server.
+ * Computed in a single pass over each side.
+ */
+public class CategoryReconciliation {
+
+    /**
+     * Restaurants of the category whose update time differs from the server's:
+     * server-side id to the update time on the device.
+     */
+    public final Map<Integer, String> outdated = new LinkedHashMap<>();
+    /**
+     * Restaurants from the server which the category on the device lacks.
+     * They are either new, or in another category on the device.
+     */
+    public final List<JSONObject> unknown = new ArrayList<>();
+    /**
+     * Server-side ids of the restaurants of the category which the server no longer lists.
+     */
+    public final List<Integer> removed = new ArrayList<>();
+
+    private CategoryReconciliation() {
+    }
+
+    /**
+     * @param fromServer The category's restaurants from the server, with at least
+     *                   their "id" and "updated_at".
+     * @param onDevice The category's restaurants on the device: server-side id to update time.
+     * @return What to fetch, insert and delete.
+     * @throws JSONException If a restaurant from the server lacks a field.
+     */
+    public static CategoryReconciliation compute(JSONArray fromServer, Map<Integer, String> onDevice)
+            throws JSONException {
+        CategoryReconciliation result = new CategoryReconciliation();
+        Set<Integer> listed = new HashSet<>();
+        for (int i = 0; i < fromServer.length(); i++) {
+            JSONObject restaurant = fromServer.getJSONObject(i);
+            int serverId = restaurant.getInt("id");
+            listed.add(serverId);
+            String updatedAt = onDevice.get(serverId);
+            if (updatedAt == null && !onDevice.containsKey(serverId)) {
+                result.unknown.add(restaurant);
+            } else if (!restaurant.getString("updated_at").equals(updatedAt)) {
+                result.outdated.put(serverId, updatedAt);
+            }
+        }
+        for (Integer serverId : onDevice.keySet()) {
+            if (!listed.contains(serverId)) {
+                result.removed.add(serverId);
+            }
+        }
+        return result;
+    }
+}
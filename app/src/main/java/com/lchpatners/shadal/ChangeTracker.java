@@ -0,0 +1,106 @@
+package com.lchpatners.shadal;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which tables and rows of the database were written, and re-runs the
+ * {@link com.lchpatners.shadal.LiveQuery LiveQueries} depending on them.
+ * Writes may be recorded on any thread; the affected queries are re-run
+ * on the UI thread, at most once per frame however many writes there were.
+ */
+public class ChangeTracker {
+
+    /**
+     * Roughly a frame at 60 fps.
+     */
+    private static final long FRAME_MILLIS = 16;
+
+    private static final ChangeTracker instance = new ChangeTracker();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Changed keys by table, since the last flush. A <code>null</code> set
+     * means the whole table changed. Guarded by <code>this</code>.
+     */
+    private Map<String, Set<Long>> pending = new HashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * Registered queries. Accessed on the UI thread only.
+     */
+    private final List<LiveQuery<?>> queries = new ArrayList<>();
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            Map<String, Set<Long>> changes;
+            synchronized (ChangeTracker.this) {
+                changes = pending;
+                pending = new HashMap<>();
+                flushScheduled = false;
+            }
+            // Copied, since a re-run query may register or release others.
+            for (LiveQuery<?> query : new ArrayList<>(queries)) {
+                if (query.isAffectedBy(changes)) {
+                    query.run();
+                }
+            }
+        }
+    };
+
+    public static ChangeTracker getInstance() {
+        return instance;
+    }
+
+    private ChangeTracker() {
+    }
+
+    /**
+     * Record that a row changed.
+     * @param table The table's name.
+     * @param key The row's key, i.e. the restaurant's server-side id.
+     */
+    public synchronized void recordChange(String table, long key) {
+        if (!pending.containsKey(table)) {
+            pending.put(table, new HashSet<Long>());
+        }
+        Set<Long> keys = pending.get(table);
+        if (keys != null) {
+            keys.add(key);
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Record that a whole table changed.
+     * @param table The table's name.
+     */
+    public synchronized void recordChange(String table) {
+        pending.put(table, null);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(flush, FRAME_MILLIS);
+        }
+    }
+
+    void register(LiveQuery<?> query) {
+        queries.add(query);
+    }
+
+    void unregister(LiveQuery<?> query) {
+        queries.remove(query);
+    }
+}
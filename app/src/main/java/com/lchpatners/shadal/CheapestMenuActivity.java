@@ -0,0 +1,135 @@
+package com.lchpatners.shadal;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.ActionBarActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.Spinner;
+
+/**
+ * Finds the cheapest menu items under a price, in a category or on the whole campus.
+ * @see com.lchpatners.shadal.DatabaseHelper#getMenusByPrice(String, int, int, PricedMenu, int)
+ * DatabaseHelper.getMenusByPrice()
+ */
+public class CheapestMenuActivity extends ActionBarActivity {
+
+    /**
+     * Menus without a price are stored with 0, and are left out.
+     */
+    private static final int MIN_PRICE = 1;
+    /**
+     * Load the next page when the last item shown is this close to the end.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    /**
+     * {@link com.lchpatners.shadal.PriceListAdapter PriceListAdapter} of the results.
+     */
+    private PriceListAdapter adapter;
+    private Spinner category;
+    private EditText maxPrice;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_cheapest_menu);
+
+        RecyclerView recyclerView = (RecyclerView)findViewById(R.id.price_list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.addItemDecoration(new DividerItemDecoration(this));
+        adapter = new PriceListAdapter(this);
+        recyclerView.setAdapter(adapter);
+        adapter.releaseWith(recyclerView);
+        adapter.setOnItemClickListener(new DiffingAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(Object item) {
+                Restaurant restaurant = ((PricedMenu)item).getRestaurant();
+
+                AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+                helper.sendEvent("UX", "cheapest_menu_clicked", restaurant.getName());
+
+                Intent intent = new Intent(CheapestMenuActivity.this, MenuListActivity.class);
+                intent.putExtra("RESTAURANT", restaurant);
+                intent.putExtra("REFERRER", "CheapestMenuActivity");
+                startActivity(intent);
+            }
+        });
+        recyclerView.setOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition()
+                        >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    adapter.loadNextPage();
+                }
+            }
+        });
+
+        String[] categories = getResources().getStringArray(R.array.categories);
+        String[] choices = new String[categories.length + 1];
+        choices[0] = getString(R.string.all_categories);
+        System.arraycopy(categories, 0, choices, 1, categories.length);
+        ArrayAdapter<String> choiceAdapter = new ArrayAdapter<String>(this,
+                android.R.layout.simple_spinner_item, choices);
+        choiceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        category = (Spinner)findViewById(R.id.category);
+        category.setAdapter(choiceAdapter);
+        category.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                applyRange();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        maxPrice = (EditText)findViewById(R.id.max_price);
+        maxPrice.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                applyRange();
+            }
+        });
+
+        applyRange();
+    }
+
+    /**
+     * Search again with the category and the maximum price chosen.
+     */
+    private void applyRange() {
+        int position = category.getSelectedItemPosition();
+        String chosen = position <= 0 ? null : (String)category.getItemAtPosition(position);
+        int max = Integer.MAX_VALUE;
+        try {
+            max = Integer.parseInt(maxPrice.getText().toString());
+        } catch (NumberFormatException e) {
+            // Empty or too long, so no limit.
+        }
+        adapter.setRange(chosen, MIN_PRICE, max);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+        helper.sendScreen("가격 검색 화면");
+    }
+}
@@ -0,0 +1,84 @@
+package com.lchpatners.shadal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Stable 64-bit hashes of the parts of a restaurant from the server, stored along with it,
+ * so that an update rewrites only the parts which changed.
+ */
+public class ContentHash {
+
+    private long hash = 0xcbf29ce484222325L;
+
+    /**
+     * @param value A string, or <code>null</code>.
+     * @return This, with the value hashed in by 64-bit FNV-1a.
+     */
+    public ContentHash add(String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // Separator, so that ("ab", "c") and ("a", "bc") differ.
+        hash ^= 0xff;
+        hash *= 0x100000001b3L;
+        return this;
+    }
+
+    public long get() {
+        return hash;
+    }
+
+    /**
+     * @param restaurant A restaurant from the server.
+     * @return Hash of the fields of its row, without its menus and flyers.
+     * @throws JSONException If a field is missing.
+     */
+    public static long ofRestaurant(JSONObject restaurant) throws JSONException {
+        return new ContentHash()
+                .add(restaurant.getString("updated_at"))
+                .add(restaurant.getString("name"))
+                .add(restaurant.getString("phone_number"))
+                .add(restaurant.getString("category").trim())
+                .add(restaurant.getString("openingHours"))
+                .add(restaurant.getString("closingHours"))
+                .add(String.valueOf(restaurant.getBoolean("has_flyer")))
+                .add(String.valueOf(restaurant.getBoolean("has_coupon")))
+                .add(String.valueOf(restaurant.getBoolean("is_new")))
+                .add(restaurant.getString("coupon_string"))
+                .get();
+    }
+
+    /**
+     * @param menus Menus of a restaurant from the server.
+     * @return Hash of the menus, in order.
+     * @throws JSONException If a field is missing.
+     */
+    public static long ofMenus(JSONArray menus) throws JSONException {
+        ContentHash hash = new ContentHash().add(String.valueOf(menus.length()));
+        for (int i = 0; i < menus.length(); i++) {
+            JSONObject menu = menus.getJSONObject(i);
+            hash.add(menu.getString("name"))
+                    .add(menu.getString("section"))
+                    .add(String.valueOf(menu.getInt("price")));
+        }
+        return hash.get();
+    }
+
+    /**
+     * @param urls Flyer urls of a restaurant from the server.
+     * @return Hash of the urls, in order.
+     * @throws JSONException If an url is missing.
+     */
+    public static long ofFlyers(JSONArray urls) throws JSONException {
+        ContentHash hash = new ContentHash().add(String.valueOf(urls.length()));
+        for (int i = 0; i < urls.length(); i++) {
+            hash.add(urls.getString(i));
+        }
+        return hash.get();
+    }
+}
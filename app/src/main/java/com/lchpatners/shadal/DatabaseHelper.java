@@ -1,66 +1,103 @@
 package com.lchpatners.shadal;
 
-import android.app.Activity;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Manages the SQLite Database.
+ * Manages the SQLite Database. Every write is recorded to
+ * {@link com.lchpatners.shadal.ChangeTracker ChangeTracker}, so that screens showing
+ * the data observe it through {@link com.lchpatners.shadal.LiveQuery LiveQueries}
+ * instead of being reloaded by hand.
+ * <br>Every query is timed into {@link com.lchpatners.shadal.Metrics Metrics}, and the ones
+ * slower than {@link #SLOW_QUERY_MILLIS} are logged along with their query plans.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     /**
-     * Database version.
+     * Notified of every query run, so tests can check their plans.
      */
-    private static final int VERSION = 18;
+    interface QueryObserver {
+        void onQuery(String sql, String[] args);
+    }
 
+    private static final String TAG = "DatabaseHelper";
+    /**
+     * Database version.
+     */
+    private static final int VERSION = CampusSchema.VERSION;
     /**
-     * The restaurants table's name.
+     * Queries taking this long or longer are logged.
      */
-    private static final String RESTAURANTS = "restaurants";
+    private static final long SLOW_QUERY_MILLIS = 50;
+
+    // The tables, described in CampusSchema.
+    public static final String RESTAURANTS = CampusSchema.RESTAURANTS;
+    public static final String MENUS = CampusSchema.MENUS;
+    public static final String FLYERS = CampusSchema.FLYERS;
+    private static final String CATEGORIES = CampusSchema.CATEGORIES;
+    private static final String SECTIONS = CampusSchema.SECTIONS;
+    private static final String RESTAURANTS_FTS = CampusSchema.RESTAURANTS_FTS;
+    private static final String MENUS_FTS = CampusSchema.MENUS_FTS;
+
     /**
-     * The menu table's name.
+     * Restaurant columns other than the category, kept as they are by the upgrade to version 23.
      */
-    private static final String MENUS = "menus";
+    private static final String KEPT_RESTAURANT_COLUMNS = "id, server_id, name, openingHours, closingHours, " +
+            "phoneNumber, has_flyer, has_coupon, is_new, is_favorite, coupon_string, updated_at, " +
+            "open_minute, close_minute, hours_string";
     /**
-     * The flyer table's name.
+     * Columns of the menu selected along with the restaurant's columns.
+     * @see #menuFromCursor(android.database.Cursor)
      */
-    private static final String FLYERS = "flyers";
-
-    private static final String RESTAURANT_COLUMNS = "(id INTEGER PRIMARY KEY, server_id INT, name TEXT, " +
-            "category TEXT, openingHours TEXT, closingHours TEXT, phoneNumber TEXT, has_flyer INTEGER, " +
-            "has_coupon INTEGER, is_new INTEGER, is_favorite INTEGER, coupon_string TEXT, updated_at TEXT)";
-    private static final String MENU_COLUMNS = "(id INTEGER PRIMARY KEY, menu TEXT, section TEXT, " +
-            "price INT, restaurant_id INT)";
-    private static final String FLYER_COLUMNS = "(id INTEGER PRIMARY KEY, url TEXT, restaurant_id INT)";
+    private static final String ALIASED_MENU_COLUMNS = "m.id AS menu_id, m.menu AS menu_item, " +
+            "m.section_id AS menu_section_id, m.price AS menu_price, m.restaurant_id AS menu_restaurant_id";
 
     public static final String LEGACY_DATABASE_NAME = "Shadal";
     /**
-     * A list of bookmarks from the old version's database.
-     * Each integer value means the server-side id of restaurants.
+     * Server-side ids of the restaurants to be bookmarked as the running import writes them,
+     * from the old version's database or a campus evicted before.
+     * @see com.lchpatners.shadal.SavedBookmarks SavedBookmarks
      */
-    public static ArrayList<Integer> legacyBookmarks = new ArrayList<>();
+    public static final Set<Integer> pendingBookmarks = Collections.synchronizedSet(new HashSet<Integer>());
 
 
     /**
      * The singleton object.
      */
-    private static DatabaseHelper instance;
+    private static volatile DatabaseHelper instance;
+    private static volatile QueryObserver queryObserver;
     /**
      * The campus whose database is currently loaded to be handled..
      */
-    private static String loadedCampus;
+    private static volatile String loadedCampus;
 
     private Context context;
+    /**
+     * In-memory copies of the lookup tables of this campus.
+     */
+    private final LabelTable categories = new LabelTable(CATEGORIES);
+    private final LabelTable sections = new LabelTable(SECTIONS);
+    private boolean opened;
+    private boolean fromSnapshot;
 
     /**
      * If {@link #instance} is null, or {@link #loadedCampus} is different from the
@@ -71,14 +108,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public static DatabaseHelper getInstance(Context context) {
         String selectedCampus = Preferences.getCampusEnglishName(context);
-        if (instance == null || (loadedCampus != null && !loadedCampus.equals(selectedCampus))) {
-            // Thread-safely
-            synchronized (DatabaseHelper.class) {
+        DatabaseHelper helper = instance;
+        if (helper != null && (loadedCampus == null || loadedCampus.equals(selectedCampus))) {
+            return helper;
+        }
+        synchronized (DatabaseHelper.class) {
+            // Checked again, as another thread may have created it meanwhile: two helpers of
+            // the same campus would open two connections, and install its snapshot twice.
+            if (instance == null || (loadedCampus != null && !loadedCampus.equals(selectedCampus))) {
                 loadedCampus = selectedCampus;
                 instance = new DatabaseHelper(context, selectedCampus);
+                // Everything observed so far belongs to the previous campus.
+                ChangeTracker tracker = ChangeTracker.getInstance();
+                tracker.recordChange(RESTAURANTS);
+                tracker.recordChange(MENUS);
+                tracker.recordChange(FLYERS);
+                RestaurantDetailCache.getInstance().invalidateAll();
             }
+            return instance;
         }
-        return instance;
     }
 
     /**
@@ -88,7 +136,46 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     private DatabaseHelper(Context context, String selectedCampus) {
         super(context.getApplicationContext(), selectedCampus, null, VERSION);
-        this.context = context;
+        // The helper outlives any activity.
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        onFirstOpen();
+        return super.getWritableDatabase();
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        onFirstOpen();
+        return super.getReadableDatabase();
+    }
+
+    /**
+     * Before the database is first opened, which is off the main thread, record the use of
+     * the campus to {@link com.lchpatners.shadal.CampusStorage CampusStorage}, and install
+     * its {@link com.lchpatners.shadal.CampusSnapshot CampusSnapshot} if it has no database
+     * yet, rather than create an empty one.
+     */
+    private synchronized void onFirstOpen() {
+        if (opened) return;
+        opened = true;
+        String name = getDatabaseName();
+        if (name == null) return;
+        CampusStorage.touch(context, name);
+        if (!context.getDatabasePath(name).exists()) {
+            fromSnapshot = CampusSnapshot.installFromAssets(context, name);
+        }
+    }
+
+    /**
+     * @return If the database was installed from a {@link com.lchpatners.shadal.CampusSnapshot
+     * CampusSnapshot} when opened, so only what changed since needs to be fetched.
+     */
+    public synchronized boolean isFromSnapshot() {
+        onFirstOpen();
+        return fromSnapshot;
     }
 
     @Override
@@ -96,14 +183,227 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(String.format("DROP TABLE IF EXISTS %s;", RESTAURANTS));
         db.execSQL(String.format("DROP TABLE IF EXISTS %s;", MENUS));
         db.execSQL(String.format("DROP TABLE IF EXISTS %s;", FLYERS));
-        db.execSQL(String.format("CREATE TABLE IF NOT EXISTS %s %s;", RESTAURANTS, RESTAURANT_COLUMNS));
-        db.execSQL(String.format("CREATE TABLE IF NOT EXISTS %s %s;", MENUS, MENU_COLUMNS));
-        db.execSQL(String.format("CREATE TABLE IF NOT EXISTS %s %s;", FLYERS, FLYER_COLUMNS));
+        db.execSQL(String.format("DROP TABLE IF EXISTS %s;", RESTAURANTS_FTS));
+        db.execSQL(String.format("DROP TABLE IF EXISTS %s;", MENUS_FTS));
+        db.execSQL(String.format("DROP TABLE IF EXISTS %s;", CATEGORIES));
+        db.execSQL(String.format("DROP TABLE IF EXISTS %s;", SECTIONS));
+        // Takes effect only before the first table is created, as in SnapshotTool.
+        // Otherwise the first maintenance would rebuild the whole file to turn it on.
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL;");
+        for (String statement : CampusSchema.createStatements()) {
+            db.execSQL(statement);
+        }
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        onCreate(db);
+        if (oldVersion < 18) {
+            onCreate(db);
+            return;
+        }
+        // Keep the bookmarks, and migrate step by step.
+        if (oldVersion < 19) {
+            // Keep the bookmarks, and parse the hours already there.
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN open_minute INTEGER;", RESTAURANTS));
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN close_minute INTEGER;", RESTAURANTS));
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN hours_string TEXT;", RESTAURANTS));
+            Cursor cursor = db.rawQuery(String.format(
+                    "SELECT id, openingHours, closingHours FROM %s;", RESTAURANTS), null);
+            try {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    putHours(values, cursor.getString(1), cursor.getString(2));
+                    db.update(RESTAURANTS, values, "id = " + cursor.getInt(0), null);
+                }
+            } finally {
+                cursor.close();
+            }
+            db.execSQL(CampusSchema.HOURS_INDEX);
+        }
+        if (oldVersion < 20) {
+            db.execSQL(String.format("CREATE VIRTUAL TABLE %s %s;", RESTAURANTS_FTS, CampusSchema.FTS_COLUMNS));
+            db.execSQL(String.format("CREATE VIRTUAL TABLE %s %s;", MENUS_FTS, CampusSchema.FTS_COLUMNS));
+            Cursor cursor = db.rawQuery(String.format("SELECT server_id, name FROM %s;", RESTAURANTS), null);
+            try {
+                while (cursor.moveToNext()) {
+                    indexRestaurant(db, cursor.getInt(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+            cursor = db.rawQuery(String.format("SELECT id, menu FROM %s;", MENUS), null);
+            try {
+                while (cursor.moveToNext()) {
+                    indexMenu(db, cursor.getLong(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        if (oldVersion < 21) {
+            db.execSQL(CampusSchema.PRICE_INDEX);
+            db.execSQL(CampusSchema.SERVER_ID_INDEX);
+        }
+        if (oldVersion < 22) {
+            db.execSQL(CampusSchema.FLYER_RESTAURANT_INDEX);
+        }
+        if (oldVersion < 23) {
+            // Move the category and section labels to lookup tables. Tables are rebuilt, as
+            // columns can't be dropped; ids stay, and so do the full-text indexes on them.
+            db.execSQL(String.format("CREATE TABLE %s %s;", CATEGORIES, LabelTable.COLUMNS));
+            db.execSQL(String.format("CREATE TABLE %s %s;", SECTIONS, LabelTable.COLUMNS));
+            db.execSQL(String.format("INSERT OR IGNORE INTO %s (name) SELECT DISTINCT category FROM %s " +
+                    "WHERE category IS NOT NULL;", CATEGORIES, RESTAURANTS));
+            db.execSQL(String.format("INSERT OR IGNORE INTO %s (name) SELECT DISTINCT section FROM %s " +
+                    "WHERE section IS NOT NULL;", SECTIONS, MENUS));
+
+            db.execSQL(String.format("CREATE TABLE restaurants_new %s;", CampusSchema.RESTAURANT_COLUMNS));
+            db.execSQL(String.format("INSERT INTO restaurants_new (%s, category_id) " +
+                            "SELECT %s, (SELECT c.id FROM %s c WHERE c.name = r.category) FROM %s r;",
+                    KEPT_RESTAURANT_COLUMNS, KEPT_RESTAURANT_COLUMNS, CATEGORIES, RESTAURANTS));
+            db.execSQL(String.format("DROP TABLE %s;", RESTAURANTS));
+            db.execSQL(String.format("ALTER TABLE restaurants_new RENAME TO %s;", RESTAURANTS));
+
+            db.execSQL(String.format("CREATE TABLE menus_new %s;", CampusSchema.MENU_COLUMNS));
+            db.execSQL(String.format("INSERT INTO menus_new (id, menu, section_id, price, restaurant_id) " +
+                            "SELECT m.id, m.menu, (SELECT s.id FROM %s s WHERE s.name = m.section), " +
+                            "m.price, m.restaurant_id FROM %s m;",
+                    SECTIONS, MENUS));
+            db.execSQL(String.format("DROP TABLE %s;", MENUS));
+            db.execSQL(String.format("ALTER TABLE menus_new RENAME TO %s;", MENUS));
+
+            // Dropped along with the old tables.
+            db.execSQL(CampusSchema.HOURS_INDEX);
+            db.execSQL(CampusSchema.PRICE_INDEX);
+            db.execSQL(CampusSchema.SERVER_ID_INDEX);
+            db.execSQL(CampusSchema.CATEGORY_INDEX);
+            db.execSQL(CampusSchema.MENU_RESTAURANT_INDEX);
+        }
+        if (oldVersion == 23) {
+            // Rebuilt with these by the upgrade to 23 otherwise. Null until the next update.
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN row_hash INTEGER;", RESTAURANTS));
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN menus_hash INTEGER;", RESTAURANTS));
+            db.execSQL(String.format("ALTER TABLE %s ADD COLUMN flyers_hash INTEGER;", RESTAURANTS));
+        }
+    }
+
+    /**
+     * Run a query, timing it.
+     * @param db The database.
+     * @param sql The query.
+     * @param args Values of the query's <code>?</code>s, or <code>null</code>.
+     * @return The result, already run.
+     */
+    private static Cursor query(SQLiteDatabase db, String sql, String[] args) {
+        long start = Metrics.now();
+        Cursor cursor = db.rawQuery(sql, args);
+        // rawQuery() only compiles; counting runs the query and fills the first window.
+        cursor.getCount();
+        onQueryDone(db, sql, args, start);
+        return cursor;
+    }
+
+    /**
+     * Run a statement which returns no rows, timing it.
+     * @param db The database.
+     * @param sql The statement.
+     */
+    private static void execute(SQLiteDatabase db, String sql) {
+        long start = Metrics.now();
+        db.execSQL(sql);
+        onQueryDone(db, sql, null, start);
+    }
+
+    private static void onQueryDone(SQLiteDatabase db, String sql, String[] args, long start) {
+        long millis = Metrics.now() - start;
+        Metrics.getInstance().histogram("db.query_ms").update(millis);
+        QueryObserver observer = queryObserver;
+        if (observer != null) {
+            observer.onQuery(sql, args);
+        }
+        if (millis >= SLOW_QUERY_MILLIS) {
+            Metrics.getInstance().counter("db.slow_queries").increment();
+            Log.w(TAG, String.format("Slow query (%d ms): %s\n%s",
+                    millis, sql, TextUtils.join("\n", explain(db, sql, args))));
+        }
+    }
+
+    /**
+     * @param db The database.
+     * @param sql A query or statement.
+     * @param args Values of its <code>?</code>s, or <code>null</code>.
+     * @return The lines of its <code>EXPLAIN QUERY PLAN</code>, e.g.
+     * "SEARCH TABLE menus USING INDEX menus_price (price>? AND price<?)".
+     */
+    static List<String> explain(SQLiteDatabase db, String sql, String[] args) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            int detail = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @param observer Notified of every query from now on, or <code>null</code> to stop.
+     */
+    static void setQueryObserver(QueryObserver observer) {
+        queryObserver = observer;
+    }
+
+    /**
+     * (Re-)index a restaurant's name for {@link #search(String, int) search}.
+     * @param db The writable database.
+     * @param serverId The restaurant's server-side id.
+     * @param name The restaurant's name.
+     */
+    private static void indexRestaurant(SQLiteDatabase db, int serverId, String name) {
+        db.delete(RESTAURANTS_FTS, "docid = " + serverId, null);
+        ContentValues values = new ContentValues();
+        values.put("docid", serverId);
+        values.put("tokens", SearchTokens.suffixes(name));
+        values.put("chosung", SearchTokens.chosungSuffixes(name));
+        db.insert(RESTAURANTS_FTS, null, values);
+    }
+
+    /**
+     * Index a newly inserted menu item for {@link #search(String, int) search}.
+     * @param db The writable database.
+     * @param menuId The menu's id.
+     * @param item The menu item's name.
+     */
+    private static void indexMenu(SQLiteDatabase db, long menuId, String item) {
+        ContentValues values = new ContentValues();
+        values.put("docid", menuId);
+        values.put("tokens", SearchTokens.suffixes(item));
+        values.put("chosung", SearchTokens.chosungSuffixes(item));
+        db.insert(MENUS_FTS, null, values);
+    }
+
+    /**
+     * Put the normalized opening hours along with the raw ones.
+     * @param values Values of a restaurant row.
+     * @param opening Decimal opening hour from the server.
+     * @param closing Decimal closing hour from the server.
+     * @see com.lchpatners.shadal.OpeningHours OpeningHours
+     */
+    private static void putHours(ContentValues values, String opening, String closing) {
+        int[] minutes = OpeningHours.normalize(opening, closing);
+        values.put("openingHours", opening);
+        values.put("closingHours", closing);
+        values.put("open_minute", minutes[0]);
+        values.put("close_minute", minutes[1]);
+        values.put("hours_string", OpeningHours.format(minutes[0], minutes[1]));
     }
 
     /**
@@ -118,103 +418,248 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     /**
      * Insert if new to the table, or otherwise update the existing data.
-     * Data are identified by the server-side id value. And then
-     * reload {@link com.lchpatners.shadal.RestaurantListFragment#latestAdapter latestAdapter}.
-     * @param restaurantJson {@link org.json.JSONObject JSONObject} from {@link com.lchpatners.shadal.Server Server}.
-     */
-    public void updateRestaurant(JSONObject restaurantJson) {
-        updateRestaurant(restaurantJson, null);
-        reloadRestaurantListAdapter(RestaurantListFragment.latestAdapter);
-    }
-
-    /**
-     * Insert if new to the table, or otherwise update the existing data.
-     * Data are identified by the server-side id value. And then
-     * reload the {@link com.lchpatners.shadal.MenuListActivity activity}.
+     * Data are identified by the server-side id value.
+     * <br>A restaurant is written in one transaction, with its menus and flyers,
+     * so it is never seen half-written and the disk is synced once, not per row.
+     * <br>The restaurant's row, its menus and its flyers are each stored with a
+     * {@link com.lchpatners.shadal.ContentHash ContentHash}, and only the parts whose hash
+     * changed are rewritten. The rows written and skipped are counted in
+     * {@link com.lchpatners.shadal.Metrics Metrics} as "sync.*_written" and "sync.*_skipped".
      * @param restaurantJson {@link org.json.JSONObject JSONObject} from {@link com.lchpatners.shadal.Server Server}.
-     * @param activity {@link com.lchpatners.shadal.MenuListActivity MenuListActivity} to reload.
+     * @return If the restaurant was written or found unchanged, rather than rolled back.
      */
-    public void updateRestaurant(JSONObject restaurantJson, final MenuListActivity activity) {
+    public boolean updateRestaurant(JSONObject restaurantJson) {
+        long start = Metrics.now();
+        Metrics metrics = Metrics.getInstance();
+        ChangeTracker tracker = ChangeTracker.getInstance();
+        SQLiteDatabase db = getWritableDatabase();
         Cursor cursor = null;
+        int restaurantServerId = -1;
+        boolean successful = false;
+        boolean written = false;
+        db.beginTransaction();
         try {
-            int restaurantServerId = restaurantJson.getInt("id");
-            SQLiteDatabase db = getWritableDatabase();
-            ContentValues values;
-
-            boolean isLegacyBookmark = legacyBookmarks.contains(restaurantJson.getInt("id"));
-
-            values = new ContentValues();
-            values.put("server_id", restaurantJson.getInt("id"));
-            values.put("updated_at", restaurantJson.getString("updated_at"));
-            values.put("name", restaurantJson.getString("name"));
-            values.put("phoneNumber", restaurantJson.getString("phone_number"));
-            values.put("category", restaurantJson.getString("category").trim());
-            values.put("openingHours", restaurantJson.getString("openingHours"));
-            values.put("closingHours", restaurantJson.getString("closingHours"));
-            values.put("has_flyer", (restaurantJson.getBoolean("has_flyer")) ? 1 : 0);
-            values.put("has_coupon", (restaurantJson.getBoolean("has_coupon")) ? 1 : 0);
-            values.put("is_new", (restaurantJson.getBoolean("is_new")) ? 1 : 0);
-            values.put("is_favorite", isLegacyBookmark ? 1 : 0);
-            values.put("coupon_string", restaurantJson.getString("coupon_string"));
-
-            cursor = db.rawQuery(String.format(
-                    "SELECT * FROM %s WHERE server_id = %d;",
+            restaurantServerId = restaurantJson.getInt("id");
+            JSONArray menus = restaurantJson.getJSONArray("menus");
+            JSONArray urls = restaurantJson.getJSONArray("flyers_url");
+            long rowHash = ContentHash.ofRestaurant(restaurantJson);
+            long menusHash = ContentHash.ofMenus(menus);
+            long flyersHash = ContentHash.ofFlyers(urls);
+            boolean isPendingBookmark = pendingBookmarks.contains(restaurantServerId);
+
+            cursor = query(db, String.format(
+                    "SELECT row_hash, menus_hash, flyers_hash FROM %s WHERE server_id = %d;",
                     RESTAURANTS, restaurantServerId
             ), null);
-            if (cursor != null && cursor.moveToFirst()) {
+            boolean exists = cursor.moveToFirst();
+            // A null hash, from before hashes were stored, never matches.
+            boolean rowChanged = !exists || cursor.isNull(0) || cursor.getLong(0) != rowHash || isPendingBookmark;
+            boolean menusChanged = !exists || cursor.isNull(1) || cursor.getLong(1) != menusHash;
+            boolean flyersChanged = !exists || cursor.isNull(2) || cursor.getLong(2) != flyersHash;
+            cursor.close();
+            cursor = null;
+
+            if (!rowChanged && !menusChanged && !flyersChanged) {
+                metrics.counter("sync.restaurants_skipped").increment();
+                metrics.counter("sync.menu_rows_skipped").add(menus.length());
+                metrics.counter("sync.flyer_rows_skipped").add(urls.length());
+                db.setTransactionSuccessful();
+                successful = true;
+                return true;
+            }
+            written = true;
+
+            ContentValues values = new ContentValues();
+            if (rowChanged) {
+                values.put("server_id", restaurantServerId);
+                values.put("updated_at", restaurantJson.getString("updated_at"));
+                values.put("name", restaurantJson.getString("name"));
+                values.put("phoneNumber", restaurantJson.getString("phone_number"));
+                values.put("category_id", categories.idOf(db, restaurantJson.getString("category").trim()));
+                putHours(values, restaurantJson.getString("openingHours"), restaurantJson.getString("closingHours"));
+                values.put("has_flyer", (restaurantJson.getBoolean("has_flyer")) ? 1 : 0);
+                values.put("has_coupon", (restaurantJson.getBoolean("has_coupon")) ? 1 : 0);
+                values.put("is_new", (restaurantJson.getBoolean("is_new")) ? 1 : 0);
+                values.put("coupon_string", restaurantJson.getString("coupon_string"));
+                values.put("row_hash", rowHash);
+                // An update keeps the user's bookmark.
+                if (!exists || isPendingBookmark) {
+                    values.put("is_favorite", isPendingBookmark ? 1 : 0);
+                }
+            }
+            // Only the hashes of what changed, so an unchanged row is not written again.
+            if (menusChanged) {
+                values.put("menus_hash", menusHash);
+            }
+            if (flyersChanged) {
+                values.put("flyers_hash", flyersHash);
+            }
+            if (exists) {
                 db.update(RESTAURANTS, values, "server_id = ?", new String[]{String.valueOf(restaurantServerId)});
             } else {
                 db.insert(RESTAURANTS, null, values);
-                if (isLegacyBookmark) {
-                    reloadRestaurantListAdapter(BookmarkFragment.latestAdapter);
-                }
+            }
+            if (rowChanged) {
+                indexRestaurant(db, restaurantServerId, restaurantJson.getString("name"));
+                tracker.recordChange(RESTAURANTS, restaurantServerId);
+                metrics.counter("sync.restaurants_written").increment();
+            } else {
+                metrics.counter("sync.restaurants_skipped").increment();
             }
 
-            // Update menus and leaflet urls corresponding to the restaurant
-            db.execSQL(String.format(
-                    "DELETE FROM %s WHERE restaurant_id = %d;",
-                    MENUS, restaurantServerId
-            ));
-            JSONArray menus = restaurantJson.getJSONArray("menus");
-            for (int i = 0; i < menus.length(); i++) {
-                JSONObject menu = menus.getJSONObject(i);
+            // Update menus and leaflet urls corresponding to the restaurant.
+            if (menusChanged) {
+                // The full-text index is looked up by docid one by one, as it would be
+                // scanned whole for "docid IN (...)".
+                cursor = query(db, String.format(
+                        "SELECT id FROM %s WHERE restaurant_id = %d;",
+                        MENUS, restaurantServerId
+                ), null);
+                while (cursor.moveToNext()) {
+                    db.delete(MENUS_FTS, "docid = " + cursor.getLong(0), null);
+                }
+                cursor.close();
+                cursor = null;
+                execute(db, String.format(
+                        "DELETE FROM %s WHERE restaurant_id = %d;",
+                        MENUS, restaurantServerId
+                ));
+                for (int i = 0; i < menus.length(); i++) {
+                    JSONObject menu = menus.getJSONObject(i);
 
-                values = new ContentValues();
-                values.put("menu", menu.getString("name"));
-                values.put("section", menu.getString("section"));
-                values.put("price", menu.getInt("price"));
-                values.put("restaurant_id", restaurantServerId);
+                    values = new ContentValues();
+                    values.put("menu", menu.getString("name"));
+                    values.put("section_id", sections.idOf(db, menu.getString("section")));
+                    values.put("price", menu.getInt("price"));
+                    values.put("restaurant_id", restaurantServerId);
 
-                db.insert(MENUS, null, values);
+                    long menuId = db.insert(MENUS, null, values);
+                    if (menuId != -1) {
+                        indexMenu(db, menuId, menu.getString("name"));
+                    }
+                }
+                tracker.recordChange(MENUS, restaurantServerId);
+                metrics.counter("sync.menu_rows_written").add(menus.length());
+            } else {
+                metrics.counter("sync.menu_rows_skipped").add(menus.length());
             }
 
-            db.execSQL(String.format(
-                    "DELETE FROM %s WHERE restaurant_id = %d;",
-                    FLYERS, restaurantServerId
-            ));
-            JSONArray urls = restaurantJson.getJSONArray("flyers_url");
-            for (int i = 0; i < urls.length(); i++) {
-                String url = urls.getString(i);
-                values = new ContentValues();
-                values.put("url", url);
-                values.put("restaurant_id", restaurantServerId);
-                db.insert(FLYERS, null, values);
+            if (flyersChanged) {
+                execute(db, String.format(
+                        "DELETE FROM %s WHERE restaurant_id = %d;",
+                        FLYERS, restaurantServerId
+                ));
+                for (int i = 0; i < urls.length(); i++) {
+                    values = new ContentValues();
+                    values.put("url", urls.getString(i));
+                    values.put("restaurant_id", restaurantServerId);
+                    db.insert(FLYERS, null, values);
+                }
+                tracker.recordChange(FLYERS, restaurantServerId);
+                metrics.counter("sync.flyer_rows_written").add(urls.length());
+            } else {
+                metrics.counter("sync.flyer_rows_skipped").add(urls.length());
             }
+            db.setTransactionSuccessful();
+            successful = true;
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            reloadMenuListActivity(activity);
+            db.endTransaction();
+            if (!successful) {
+                // Labels added in the transaction were rolled back with it.
+                categories.reset();
+                sections.reset();
+            }
+            // After the last write, even a failed one, so no load in between gets cached.
+            if (restaurantServerId != -1 && (written || !successful)) {
+                RestaurantDetailCache.getInstance().invalidate(restaurantServerId);
+            }
+            metrics.recordSince("db.update_restaurant_ms", start);
+        }
+        return successful;
+    }
+
+    /**
+     * {@link #updateRestaurant(org.json.JSONObject) Update} the restaurants in one transaction,
+     * so the lists observing them show the whole chunk at once, and the disk is synced once.
+     * If any of them fails, none is written.
+     * @param restaurants {@link org.json.JSONObject JSONObjects} from {@link com.lchpatners.shadal.Server Server}.
+     * @return If all of them were committed.
+     */
+    public boolean updateRestaurants(List<JSONObject> restaurants) {
+        long start = Metrics.now();
+        SQLiteDatabase db = getWritableDatabase();
+        boolean successful = true;
+        db.beginTransaction();
+        try {
+            for (JSONObject restaurant : restaurants) {
+                if (!updateRestaurant(restaurant)) {
+                    successful = false;
+                    break;
+                }
+            }
+            if (successful) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            db.endTransaction();
+            if (!successful) {
+                // Labels added by the restaurants written before the failed one were rolled back too.
+                categories.reset();
+                sections.reset();
+                for (JSONObject restaurant : restaurants) {
+                    RestaurantDetailCache.getInstance().invalidate(restaurant.optInt("id", -1));
+                }
+            }
+            Metrics.getInstance().recordSince("db.update_restaurants_ms", start);
+        }
+        return successful;
+    }
+
+    /**
+     * Delete a restaurant along with its menus, flyers and full-text rows, in one transaction.
+     * @param db The writable database.
+     * @param serverId The restaurant's server-side id.
+     */
+    private void deleteRestaurant(SQLiteDatabase db, int serverId) {
+        ChangeTracker tracker = ChangeTracker.getInstance();
+        Cursor cursor = null;
+        db.beginTransaction();
+        try {
+            db.delete(RESTAURANTS, "server_id = ?", new String[]{String.valueOf(serverId)});
+            db.delete(RESTAURANTS_FTS, "docid = " + serverId, null);
+            cursor = query(db, String.format(
+                    "SELECT id FROM %s WHERE restaurant_id = %d;",
+                    MENUS, serverId
+            ), null);
+            while (cursor.moveToNext()) {
+                db.delete(MENUS_FTS, "docid = " + cursor.getLong(0), null);
+            }
+            db.delete(MENUS, "restaurant_id = " + serverId, null);
+            db.delete(FLYERS, "restaurant_id = " + serverId, null);
+            db.setTransactionSuccessful();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            db.endTransaction();
         }
+        tracker.recordChange(RESTAURANTS, serverId);
+        tracker.recordChange(MENUS, serverId);
+        tracker.recordChange(FLYERS, serverId);
+        RestaurantDetailCache.getInstance().invalidate(serverId);
     }
 
     /**
      * Update the category with a {@link org.json.JSONArray JSONArray}. If a single data was
      * already in the device database, check if the device's data is outdated compared to the
      * new data. Outdated, update the {@link com.lchpatners.shadal.Restaurant Restaurant} data
-     * with a {@link com.lchpatners.shadal.Server}.
+     * with a {@link com.lchpatners.shadal.Server}, before this returns. So this blocks on the
+     * network, and is to be called off the main thread.
      * <br><strong>NOTE</strong>: This is because Server API "res_in_category" returns
      * incomplete restaurant data which lacks some fields.
      * Server offering complete data, you could use the JSONObject object
@@ -222,28 +667,41 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * instead of <code>server.updatedRestaurant(...)</code> call.
      * @param restaurants {@link org.json.JSONArray JSONArray} data to update with.
      * @param category A category the restaurants belongs to.
-     * @see com.lchpatners.shadal.Server#updateRestaurant(int, java.lang.String) Server.updateRestaurant(int, String)
+     * @see com.lchpatners.shadal.Server#fetchRestaurant(int, java.lang.String) Server.fetchRestaurant(int, String)
      */
     public void updateCategory(JSONArray restaurants, String category) {
+        long start = Metrics.now();
         SQLiteDatabase db = getWritableDatabase();
         Cursor cursor = null;
         Server server = new Server(context);
         try {
-            for (int i = 0; i < restaurants.length(); i++) {
-                JSONObject restaurant = restaurants.getJSONObject(i);
-                cursor = db.rawQuery(String.format(
-                        "SELECT * FROM %s WHERE server_id = %d;",
+            Map<Integer, String> onDevice = new HashMap<>();
+            cursor = query(db, String.format(
+                    "SELECT server_id, updated_at FROM %s WHERE category_id = %d;",
+                    RESTAURANTS, categories.find(db, category)
+            ), null);
+            while (cursor.moveToNext()) {
+                onDevice.put(cursor.getInt(0), cursor.getString(1));
+            }
+            cursor.close();
+            cursor = null;
+            CategoryReconciliation reconciliation = CategoryReconciliation.compute(restaurants, onDevice);
+
+            // If the existing data is outdated, update from the server.
+            for (Map.Entry<Integer, String> outdated : reconciliation.outdated.entrySet()) {
+                server.fetchRestaurant(outdated.getKey(), outdated.getValue());
+            }
+
+            // Not in this category on the device. If in another one, check if the data is outdated.
+            // Else, the restaurant is a new one, so insert it into the database.
+            for (JSONObject restaurant : reconciliation.unknown) {
+                cursor = query(db, String.format(
+                        "SELECT updated_at FROM %s WHERE server_id = %d;",
                         RESTAURANTS, restaurant.getInt("id")
                 ), null);
-                // If there is an existing data, check if the data is outdated.
-                // Else, or if the restaurant is a new one, insert it into the database.
-                if (cursor != null && cursor.moveToFirst()) {
-                    // If the existing data is outdated, update from the server.
-                    // Else, do nothing.
-                    if (!restaurant.getString("updated_at")
-                            .equals(cursor.getString(cursor.getColumnIndex("updated_at")))) {
-                        server.updateRestaurant(restaurant.getInt("id"),
-                                cursor.getString(cursor.getColumnIndex("updated_at")));
+                if (cursor.moveToFirst()) {
+                    if (!restaurant.getString("updated_at").equals(cursor.getString(0))) {
+                        server.fetchRestaurant(restaurant.getInt("id"), cursor.getString(0));
                     }
                 } else {
                     restaurant.put("category", category);
@@ -256,30 +714,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     restaurant.put("updated_at", "00:00");
                     updateRestaurant(restaurant);
                 }
+                cursor.close();
+                cursor = null;
             }
 
             // Delete restaurants no more available from the server.
-            cursor = db.rawQuery(String.format(
-                    "SELECT * FROM %s WHERE category = '%s';",
-                    RESTAURANTS, category
-            ), null);
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    // I'm making a note here, "Huge Success!"
-                    boolean stillAlive = false;
-                    for (int i = 0; i < restaurants.length(); i++) {
-                        JSONObject restaurant = restaurants.getJSONObject(i);
-                        if (restaurant.getInt("id") == cursor.getInt(cursor.getColumnIndex("server_id"))) {
-                            stillAlive = true;
-                            break;
-                        }
-                    }
-                    if (!stillAlive) {
-                        db.delete(RESTAURANTS, "server_id = ?", new String[]{
-                                String.valueOf(cursor.getInt(cursor.getColumnIndex("server_id")))
-                        });
-                    }
-                } while (cursor.moveToNext());
+            for (int serverId : reconciliation.removed) {
+                deleteRestaurant(db, serverId);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -287,30 +728,47 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            reloadRestaurantListAdapter(RestaurantListFragment.latestAdapter);
+            Metrics.getInstance().recordSince("db.update_category_ms", start);
         }
     }
 
 
     /**
-     * @return Bookmarked restaurants.
+     * @return Bookmarked restaurants, the open ones first in each category.
      */
     public ArrayList<Restaurant> getFavoriteRestaurants() {
+        return getFavoriteRestaurants(OpeningHours.now(), false);
+    }
+
+    /**
+     * @param minute Minute of the day to check if open at.
+     * @param openOnly If only the restaurants open at <code>minute</code> are wanted.
+     * @return Bookmarked restaurants, the open ones first in each category.
+     */
+    public ArrayList<Restaurant> getFavoriteRestaurants(int minute, boolean openOnly) {
         ArrayList<Restaurant> list = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
+        String openAt = OpeningHours.openAtClause(minute);
+        RestaurantDetailCache cache = RestaurantDetailCache.getInstance();
+        int generation = cache.generation();
         try {
             for (String category : CategoryListAdapter.categories) {
-                cursor = db.rawQuery(String.format(
-                        "SELECT * FROM %s WHERE is_favorite = 1 AND category ='%s' ORDER BY has_flyer DESC, name ASC;",
-                        RESTAURANTS, category
+                int categoryId = categories.find(db, category);
+                if (categoryId == -1) continue;
+                if (cursor != null) {
+                    cursor.close();
+                }
+                cursor = query(db, String.format(
+                        "SELECT *, %s AS is_open FROM %s WHERE is_favorite = 1 AND category_id = %d%s " +
+                                "ORDER BY is_open DESC, has_flyer DESC, name ASC;",
+                        openAt, RESTAURANTS, categoryId, openOnly ? " AND " + openAt : ""
                 ), null);
-                if (cursor != null && cursor.moveToFirst()) {
-                    do {
-                        list.add(new Restaurant(cursor));
-                    } while (cursor.moveToNext());
+                while (cursor.moveToNext()) {
+                    list.add(restaurantFromCursor(db, cursor));
                 }
             }
+            cache.putRestaurants(list, generation);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -321,6 +779,22 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return list;
     }
 
+    /**
+     * Bookmark restaurants, e.g. the ones bookmarked in the old version's database.
+     * @param serverIds Server-side ids of the restaurants. Those not in the database are ignored.
+     */
+    public void addFavorites(Collection<Integer> serverIds) {
+        if (serverIds.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("is_favorite", 1);
+        db.update(RESTAURANTS, values, String.format("server_id IN (%s)", TextUtils.join(", ", serverIds)), null);
+        for (int serverId : serverIds) {
+            ChangeTracker.getInstance().recordChange(RESTAURANTS, serverId);
+            RestaurantDetailCache.getInstance().invalidate(serverId);
+        }
+    }
+
     /**
      * Bookmark a restaurant if it wasn't, and do the opposite otherwise.
      * @param restaurantId The restaurant's server-side id.
@@ -333,28 +807,46 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         Restaurant restaurant = getRestaurantFromId(restaurantId);
         values.put("is_favorite", (!restaurant.isFavorite()) ? 1 : 0);
         db.update(RESTAURANTS, values, "id = " + restaurantId, null);
-        reloadRestaurantListAdapter(BookmarkFragment.latestAdapter);
+        ChangeTracker.getInstance().recordChange(RESTAURANTS, restaurant.getServerId());
+        RestaurantDetailCache.getInstance().invalidate(restaurant.getServerId());
         return !restaurant.isFavorite();
     }
 
     /**
      * @param category Category to search by.
-     * @return Restaurants of the category.
+     * @return Restaurants of the category, the open ones first.
      */
     public ArrayList<Restaurant> getRestaurantsByCategory(String category) {
+        return getRestaurantsByCategory(category, OpeningHours.now(), false);
+    }
+
+    /**
+     * @param category Category to search by.
+     * @param minute Minute of the day to check if open at.
+     * @param openOnly If only the restaurants open at <code>minute</code> are wanted.
+     * @return Restaurants of the category, the open ones first.
+     */
+    public ArrayList<Restaurant> getRestaurantsByCategory(String category, int minute, boolean openOnly) {
         SQLiteDatabase db = getReadableDatabase();
         ArrayList<Restaurant> list = new ArrayList<>();
         Cursor cursor = null;
+        String openAt = OpeningHours.openAtClause(minute);
+        RestaurantDetailCache cache = RestaurantDetailCache.getInstance();
+        int generation = cache.generation();
         try {
-            cursor = db.rawQuery(String.format(
-                    "SELECT * FROM %s WHERE category = '%s' ORDER BY has_flyer DESC, name ASC;",
-                    RESTAURANTS, category
+            int categoryId = categories.find(db, category);
+            if (categoryId == -1) {
+                return list;
+            }
+            cursor = query(db, String.format(
+                    "SELECT *, %s AS is_open FROM %s WHERE category_id = %d%s " +
+                            "ORDER BY is_open DESC, has_flyer DESC, name ASC;",
+                    openAt, RESTAURANTS, categoryId, openOnly ? " AND " + openAt : ""
             ), null);
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    list.add(new Restaurant(cursor));
-                } while (cursor.moveToNext());
+            while (cursor.moveToNext()) {
+                list.add(restaurantFromCursor(db, cursor));
             }
+            cache.putRestaurants(list, generation);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -366,43 +858,67 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
+     * Everything shown of a restaurant, from the
+     * {@link com.lchpatners.shadal.RestaurantDetailCache RestaurantDetailCache} if it is there.
+     * Otherwise it is loaded and cached, reusing the restaurant row if a list cached it.
      * @param restaurantServerId The restaurant's server-side id.
-     * @return Menu data of a restaurant.
+     * @return A {@link RestaurantDetail#isComplete() complete} detail,
+     * or <code>null</code> if there is no such restaurant.
+     */
+    public RestaurantDetail getRestaurantDetail(int restaurantServerId) {
+        RestaurantDetailCache cache = RestaurantDetailCache.getInstance();
+        int generation = cache.generation();
+        RestaurantDetail cached = cache.get(restaurantServerId);
+        if (cached != null && cached.isComplete()) {
+            return cached;
+        }
+        Restaurant restaurant = cached != null ? cached.getRestaurant()
+                : getRestaurantFromServerId(restaurantServerId);
+        if (restaurant == null) {
+            return null;
+        }
+        RestaurantDetail detail = new RestaurantDetail(restaurant,
+                getMenusByRestaurantServerId(restaurantServerId),
+                getFlyerUrlsByRestaurantServerId(restaurantServerId));
+        cache.put(detail, generation);
+        return detail;
+    }
+
+    /**
+     * @param restaurantServerId The restaurant's server-side id.
+     * @return Menu data of a restaurant, grouped by section in the order the sections first appear.
      */
     public ArrayList<Menu> getMenusByRestaurantServerId(long restaurantServerId) {
         SQLiteDatabase db = getReadableDatabase();
-        ArrayList<Menu> list = new ArrayList<>();
-        ArrayList<String> sections = new ArrayList<>();
+        // Section id to its menus, in the order from the server.
+        LinkedHashMap<Integer, List<Menu>> bySection = new LinkedHashMap<>();
+        int count = 0;
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(String.format(
-                   "SELECT section FROM %s WHERE restaurant_id = %d;",
+            cursor = query(db, String.format(
+                    "SELECT * FROM %s WHERE restaurant_id = %d ORDER BY id;",
                     MENUS, restaurantServerId
             ), null);
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    String section = cursor.getString(cursor.getColumnIndex("section"));
-                    if (!sections.contains(section)) {
-                        sections.add(section);
-                    }
-                } while (cursor.moveToNext());
-            }
-            for (String section : sections) {
-                cursor = db.rawQuery(String.format(
-                        "SELECT * FROM %s WHERE restaurant_id = %d AND section = '%s';",
-                        MENUS, restaurantServerId, section
-                ), null);
-                if (cursor != null && cursor.moveToFirst()) {
-                    do {
-                        Menu menu = new Menu();
-                        menu.setId(cursor.getInt((cursor.getColumnIndex("id"))));
-                        menu.setItem((cursor.getString(cursor.getColumnIndex("menu"))));
-                        menu.setSection(cursor.getString(cursor.getColumnIndex("section")));
-                        menu.setPrice(cursor.getInt(cursor.getColumnIndex("price")));
-                        menu.setRestaurantId(cursor.getInt(cursor.getColumnIndex("restaurant_id")));
-                        list.add(menu);
-                    } while (cursor.moveToNext());
+            int id = cursor.getColumnIndex("id");
+            int item = cursor.getColumnIndex("menu");
+            int section = cursor.getColumnIndex("section_id");
+            int price = cursor.getColumnIndex("price");
+            int restaurant = cursor.getColumnIndex("restaurant_id");
+            while (cursor.moveToNext()) {
+                Menu menu = new Menu();
+                menu.setId(cursor.getInt(id));
+                menu.setItem(cursor.getString(item));
+                menu.setSectionId(cursor.getInt(section));
+                menu.setSection(sections.nameOf(db, menu.getSectionId()));
+                menu.setPrice(cursor.getInt(price));
+                menu.setRestaurantId(cursor.getInt(restaurant));
+                List<Menu> menus = bySection.get(menu.getSectionId());
+                if (menus == null) {
+                    menus = new ArrayList<>();
+                    bySection.put(menu.getSectionId(), menus);
                 }
+                menus.add(menu);
+                count++;
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -411,6 +927,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 cursor.close();
             }
         }
+        ArrayList<Menu> list = new ArrayList<>(count);
+        for (List<Menu> menus : bySection.values()) {
+            list.addAll(menus);
+        }
         return list;
     }
 
@@ -423,7 +943,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         ArrayList<String> list = new ArrayList<>();
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(String.format(
+            cursor = query(db, String.format(
                     "SELECT * FROM %s WHERE restaurant_id = %d;",
                     FLYERS, restaurantServerId
             ), null);
@@ -442,6 +962,207 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return list;
     }
 
+    /**
+     * Search restaurants by their names and menu items, through the full-text indexes.
+     * Every word of the query must be a prefix of a word, or of the middle of a word, e.g.
+     * "짬뽕" finds "해물짬뽕". A query of initial consonants only, e.g. "ㅉㅃ", matches
+     * the initial consonants of the names.
+     * @param query Query as the user typed it.
+     * @param limit The maximum number of results.
+     * @return Restaurants found, the best matches first.
+     * @see com.lchpatners.shadal.SearchTokens SearchTokens
+     */
+    public ArrayList<SearchResult> search(String query, int limit) {
+        ArrayList<SearchResult> results = new ArrayList<>();
+        String column = SearchTokens.isChosungQuery(query) ? "chosung" : "tokens";
+        String match = SearchTokens.matchExpression(column, query);
+        if (match == null) {
+            return results;
+        }
+        String prefix = SearchTokens.isChosungQuery(query) ? null : query.trim().toLowerCase();
+        ArrayList<String> args = new ArrayList<>();
+        String nameScore = String.valueOf(SearchResult.NAME_MATCH);
+        if (prefix != null) {
+            // LIKE ignores the case of ASCII letters only, as toLowerCase() leaves Hangul alone.
+            nameScore = String.format("CASE WHEN r.name LIKE ? ESCAPE '\\' THEN %d ELSE %d END",
+                    SearchResult.NAME_PREFIX_MATCH, SearchResult.NAME_MATCH);
+            args.add(prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        args.add(match);
+        args.add(match);
+        // Server-side id to the result, best first. Only the kept restaurants are ever loaded.
+        LinkedHashMap<Integer, SearchResult> found = new LinkedHashMap<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            // Matches are counted and ranked by SQLite, so short queries, which match much of
+            // the menu, cost a row per kept restaurant rather than a row per matching item.
+            // CROSS JOINs keep the full-text indexes as the outer loops, instead of scanning tables.
+            cursor = query(db, String.format(
+                    "SELECT r.server_id, MAX(c.score) AS score, SUM(c.matches) AS matches FROM (" +
+                            "SELECT r.server_id AS id, %s AS score, 0 AS matches " +
+                            "FROM %s CROSS JOIN %s r ON r.server_id = %s.docid WHERE %s MATCH ? " +
+                            "UNION ALL " +
+                            "SELECT m.restaurant_id, %d, COUNT(*) " +
+                            "FROM %s CROSS JOIN %s m ON m.id = %s.docid WHERE %s MATCH ? GROUP BY m.restaurant_id" +
+                            ") c CROSS JOIN %s r ON r.server_id = c.id " +
+                            "GROUP BY r.server_id ORDER BY score DESC, matches DESC, r.name ASC LIMIT %d;",
+                    nameScore, RESTAURANTS_FTS, RESTAURANTS, RESTAURANTS_FTS, RESTAURANTS_FTS,
+                    SearchResult.MENU_MATCH, MENUS_FTS, MENUS, MENUS_FTS, MENUS_FTS, RESTAURANTS, limit
+            ), args.toArray(new String[args.size()]));
+            LinkedHashMap<Integer, int[]> ranked = new LinkedHashMap<>();
+            ArrayList<Integer> menuMatched = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                ranked.put(cursor.getInt(0), new int[]{cursor.getInt(1), cursor.getInt(2)});
+                if (cursor.getInt(2) > 0) {
+                    menuMatched.add(cursor.getInt(0));
+                }
+            }
+            cursor.close();
+            if (ranked.isEmpty()) {
+                return results;
+            }
+
+            HashMap<Integer, Restaurant> restaurants = new HashMap<>();
+            cursor = query(db, String.format("SELECT * FROM %s WHERE server_id IN (%s);",
+                    RESTAURANTS, TextUtils.join(", ", ranked.keySet())), null);
+            while (cursor.moveToNext()) {
+                Restaurant restaurant = restaurantFromCursor(db, cursor);
+                restaurants.put(restaurant.getServerId(), restaurant);
+            }
+            cursor.close();
+            for (Map.Entry<Integer, int[]> entry : ranked.entrySet()) {
+                Restaurant restaurant = restaurants.get(entry.getKey());
+                if (restaurant != null) {
+                    found.put(entry.getKey(),
+                            new SearchResult(restaurant, entry.getValue()[0], entry.getValue()[1]));
+                }
+            }
+
+            if (!menuMatched.isEmpty()) {
+                cursor = query(db, String.format(
+                        "SELECT %s FROM %s CROSS JOIN %s m ON m.id = %s.docid " +
+                                "WHERE %s MATCH ? AND m.restaurant_id IN (%s) ORDER BY m.price ASC;",
+                        ALIASED_MENU_COLUMNS, MENUS_FTS, MENUS, MENUS_FTS, MENUS_FTS,
+                        TextUtils.join(", ", menuMatched)
+                ), new String[]{match});
+                while (cursor.moveToNext()) {
+                    SearchResult result = found.get(cursor.getInt(cursor.getColumnIndex("menu_restaurant_id")));
+                    if (result != null && result.getMenu() == null) {
+                        result.setMenu(menuFromCursor(db, cursor));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        results.addAll(found.values());
+        return results;
+    }
+
+    /**
+     * List menu items in a price range, cheapest first, a page at a time.
+     * Pages are continued from the last item of the previous page rather than skipped
+     * over by an offset, so every page is a range scan on the price index.
+     * @param category Category to search in, or <code>null</code> for the whole campus.
+     * @param minPrice The minimum price, inclusive.
+     * @param maxPrice The maximum price, inclusive.
+     * @param after The last item of the previous page, or <code>null</code> for the first page.
+     * @param pageSize The maximum number of items.
+     * @return Menu items with their restaurants, by price and then by id.
+     */
+    public ArrayList<PricedMenu> getMenusByPrice(String category, int minPrice, int maxPrice,
+                                                 PricedMenu after, int pageSize) {
+        ArrayList<PricedMenu> list = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        int fromPrice = minPrice;
+        int afterId = -1;
+        int categoryId = category == null ? -1 : categories.find(db, category);
+        if (category != null && categoryId == -1) {
+            return list;
+        }
+        if (after != null) {
+            fromPrice = Math.max(minPrice, after.getMenu().getPrice());
+            afterId = after.getMenu().getId();
+        }
+        try {
+            // CROSS JOIN keeps menus as the outer loop, walking the price index in order.
+            cursor = query(db, String.format(
+                    "SELECT %s, r.* FROM %s m CROSS JOIN %s r ON r.server_id = m.restaurant_id " +
+                            "WHERE m.price >= %d AND m.price <= %d AND (m.price > %d OR m.id > %d)%s " +
+                            "ORDER BY m.price ASC, m.id ASC LIMIT %d;",
+                    ALIASED_MENU_COLUMNS, MENUS, RESTAURANTS,
+                    fromPrice, maxPrice, fromPrice, afterId,
+                    category == null ? "" : String.format(" AND r.category_id = %d", categoryId),
+                    pageSize
+            ), null);
+            while (cursor.moveToNext()) {
+                list.add(new PricedMenu(menuFromCursor(db, cursor), restaurantFromCursor(db, cursor)));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @param db The database read from.
+     * @param cursor {@link android.database.Cursor Cursor} selecting {@link #ALIASED_MENU_COLUMNS}.
+     * @return The menu of the current row.
+     */
+    private Menu menuFromCursor(SQLiteDatabase db, Cursor cursor) {
+        Menu menu = new Menu();
+        menu.setId(cursor.getInt(cursor.getColumnIndex("menu_id")));
+        menu.setItem(cursor.getString(cursor.getColumnIndex("menu_item")));
+        menu.setSectionId(cursor.getInt(cursor.getColumnIndex("menu_section_id")));
+        menu.setSection(sections.nameOf(db, menu.getSectionId()));
+        menu.setPrice(cursor.getInt(cursor.getColumnIndex("menu_price")));
+        menu.setRestaurantId(cursor.getInt(cursor.getColumnIndex("menu_restaurant_id")));
+        return menu;
+    }
+
+    /**
+     * @param db The database read from.
+     * @param cursor {@link android.database.Cursor Cursor} selecting the restaurant's columns.
+     * @return The restaurant of the current row, with its category's shared label.
+     */
+    private Restaurant restaurantFromCursor(SQLiteDatabase db, Cursor cursor) {
+        return new Restaurant(cursor, categories.nameOf(db, cursor.getInt(cursor.getColumnIndex("category_id"))));
+    }
+
+    /**
+     * Load every restaurant into a {@link com.lchpatners.shadal.CampusCatalog CampusCatalog}.
+     * @param previous The catalog the new one replaces, or <code>null</code>.
+     * @return The catalog, or <code>null</code> if it could not be loaded.
+     */
+    public CampusCatalog loadCatalog(CampusCatalog previous) {
+        SQLiteDatabase db = getReadableDatabase();
+        int generation = RestaurantDetailCache.getInstance().generation();
+        Cursor cursor = null;
+        try {
+            cursor = query(db, String.format("SELECT * FROM %s;", RESTAURANTS), null);
+            return new CampusCatalog(getDatabaseName(), db, cursor, categories,
+                    context.getResources().getStringArray(R.array.categories), previous, generation);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
     /**
      * A WILD RESTAURANT APPEARS!
      * @return A randomly selected restaurant.
@@ -451,12 +1172,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         Cursor cursor = null;
         Restaurant restaurant = null;
         try {
-            cursor = db.rawQuery(String.format(
+            cursor = query(db, String.format(
                     "SELECT * FROM %s ORDER BY RANDOM() LIMIT 1;",
                     RESTAURANTS
             ), null);
             if (cursor != null && cursor.moveToFirst()) {
-                restaurant = new Restaurant(cursor);
+                restaurant = restaurantFromCursor(db, cursor);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -469,20 +1190,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * @param id The restaurant's server-side id.
-     * @return A restaurant with the <code>id</code>.
+     * @param serverId The restaurant's server-side id.
+     * @return A restaurant with the <code>serverId</code>.
      */
-    public Restaurant getRestaurantFromId(long id) {
+    public Restaurant getRestaurantFromServerId(int serverId) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
         Restaurant restaurant = null;
         try {
-            cursor = db.rawQuery(String.format(
-                    "SELECT * FROM %s WHERE id = %d;",
-                    RESTAURANTS, id
+            cursor = query(db, String.format(
+                    "SELECT * FROM %s WHERE server_id = %d;",
+                    RESTAURANTS, serverId
             ), null);
             if (cursor != null && cursor.moveToFirst()) {
-                restaurant = new Restaurant(cursor);
+                restaurant = restaurantFromCursor(db, cursor);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -495,33 +1216,29 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * Reload a {@link com.lchpatners.shadal.RestaurantListAdapter adapter}.
-     * @param adapter An adapter to be reloaded.
-     */
-    public void reloadRestaurantListAdapter(final RestaurantListAdapter adapter) {
-        if (adapter != null) {
-            ((Activity)context).runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    adapter.reloadData();
-                }
-            });
-        }
-    }
-
-    /**
-     * Reload a {@link com.lchpatners.shadal.MenuListActivity activity}.
-     * @param activity An activity to be reloaded.
+     * @param id The restaurant's server-side id.
+     * @return A restaurant with the <code>id</code>.
      */
-    public void reloadMenuListActivity(final MenuListActivity activity) {
-        if (activity != null) {
-            ((Activity)context).runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    activity.setView();
-                }
-            });
+    public Restaurant getRestaurantFromId(long id) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        Restaurant restaurant = null;
+        try {
+            cursor = query(db, String.format(
+                    "SELECT * FROM %s WHERE id = %d;",
+                    RESTAURANTS, id
+            ), null);
+            if (cursor != null && cursor.moveToFirst()) {
+                restaurant = restaurantFromCursor(db, cursor);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
         }
+        return restaurant;
     }
 
 }
@@ -0,0 +1,188 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the campus database from growing: deletes the menus, flyers and full-text rows
+ * left behind by deleted restaurants, and gives the freed pages back to the file system
+ * with incremental vacuum. Runs at most once per {@link #INTERVAL_MILLIS}, when the user
+ * leaves the app, along with the {@link com.lchpatners.shadal.CampusStorage CampusStorage} budget.
+ * <br>The size of the file and the share of its pages which are free are recorded in
+ * {@link com.lchpatners.shadal.Metrics Metrics} before and after, as "db.maintenance.*".
+ */
+public class DatabaseMaintenance {
+
+    private static final String TAG = "DatabaseMaintenance";
+    public static final long INTERVAL_MILLIS = 24 * 60 * 60 * 1000;
+    /**
+     * Pages freed per step of incremental vacuum, so writers wait for a short while at most.
+     */
+    private static final int PAGES_PER_STEP = 64;
+    /**
+     * <code>PRAGMA auto_vacuum</code> value of incremental vacuum.
+     */
+    private static final int INCREMENTAL = 2;
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The size and free space of a database file.
+     */
+    private static class Stats {
+        final long pageSize;
+        final long pages;
+        final long freePages;
+
+        Stats(SQLiteDatabase db) {
+            pageSize = pragma(db, "page_size");
+            pages = pragma(db, "page_count");
+            freePages = pragma(db, "freelist_count");
+        }
+
+        long bytes() {
+            return pageSize * pages;
+        }
+
+        long freePercent() {
+            return pages == 0 ? 0 : freePages * 100 / pages;
+        }
+    }
+
+    /**
+     * Run in the background if it is due, and no import or other run is in progress.
+     * @param context {@link android.content.Context Context}
+     */
+    public static void runIfDue(Context context) {
+        final Context appContext = context.getApplicationContext();
+        if (Server.isImporting()) return;
+        if (System.currentTimeMillis() - Preferences.getLastMaintenance(appContext) < INTERVAL_MILLIS) return;
+        if (Preferences.getCampusEnglishName(appContext) == null) return;
+        if (!running.compareAndSet(false, true)) return;
+        // Queued behind the update tasks, which write the same database.
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                try {
+                    run(DatabaseHelper.getInstance(appContext).getWritableDatabase());
+                    CampusStorage.enforceBudget(appContext);
+                    Preferences.setLastMaintenance(appContext, System.currentTimeMillis());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    running.set(false);
+                }
+                return null;
+            }
+        }.execute();
+    }
+
+    /**
+     * Delete the orphans and compact the database, on this thread.
+     * @param db The writable database.
+     */
+    public static void run(SQLiteDatabase db) {
+        long start = Metrics.now();
+        Metrics metrics = Metrics.getInstance();
+        Stats before = new Stats(db);
+
+        int orphans = deleteOrphans(db);
+        if (pragma(db, "auto_vacuum") != INCREMENTAL) {
+            // Only takes effect on a rebuild, which is done once. The freed pages go with it.
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL;");
+            db.execSQL("VACUUM;");
+        } else {
+            long free;
+            while ((free = pragma(db, "freelist_count")) > 0) {
+                incrementalVacuum(db, PAGES_PER_STEP);
+                if (pragma(db, "freelist_count") >= free) break;
+            }
+        }
+
+        Stats after = new Stats(db);
+        metrics.counter("db.maintenance.orphan_rows_deleted").add(orphans);
+        metrics.histogram("db.maintenance.bytes_before").update(before.bytes());
+        metrics.histogram("db.maintenance.bytes_after").update(after.bytes());
+        metrics.histogram("db.maintenance.free_pages_percent_before").update(before.freePercent());
+        metrics.histogram("db.maintenance.free_pages_percent_after").update(after.freePercent());
+        metrics.recordSince("db.maintenance.run_ms", start);
+        Log.i(TAG, String.format("%d orphan rows deleted; %d bytes (%d%% free) to %d bytes (%d%% free)",
+                orphans, before.bytes(), before.freePercent(), after.bytes(), after.freePercent()));
+    }
+
+    /**
+     * Delete the menus and flyers of restaurants no longer in the database, and the
+     * full-text rows of menus and restaurants no longer in it.
+     * @return The number of rows deleted.
+     */
+    static int deleteOrphans(SQLiteDatabase db) {
+        int deleted = 0;
+        String gone = String.format("restaurant_id NOT IN (SELECT server_id FROM %s)", CampusSchema.RESTAURANTS);
+        db.beginTransaction();
+        try {
+            deleted += db.delete(CampusSchema.MENUS, gone, null);
+            deleted += db.delete(CampusSchema.FLYERS, gone, null);
+            deleted += deleteDocs(db, CampusSchema.MENUS_FTS, String.format(
+                    "SELECT docid FROM %s WHERE docid NOT IN (SELECT id FROM %s);",
+                    CampusSchema.MENUS_FTS, CampusSchema.MENUS));
+            deleted += deleteDocs(db, CampusSchema.RESTAURANTS_FTS, String.format(
+                    "SELECT docid FROM %s WHERE docid NOT IN (SELECT server_id FROM %s);",
+                    CampusSchema.RESTAURANTS_FTS, CampusSchema.RESTAURANTS));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete full-text rows one by one, as "docid IN (...)" would scan the index whole.
+     * @param sql Selects the docids to delete.
+     */
+    private static int deleteDocs(SQLiteDatabase db, String table, String sql) {
+        List<Long> docids = new ArrayList<>();
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            while (cursor.moveToNext()) {
+                docids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        for (long docid : docids) {
+            db.delete(table, "docid = " + docid, null);
+        }
+        return docids.size();
+    }
+
+    /**
+     * Free up to <code>pages</code> pages. The pragma returns a row per page freed, which
+     * execSQL refuses, and only frees the pages as the rows are stepped through.
+     */
+    private static void incrementalVacuum(SQLiteDatabase db, int pages) {
+        Cursor cursor = db.rawQuery(String.format("PRAGMA incremental_vacuum(%d);", pages), null);
+        try {
+            while (cursor.moveToNext()) {
+                // Each step frees a page.
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long pragma(SQLiteDatabase db, String name) {
+        Cursor cursor = db.rawQuery(String.format("PRAGMA %s;", name), null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.lchpatners.shadal;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.Adapter RecyclerView.Adapter} whose
+ * {@link com.lchpatners.shadal.Row Rows} are replaced by whole snapshots. Snapshots are
+ * loaded by a {@link com.lchpatners.shadal.LiveQuery LiveQuery}, which loads again whenever
+ * the data it reads changes, and each one is diffed against the previous one on a
+ * background thread, so that only the rows which actually changed are bound again.
+ * @param <VH> Type of the {@link android.support.v7.widget.RecyclerView.ViewHolder ViewHolder}.
+ */
+public abstract class DiffingAdapter<VH extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<VH> implements ListDiff.ItemCallback<Row> {
+
+    /**
+     * Listens to clicks on rows.
+     */
+    public interface OnItemClickListener {
+        /**
+         * @param item {@link com.lchpatners.shadal.Row#value Value} of the clicked row.
+         */
+        void onItemClick(Object item);
+    }
+
+    /**
+     * A single thread, so that diffs are applied in the order they were submitted.
+     */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final Row[] EMPTY = new Row[0];
+
+    /**
+     * Rows currently shown. Accessed on the UI thread only.
+     */
+    protected Row[] rows = EMPTY;
+    /**
+     * The lastly submitted rows, against which the next submission is diffed.
+     */
+    private Row[] submitted = rows;
+    /**
+     * If any submission was applied yet.
+     */
+    private boolean loaded;
+
+    private OnItemClickListener onItemClickListener;
+    /**
+     * Run once the first submission is applied, or <code>null</code>.
+     */
+    private Runnable onFirstLoad;
+    /**
+     * Loads the snapshots off the UI thread.
+     */
+    private LiveQuery<?> query;
+    private boolean released;
+    /**
+     * {@link com.lchpatners.shadal.AsyncLoader.Callback Callback} of {@link #query},
+     * which {@link #submit(Row[]) submits} the loaded rows.
+     */
+    protected final AsyncLoader.Callback<Row[]> submitter = new AsyncLoader.Callback<Row[]>() {
+        @Override
+        public void onLoaded(Row[] result) {
+            submit(result);
+        }
+    };
+
+    public DiffingAdapter() {
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show new rows. Must be called on the UI thread.
+     * @param newRows The new rows. Must not be modified afterwards.
+     */
+    public void submit(final Row[] newRows) {
+        final Row[] old = submitted;
+        submitted = newRows;
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<ListDiff.Op> ops = ListDiff.compute(
+                        Arrays.asList(old), Arrays.asList(newRows), DiffingAdapter.this);
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        rows = newRows;
+                        if (!loaded && ops.isEmpty()) {
+                            // Let observers know that the empty list is final, not loading.
+                            notifyDataSetChanged();
+                        } else {
+                            dispatch(ops);
+                        }
+                        if (!loaded && onFirstLoad != null) {
+                            onFirstLoad.run();
+                            onFirstLoad = null;
+                        }
+                        loaded = true;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Notify the observers of the operations.
+     * @param ops Operations from {@link ListDiff#compute(java.util.List, java.util.List, ListDiff.ItemCallback)}.
+     */
+    private void dispatch(List<ListDiff.Op> ops) {
+        for (ListDiff.Op op : ops) {
+            switch (op.type) {
+                case ListDiff.Op.INSERT:
+                    notifyItemRangeInserted(op.position, op.extra);
+                    break;
+                case ListDiff.Op.REMOVE:
+                    notifyItemRangeRemoved(op.position, op.extra);
+                    break;
+                case ListDiff.Op.MOVE:
+                    notifyItemMoved(op.position, op.extra);
+                    break;
+                case ListDiff.Op.CHANGE:
+                    notifyItemChanged(op.position);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Start observing a new query, replacing the previous one.
+     * @param newQuery A {@link com.lchpatners.shadal.LiveQuery LiveQuery} delivering to
+     * {@link #submitter}, or to a callback which {@link #submit(Row[]) submits} in the end.
+     */
+    protected void observe(LiveQuery<?> newQuery) {
+        if (query != null) {
+            query.release();
+        }
+        query = newQuery;
+        if (released) {
+            query.release();
+        } else {
+            query.start();
+        }
+    }
+
+    /**
+     * Stop loading for good.
+     */
+    public void release() {
+        released = true;
+        if (query != null) {
+            query.release();
+        }
+    }
+
+    /**
+     * {@link #release() Release} when the view showing this adapter is detached from its
+     * window, as a Fragment's view is when destroyed.
+     * @param view The view showing this adapter.
+     * @see com.lchpatners.shadal.LiveQuery#releaseWith(android.view.View) LiveQuery.releaseWith(View)
+     */
+    public void releaseWith(View view) {
+        view.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                release();
+                v.removeOnAttachStateChangeListener(this);
+            }
+        });
+    }
+
+    /**
+     * Run something once the first rows are shown, e.g. to measure how long they took.
+     * Must be called on the UI thread.
+     * @param runnable Run on the UI thread, right after the first submission is applied,
+     * or right away if it already was.
+     */
+    public void runOnFirstLoad(Runnable runnable) {
+        if (loaded) {
+            runnable.run();
+        } else {
+            onFirstLoad = runnable;
+        }
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        onItemClickListener = listener;
+    }
+
+    /**
+     * Make a click on the holder's view call the {@link OnItemClickListener}.
+     * @param holder A newly created {@link android.support.v7.widget.RecyclerView.ViewHolder ViewHolder}.
+     */
+    protected void bindClick(final VH holder) {
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                if (onItemClickListener != null && position != RecyclerView.NO_POSITION) {
+                    onItemClickListener.onItemClick(rows[position].value);
+                }
+            }
+        });
+    }
+
+    public Object getItem(int position) {
+        return rows[position].value;
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.length;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows[position].viewType;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return rows[position].id;
+    }
+
+    @Override
+    public final long getStableId(Row row) {
+        return row.id;
+    }
+}
@@ -0,0 +1,45 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Draws the theme's list divider between rows of a vertical
+ * {@link android.support.v7.widget.RecyclerView RecyclerView}, like a
+ * {@link android.widget.ListView ListView} does.
+ */
+public class DividerItemDecoration extends RecyclerView.ItemDecoration {
+
+    private Drawable divider;
+
+    public DividerItemDecoration(Context context) {
+        TypedArray attributes = context.obtainStyledAttributes(new int[]{android.R.attr.listDivider});
+        divider = attributes.getDrawable(0);
+        attributes.recycle();
+    }
+
+    @Override
+    public void onDraw(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+        if (divider == null) return;
+        int left = parent.getPaddingLeft();
+        int right = parent.getWidth() - parent.getPaddingRight();
+        // No divider after the last row.
+        for (int i = 0; i < parent.getChildCount() - 1; i++) {
+            View child = parent.getChildAt(i);
+            RecyclerView.LayoutParams params = (RecyclerView.LayoutParams)child.getLayoutParams();
+            int top = child.getBottom() + params.bottomMargin;
+            divider.setBounds(left, top, right, top + divider.getIntrinsicHeight());
+            divider.draw(canvas);
+        }
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        outRect.set(0, 0, 0, divider == null ? 0 : divider.getIntrinsicHeight());
+    }
+}
@@ -0,0 +1,97 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Flyer images kept on the disk, in a directory per campus, so a flyer is downloaded once.
+ * {@link com.lchpatners.shadal.CampusStorage CampusStorage} deletes the directory of a campus
+ * along with its database.
+ */
+public class FlyerCache {
+
+    private static final String DIR = "flyers";
+
+    /**
+     * Open a flyer, downloading it first if it is not cached. Blocks on the network.
+     * @param context {@link android.content.Context Context}
+     * @param path Path of the flyer on the server, as stored in the database.
+     * @return The image.
+     * @throws IOException If it could not be downloaded.
+     */
+    public static InputStream open(Context context, String path) throws IOException {
+        String url = Server.getBaseUrl() + path;
+        // Named after a hash of the whole url, as paths differing only in punctuation are other flyers.
+        File file = new File(dir(context, Preferences.getCampusEnglishName(context)),
+                Long.toHexString(new ContentHash().add(url).get()));
+        if (!file.exists()) {
+            download(url, file);
+        }
+        return new FileInputStream(file);
+    }
+
+    /**
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     * @return The directory of the campus's flyers, which may not exist.
+     */
+    public static File dir(Context context, String campus) {
+        return new File(new File(context.getCacheDir(), DIR), campus);
+    }
+
+    private static void download(String url, File file) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Downloaded aside and renamed, so a failed download is never taken for a flyer.
+        File temp = new File(file.getPath() + ".tmp");
+        // With the timeouts of the other calls, so a stalled download fails rather than hangs.
+        HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+        connection.setConnectTimeout(Server.getTimeout());
+        connection.setReadTimeout(Server.getTimeout());
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode() + " for " + url);
+            }
+            copy(connection.getInputStream(), temp);
+        } finally {
+            connection.disconnect();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+    }
+
+    /**
+     * Write a stream to a file, and close the stream.
+     * @param in The stream.
+     * @param file The file written.
+     * @throws IOException If reading or writing failed.
+     */
+    private static void copy(InputStream in, File file) throws IOException {
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
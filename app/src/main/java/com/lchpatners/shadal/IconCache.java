@@ -0,0 +1,182 @@
+package com.lchpatners.shadal;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+
+/**
+ * Process-wide cache of the pre-scaled and pre-tinted icons used by the action bar
+ * and the tabs, so that toggling a bookmark or swiping tabs allocates no bitmaps.
+ * Icons are built by {@link #warmUp()} on a background thread, or lazily on first use.
+ * Their {@link android.graphics.drawable.Drawable.ConstantState ConstantStates} are cached,
+ * and each use gets a drawable of its own sharing the bitmap, as views set the bounds and
+ * the state of the drawables they hold.
+ * Everything is dropped on {@link #onTrimMemory(int)} and rebuilt when needed again.
+ */
+public class IconCache implements ComponentCallbacks2 {
+
+    /**
+     * Size ratio of the action bar icons.
+     * The icon resources were kinda too big. So they are resized programmatically.
+     */
+    private static final float ACTION_ICON_RATIO = 0.8f;
+
+    /**
+     * Tab icon resources indexed by page, and then by whether the tab is selected.
+     * Pages are in the order of {@link com.lchpatners.shadal.MainActivity MainActivity}'s tabs.
+     */
+    private static final int[][] TAB_ICONS = {
+            {R.drawable.tab_main_unselected, R.drawable.tab_main_selected},
+            {R.drawable.tab_star_unselected, R.drawable.tab_star_selected},
+            {R.drawable.tab_dice_unselected, R.drawable.tab_dice_selected},
+            {R.drawable.tab_more_unselected, R.drawable.tab_more_selected}
+    };
+
+    /**
+     * The singleton object.
+     */
+    private static IconCache instance;
+
+    private Resources resources;
+
+    private Drawable.ConstantState star;
+    private Drawable.ConstantState checkedStar;
+    private Drawable.ConstantState flyer;
+    private Drawable.ConstantState[][] tabIcons = new Drawable.ConstantState[TAB_ICONS.length][2];
+    /**
+     * If {@link #warmUp()} was started since the icons were last {@link #clear() cleared}.
+     */
+    private boolean warm;
+
+    /**
+     * @param context {@link android.content.Context}
+     * @return The {@link com.lchpatners.shadal.IconCache IconCache} instance.
+     */
+    public static synchronized IconCache getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new IconCache(appContext.getResources());
+            appContext.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    private IconCache(Resources resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Build all icons on a low-priority background thread,
+     * so that they are ready before the user first needs them.
+     * Does nothing if they were warmed up already.
+     */
+    public void warmUp() {
+        synchronized (this) {
+            if (warm) return;
+            warm = true;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                getStar(false);
+                getStar(true);
+                getFlyer();
+                for (int page = 0; page < TAB_ICONS.length; page++) {
+                    getTabIcon(page, false);
+                    getTabIcon(page, true);
+                }
+            }
+        }).start();
+    }
+
+    /**
+     * @param checked Is the icon is to be checked?
+     * @return The resized "bookmark" icon, tinted yellow if <code>checked</code>.
+     */
+    public synchronized Drawable getStar(boolean checked) {
+        if (star == null) {
+            Bitmap bitmap = decodeScaled(R.drawable.ic_action_star, ACTION_ICON_RATIO);
+            star = new BitmapDrawable(resources, bitmap).getConstantState();
+            // A state of its own, so the tint doesn't reach the plain star.
+            Drawable tinted = new BitmapDrawable(resources, bitmap);
+            tinted.setColorFilter(Color.YELLOW, PorterDuff.Mode.MULTIPLY);
+            checkedStar = tinted.getConstantState();
+        }
+        return (checked ? checkedStar : star).newDrawable(resources);
+    }
+
+    /**
+     * @return The resized "see flyer" icon.
+     */
+    public synchronized Drawable getFlyer() {
+        if (flyer == null) {
+            flyer = new BitmapDrawable(resources, decodeScaled(R.drawable.ic_action_flyer, ACTION_ICON_RATIO))
+                    .getConstantState();
+        }
+        return flyer.newDrawable(resources);
+    }
+
+    /**
+     * @param page The tab's page.
+     * @param selected Is the tab selected?
+     * @return The tab icon.
+     */
+    public synchronized Drawable getTabIcon(int page, boolean selected) {
+        int state = selected ? 1 : 0;
+        if (tabIcons[page][state] == null) {
+            tabIcons[page][state] = resources.getDrawable(TAB_ICONS[page][state]).getConstantState();
+        }
+        return tabIcons[page][state].newDrawable(resources);
+    }
+
+    /**
+     * Decode a bitmap resource and resize it.
+     * @param resId The resource id.
+     * @param ratio Size ratio.
+     * @return The resized {@link android.graphics.Bitmap Bitmap}.
+     */
+    private Bitmap decodeScaled(int resId, float ratio) {
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, resId);
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                (int)(bitmap.getWidth() * ratio), (int)(bitmap.getHeight() * ratio), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Drop all cached icons.
+     */
+    public synchronized void clear() {
+        star = checkedStar = flyer = null;
+        tabIcons = new Drawable.ConstantState[TAB_ICONS.length][2];
+        warm = false;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Icons depend on the density only, which does not change at runtime.
+    }
+}
@@ -0,0 +1,113 @@
+package com.lchpatners.shadal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The restaurants of a first-run import, handed out in chunks by priority: those of the
+ * category being viewed first, then the bookmarks waiting to be restored,
+ * then the rest in the server's order. The viewed category is asked again for every chunk,
+ * so the user may switch categories while the import runs.
+ */
+public class ImportQueue {
+
+    /**
+     * The restaurants in one priority order, and how far it has been taken from.
+     */
+    private static class Lane {
+        final List<JSONObject> restaurants = new ArrayList<>();
+        int next;
+    }
+
+    private final Lane all = new Lane();
+    private final Lane bookmarks = new Lane();
+    private final Map<String, Lane> categories = new HashMap<>();
+    /**
+     * Server-side ids of the restaurants already handed out, in whichever lane.
+     */
+    private final Set<Integer> taken = new HashSet<>();
+
+    /**
+     * @param restaurants The response of {@link com.lchpatners.shadal.Server#ALL_RESTAURANTS}.
+     * @param bookmarks Server-side ids of the restaurants to be bookmarked.
+     * @throws JSONException If a restaurant lacks its id or category.
+     */
+    public ImportQueue(JSONArray restaurants, Collection<Integer> bookmarks) throws JSONException {
+        for (int i = 0; i < restaurants.length(); i++) {
+            JSONObject restaurant = restaurants.getJSONObject(i);
+            all.restaurants.add(restaurant);
+            String category = restaurant.getString("category");
+            Lane lane = categories.get(category);
+            if (lane == null) {
+                lane = new Lane();
+                categories.put(category, lane);
+            }
+            lane.restaurants.add(restaurant);
+            if (bookmarks.contains(restaurant.getInt("id"))) {
+                this.bookmarks.restaurants.add(restaurant);
+            }
+        }
+    }
+
+    /**
+     * @return The number of restaurants in all.
+     */
+    public int size() {
+        return all.restaurants.size();
+    }
+
+    /**
+     * @return If every restaurant was handed out.
+     */
+    public boolean isEmpty() throws JSONException {
+        return peek(all) == null;
+    }
+
+    /**
+     * @param size The most restaurants to hand out.
+     * @param viewedCategory The category being viewed, or <code>null</code> if none is.
+     * @return The next restaurants by priority, empty once all were handed out.
+     */
+    public List<JSONObject> next(int size, String viewedCategory) throws JSONException {
+        List<JSONObject> chunk = new ArrayList<>(size);
+        Lane viewed = viewedCategory == null ? null : categories.get(viewedCategory);
+        if (viewed != null) {
+            take(viewed, size, chunk);
+        }
+        take(bookmarks, size, chunk);
+        take(all, size, chunk);
+        return chunk;
+    }
+
+    private void take(Lane lane, int size, List<JSONObject> chunk) throws JSONException {
+        JSONObject restaurant;
+        while (chunk.size() < size && (restaurant = peek(lane)) != null) {
+            taken.add(restaurant.getInt("id"));
+            chunk.add(restaurant);
+            lane.next++;
+        }
+    }
+
+    /**
+     * @return The next restaurant of the lane not taken yet, or <code>null</code> if none is left.
+     */
+    private JSONObject peek(Lane lane) throws JSONException {
+        while (lane.next < lane.restaurants.size()) {
+            JSONObject restaurant = lane.restaurants.get(lane.next);
+            if (!taken.contains(restaurant.getInt("id"))) {
+                return restaurant;
+            }
+            lane.next++;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.lchpatners.shadal;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A lookup table of labels, e.g. categories, which rows refer to by integer id instead of
+ * repeating the text. The table is small, so it is read once and kept in memory, where each
+ * label is a single {@link java.lang.String String} shared by all rows.
+ */
+public class LabelTable {
+
+    /**
+     * Columns of every label table.
+     */
+    public static final String COLUMNS = CampusSchema.LABEL_COLUMNS;
+
+    private final String table;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final SparseArray<String> names = new SparseArray<>();
+    private boolean loaded;
+
+    /**
+     * @param table Name of the table, created with {@link #COLUMNS}.
+     */
+    public LabelTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @param db The database.
+     * @param id Id of a label.
+     * @return The label, or <code>null</code> if there is none of the id.
+     */
+    public String nameOf(SQLiteDatabase db, int id) {
+        load(db);
+        synchronized (this) {
+            return names.get(id);
+        }
+    }
+
+    /**
+     * @param db The database.
+     * @param name A label.
+     * @return Id of the label, or -1 if it was never {@link #idOf(SQLiteDatabase, String) added}.
+     */
+    public int find(SQLiteDatabase db, String name) {
+        load(db);
+        synchronized (this) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+    }
+
+    /**
+     * @param db The writable database.
+     * @param name A label.
+     * @return Id of the label, added to the table if new.
+     */
+    public int idOf(SQLiteDatabase db, String name) {
+        int id = find(db, name);
+        if (id != -1) {
+            return id;
+        }
+        ContentValues values = new ContentValues();
+        values.put("name", name);
+        db.insertWithOnConflict(table, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        // Another thread may have added it first.
+        Cursor cursor = db.rawQuery(String.format("SELECT id FROM %s WHERE name = ?;", table), new String[]{name});
+        try {
+            cursor.moveToFirst();
+            id = cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+        synchronized (this) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+        return id;
+    }
+
+    /**
+     * Forget the labels, to be read again on next use. Call after a write was rolled back,
+     * as labels added in it are gone from the database.
+     */
+    public synchronized void reset() {
+        ids.clear();
+        names.clear();
+        loaded = false;
+    }
+
+    /**
+     * Read the table on first use. The database is never used while holding the lock,
+     * as a writer holding the database may be waiting for the lock.
+     */
+    private void load(SQLiteDatabase db) {
+        synchronized (this) {
+            if (loaded) return;
+        }
+        Map<String, Integer> read = new HashMap<>();
+        Cursor cursor = db.rawQuery(String.format("SELECT id, name FROM %s;", table), null);
+        try {
+            while (cursor.moveToNext()) {
+                read.put(cursor.getString(1), cursor.getInt(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        synchronized (this) {
+            if (loaded) return;
+            for (Map.Entry<String, Integer> label : read.entrySet()) {
+                ids.put(label.getKey(), label.getValue());
+                names.put(label.getValue(), label.getKey());
+            }
+            loaded = true;
+        }
+    }
+}
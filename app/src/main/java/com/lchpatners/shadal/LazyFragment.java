@@ -0,0 +1,83 @@
+package com.lchpatners.shadal;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * A placeholder page of a {@link android.support.v4.view.ViewPager ViewPager}, which
+ * creates its actual content {@link android.support.v4.app.Fragment Fragment} only when
+ * it first becomes visible, or when {@link #build()} is called e.g. during idle time.
+ * Once created, the content is kept as a child Fragment along with its state.
+ */
+public class LazyFragment extends Fragment {
+
+    private static final String CONTENT_CLASS = "CONTENT_CLASS";
+
+    /**
+     * The content, or <code>null</code> if not created yet.
+     */
+    private Fragment content;
+
+    /**
+     * @param contentClass Class of the content {@link android.support.v4.app.Fragment Fragment}.
+     * Must have a public no-argument constructor.
+     * @return A {@link com.lchpatners.shadal.LazyFragment LazyFragment} instance.
+     */
+    public static LazyFragment newInstance(Class<? extends Fragment> contentClass) {
+        LazyFragment fragment = new LazyFragment();
+        Bundle args = new Bundle();
+        args.putString(CONTENT_CLASS, contentClass.getName());
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        FrameLayout frame = new FrameLayout(getActivity());
+        frame.setId(R.id.lazy_content);
+        return frame;
+    }
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        if (content == null) {
+            // Restored along with this, e.g. after a process death.
+            content = getChildFragmentManager().findFragmentById(R.id.lazy_content);
+        }
+        if (getUserVisibleHint()) {
+            build();
+        }
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (content != null) {
+            content.setUserVisibleHint(isVisibleToUser);
+        } else if (isVisibleToUser) {
+            build();
+        }
+    }
+
+    /**
+     * Create the content, unless it is already created or this has no view yet.
+     * @return If the content was created by this call.
+     */
+    public boolean build() {
+        if (getView() == null || content != null) {
+            return false;
+        }
+        content = Fragment.instantiate(getActivity(), getArguments().getString(CONTENT_CLASS));
+        // Content fragments send their screen views only while visible.
+        content.setUserVisibleHint(getUserVisibleHint());
+        getChildFragmentManager().beginTransaction()
+                .add(R.id.lazy_content, content)
+                .commit();
+        return true;
+    }
+}
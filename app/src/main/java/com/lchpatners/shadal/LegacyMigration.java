@@ -0,0 +1,91 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabaseCorruptException;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Moves the bookmarks of the old version's single database,
+ * {@link com.lchpatners.shadal.DatabaseHelper#LEGACY_DATABASE_NAME}, into the
+ * {@link com.lchpatners.shadal.SavedBookmarks SavedBookmarks} of a campus, and then deletes it.
+ * The next import bookmarks them again.
+ * <br>The old database is deleted only once the bookmarks are saved, and saving them twice
+ * changes nothing, so a migration that fails partway is simply run again by the next import.
+ */
+public class LegacyMigration {
+
+    private static final String TAG = "LegacyMigration";
+
+    /**
+     * @param context {@link android.content.Context Context}
+     * @return If the old version's database is still there. Reads the disk.
+     */
+    public static boolean isPending(Context context) {
+        return context.getDatabasePath(DatabaseHelper.LEGACY_DATABASE_NAME).exists();
+    }
+
+    /**
+     * Migrate, if the old version's database is still there. Blocks on the disk.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus the bookmarks go to.
+     * @return If nothing is left to migrate.
+     */
+    public static boolean run(Context context, String campus) {
+        File legacyFile = context.getDatabasePath(DatabaseHelper.LEGACY_DATABASE_NAME);
+        if (!legacyFile.exists()) return true;
+        long start = Metrics.now();
+        Set<Integer> serverIds;
+        try {
+            serverIds = readBookmarks(legacyFile);
+        } catch (SQLiteDatabaseCorruptException e) {
+            // Never to be read, so nothing is lost by giving up on it.
+            e.printStackTrace();
+            context.deleteDatabase(DatabaseHelper.LEGACY_DATABASE_NAME);
+            return true;
+        } catch (SQLiteException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            SavedBookmarks.save(context, campus, serverIds);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        context.deleteDatabase(DatabaseHelper.LEGACY_DATABASE_NAME);
+        Metrics.getInstance().counter("migration.legacy_bookmarks").add(serverIds.size());
+        Metrics.getInstance().recordSince("migration.legacy_ms", start);
+        Log.i(TAG, serverIds.size() + " bookmarks migrated to " + campus);
+        return true;
+    }
+
+    /**
+     * @return Server-side ids of the restaurants bookmarked in the old version's database.
+     */
+    private static Set<Integer> readBookmarks(File legacyFile) {
+        Set<Integer> serverIds = new HashSet<>();
+        SQLiteDatabase legacyDb = SQLiteDatabase.openDatabase(legacyFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+            Cursor cursor = legacyDb.rawQuery("SELECT server_id FROM restaurants WHERE is_favorite = 1;", null);
+            try {
+                while (cursor.moveToNext()) {
+                    serverIds.add(cursor.getInt(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            legacyDb.close();
+        }
+        return serverIds;
+    }
+}
@@ -0,0 +1,214 @@
+package com.lchpatners.shadal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes item-level operations which turn an old list into a new one,
+ * matching items by their stable ids. Safe to compute off the UI thread.
+ */
+public class ListDiff {
+
+    /**
+     * A single operation to be dispatched to a
+     * {@link android.support.v7.widget.RecyclerView.Adapter RecyclerView.Adapter}.
+     */
+    public static class Op {
+        public static final int INSERT = 0;
+        public static final int REMOVE = 1;
+        public static final int MOVE = 2;
+        public static final int CHANGE = 3;
+
+        public final int type;
+        /**
+         * The position of the item, or the source position if this is a {@link #MOVE}.
+         */
+        public final int position;
+        /**
+         * The number of items if this is an {@link #INSERT} or a {@link #REMOVE},
+         * or the target position if this is a {@link #MOVE}.
+         */
+        public final int extra;
+
+        private Op(int type, int position, int extra) {
+            this.type = type;
+            this.position = position;
+            this.extra = extra;
+        }
+    }
+
+    /**
+     * Tells how items are identified and compared.
+     * @param <T> Type of the items.
+     */
+    public interface ItemCallback<T> {
+        /**
+         * @param item An item.
+         * @return An id which stays the same for the same real-world item across reloads.
+         */
+        long getStableId(T item);
+
+        /**
+         * @param oldItem An item from the old list.
+         * @param newItem An item from the new list with the same stable id.
+         * @return If the item doesn't need to be bound again.
+         */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Compute the operations. They must be dispatched in the returned order,
+     * because each position is relative to the list after the preceding operations.
+     * Only the items out of the longest run already in order are moved, so moving one item
+     * takes one operation.
+     * @param oldList The list currently shown.
+     * @param newList The list to be shown.
+     * @param callback {@link com.lchpatners.shadal.ListDiff.ItemCallback ItemCallback}.
+     * @param <T> Type of the items.
+     * @return Operations to dispatch.
+     */
+    public static <T> List<Op> compute(List<T> oldList, List<T> newList, ItemCallback<T> callback) {
+        List<Op> ops = new ArrayList<>();
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            if (!oldList.isEmpty()) {
+                ops.add(new Op(Op.REMOVE, 0, oldList.size()));
+            }
+            if (!newList.isEmpty()) {
+                ops.add(new Op(Op.INSERT, 0, newList.size()));
+            }
+            return ops;
+        }
+
+        // The new positions of each id, to be matched in order, so duplicates keep theirs.
+        Map<Long, ArrayDeque<Integer>> unmatched = new HashMap<>();
+        for (int i = 0; i < newList.size(); i++) {
+            long id = callback.getStableId(newList.get(i));
+            ArrayDeque<Integer> positions = unmatched.get(id);
+            if (positions == null) {
+                positions = new ArrayDeque<>();
+                unmatched.put(id, positions);
+            }
+            positions.add(i);
+        }
+
+        // Match the old items, and remove those no more in the new list,
+        // from the end so that positions stay valid.
+        int[] targets = new int[oldList.size()];
+        // The old position matched to each new one, or -1 if it is to be inserted.
+        int[] matches = new int[newList.size()];
+        Arrays.fill(matches, -1);
+        for (int i = 0; i < oldList.size(); i++) {
+            ArrayDeque<Integer> positions = unmatched.get(callback.getStableId(oldList.get(i)));
+            targets[i] = positions == null || positions.isEmpty() ? -1 : positions.poll();
+            if (targets[i] != -1) {
+                matches[targets[i]] = i;
+            }
+        }
+        // The new positions of the items shown, in the order shown.
+        List<Integer> current = new ArrayList<>(oldList.size());
+        for (int i = oldList.size() - 1; i >= 0; i--) {
+            if (targets[i] == -1) {
+                ops.add(new Op(Op.REMOVE, i, 1));
+            }
+        }
+        for (int target : targets) {
+            if (target != -1) {
+                current.add(target);
+            }
+        }
+
+        // The longest run of items already in order stays, and only the others move.
+        boolean[] stays = new boolean[newList.size()];
+        for (int i : longestIncreasing(current)) {
+            stays[i] = true;
+        }
+
+        // Walk the new list from the end, putting each item which doesn't stay right before
+        // the one after it. The ones which stay keep their order, so all end up in place.
+        // The position of the item after, or -1 if it is to be looked up.
+        int anchor = current.size();
+        for (int i = newList.size() - 1; i >= 0; i--) {
+            if (stays[i]) {
+                anchor = -1;
+                continue;
+            }
+            if (anchor == -1) {
+                anchor = current.indexOf(i + 1);
+            }
+            if (matches[i] == -1) {
+                current.add(anchor, i);
+                Op last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+                if (last != null && last.type == Op.INSERT && last.position == anchor) {
+                    ops.set(ops.size() - 1, new Op(Op.INSERT, anchor, last.extra + 1));
+                } else {
+                    ops.add(new Op(Op.INSERT, anchor, 1));
+                }
+            } else {
+                int from = current.indexOf(i);
+                current.remove(from);
+                int to = from < anchor ? anchor - 1 : anchor;
+                current.add(to, i);
+                ops.add(new Op(Op.MOVE, from, to));
+                anchor = to;
+            }
+        }
+
+        // Every item is in place by now.
+        for (int i = 0; i < newList.size(); i++) {
+            if (matches[i] != -1 && !callback.areContentsTheSame(oldList.get(matches[i]), newList.get(i))) {
+                ops.add(new Op(Op.CHANGE, i, 1));
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * @param values Distinct values.
+     * @return The values forming a longest increasing subsequence of them.
+     */
+    private static List<Integer> longestIncreasing(List<Integer> values) {
+        // The index of the smallest last value of an increasing subsequence of each length.
+        int[] tails = new int[values.size()];
+        int[] previous = new int[values.size()];
+        int length = 0;
+        for (int i = 0; i < values.size(); i++) {
+            int value = values.get(i);
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values.get(tails[middle]) < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low == 0 ? -1 : tails[low - 1];
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        List<Integer> subsequence = new ArrayList<>(length);
+        for (int i = length == 0 ? -1 : tails[length - 1]; i != -1; i = previous[i]) {
+            subsequence.add(values.get(i));
+        }
+        return subsequence;
+    }
+
+    /**
+     * @param values Strings to hash.
+     * @return A 64-bit FNV-1a hash of the strings, usable as a stable id.
+     */
+    public static long hash(String... values) {
+        ContentHash hash = new ContentHash();
+        for (String value : values) {
+            hash.add(value);
+        }
+        return hash.get();
+    }
+}
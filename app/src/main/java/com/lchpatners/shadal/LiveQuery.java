@@ -0,0 +1,186 @@
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.view.View;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A query which runs off the UI thread, and runs again whenever
+ * {@link com.lchpatners.shadal.ChangeTracker ChangeTracker} sees a write to
+ * the tables, and optionally the rows, it depends on. Every result is delivered
+ * on the UI thread until the query is released, either explicitly or together
+ * with the {@link android.app.Activity Activity} or view it is bound to.
+ * @param <T> Type of the result.
+ */
+public class LiveQuery<T> {
+
+    private final AsyncLoader.Task<T> task;
+    private final AsyncLoader.Callback<T> callback;
+    private final AsyncLoader loader = new AsyncLoader();
+    /**
+     * Tables this depends on.
+     */
+    private final String[] tables;
+    /**
+     * Keys of the rows this depends on. Any row if empty.
+     */
+    private long[] keys = new long[0];
+    private boolean released;
+    /**
+     * The application the {@link #releaseWith(android.app.Activity) activity callbacks}
+     * are registered to, if any.
+     */
+    private Application application;
+    private Application.ActivityLifecycleCallbacks activityCallbacks;
+    /**
+     * The view the {@link #releaseWith(android.view.View) attach listener} is added to, if any.
+     */
+    private View view;
+    private View.OnAttachStateChangeListener attachListener;
+
+    /**
+     * @param task {@link com.lchpatners.shadal.AsyncLoader.Task Task} to run.
+     * @param callback {@link com.lchpatners.shadal.AsyncLoader.Callback Callback} to deliver to.
+     * @param tables Tables the task reads.
+     */
+    public LiveQuery(AsyncLoader.Task<T> task, AsyncLoader.Callback<T> callback, String... tables) {
+        this.task = task;
+        this.callback = callback;
+        this.tables = tables;
+    }
+
+    /**
+     * Depend only on some rows of the tables.
+     * @param keys Keys of the rows, i.e. the restaurants' server-side ids.
+     * @return This.
+     */
+    public LiveQuery<T> whereKeys(long... keys) {
+        this.keys = keys;
+        return this;
+    }
+
+    /**
+     * Run for the first time and start observing. Must be called on the UI thread.
+     * @return This.
+     */
+    public LiveQuery<T> start() {
+        if (!released) {
+            ChangeTracker.getInstance().register(this);
+            run();
+        }
+        return this;
+    }
+
+    /**
+     * Run again, cancelling the run in progress if any.
+     */
+    public void run() {
+        loader.load(task, callback);
+    }
+
+    /**
+     * @param changes Changed keys by table. A <code>null</code> set means the whole table.
+     * @return If this depends on any of the changes.
+     */
+    boolean isAffectedBy(Map<String, Set<Long>> changes) {
+        for (String table : tables) {
+            if (!changes.containsKey(table)) continue;
+            Set<Long> changedKeys = changes.get(table);
+            if (changedKeys == null || keys.length == 0) {
+                return true;
+            }
+            for (long key : keys) {
+                if (changedKeys.contains(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stop observing and delivering for good, and stop listening to what this is bound to.
+     * Must be called on the UI thread.
+     */
+    public void release() {
+        if (released) return;
+        released = true;
+        loader.release();
+        ChangeTracker.getInstance().unregister(this);
+        if (activityCallbacks != null) {
+            application.unregisterActivityLifecycleCallbacks(activityCallbacks);
+            activityCallbacks = null;
+            application = null;
+        }
+        if (attachListener != null) {
+            view.removeOnAttachStateChangeListener(attachListener);
+            attachListener = null;
+            view = null;
+        }
+    }
+
+    /**
+     * Release when the {@link android.app.Activity Activity} is destroyed.
+     * @param activity {@link android.app.Activity Activity} to bind to.
+     * @return This.
+     */
+    public LiveQuery<T> releaseWith(final Activity activity) {
+        if (released) return this;
+        application = activity.getApplication();
+        activityCallbacks = new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityDestroyed(Activity destroyed) {
+                if (destroyed == activity) {
+                    release();
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity a, Bundle savedInstanceState) {}
+
+            @Override
+            public void onActivityStarted(Activity a) {}
+
+            @Override
+            public void onActivityResumed(Activity a) {}
+
+            @Override
+            public void onActivityPaused(Activity a) {}
+
+            @Override
+            public void onActivityStopped(Activity a) {}
+
+            @Override
+            public void onActivitySaveInstanceState(Activity a, Bundle outState) {}
+        };
+        application.registerActivityLifecycleCallbacks(activityCallbacks);
+        return this;
+    }
+
+    /**
+     * Release when the view is detached from its window. Fragment views in this app
+     * are detached only when they are destroyed, so this follows a Fragment's view lifecycle.
+     * @param view The view showing the results.
+     * @return This.
+     */
+    public LiveQuery<T> releaseWith(View view) {
+        if (released) return this;
+        this.view = view;
+        attachListener = new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                release();
+            }
+        };
+        view.addOnAttachStateChangeListener(attachListener);
+        return this;
+    }
+}
@@ -1,288 +1,446 @@
-package com.lchpatners.shadal;
-
-import android.content.Context;
-import android.content.Intent;
-import android.graphics.drawable.Drawable;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.os.Bundle;
-import android.support.v4.app.Fragment;
-import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentStatePagerAdapter;
-import android.support.v4.app.FragmentTransaction;
-import android.support.v4.view.ViewPager;
-import android.support.v7.app.ActionBar;
-import android.support.v7.app.ActionBarActivity;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-/**
- * The main {@link android.app.Activity Activity}.
- * Displays the {@link android.support.v4.app.Fragment Fragments}.
- */
-public class MainActivity extends ActionBarActivity {
-
-    //public static String URL;
-    //public static boolean SHOW_POPUP=false;
-    /**
-     * Indicates the last instance of {@link com.lchpatners.shadal.RestaurantListFragment
-     * RestaurantListFragment}.
-     */
-    RestaurantListFragment restaurantListFragmentCurrentlyOn;
-    /**
-     * The main {@link android.support.v4.view.ViewPager ViewPager}.
-     */
-    ViewPager viewPager;
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        setContentView(R.layout.activity_main);
-
-        new Server(this).checkAppMinimumVersion();
-
-
-        // If no campus is selected, have the user select one.
-        if (Preferences.getCampusKoreanShortName(this) == null) {
-            startActivity(new Intent(this, InitializationActivity.class));
-            finish();
-        }else{
-            new Server(this).getPopupList();
-        }
-
-
-        // If no database, get data from the server and update.
-        if (!DatabaseHelper.getInstance(this).checkDatabase(Preferences.getCampusEnglishName(this))) {
-            ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-            NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-            if (networkInfo != null && networkInfo.isConnected()) {
-                new Server(this).updateAll();
-            }
-        }
-
-
-        updateCampusMetaData();
-
-
-        viewPager = (ViewPager) findViewById(R.id.main_pager);
-        final PagerAdapter adapter = new PagerAdapter(getSupportFragmentManager());
-        viewPager.setAdapter(adapter);
-        viewPager.setOffscreenPageLimit(PagerAdapter.MAX_PAGE);
-
-        final ActionBar actionBar = getSupportActionBar();
-        actionBar.setTitle(adapter.getPageTitle(viewPager.getCurrentItem()));
-        actionBar.setNavigationMode(ActionBar.NAVIGATION_MODE_TABS);
-        ActionBar.TabListener tabListener = new ActionBar.TabListener() {
-            public void onTabSelected(ActionBar.Tab tab, FragmentTransaction ft) {
-                viewPager.setCurrentItem(tab.getPosition());
-            }
-
-            public void onTabUnselected(ActionBar.Tab tab, FragmentTransaction ft) {
-                // Do nothing.
-            }
-
-            public void onTabReselected(ActionBar.Tab tab, FragmentTransaction ft) {
-                // Do nothing.
-            }
-        };
-        for (int page = 0; page < PagerAdapter.MAX_PAGE; page++) {
-            actionBar.addTab(
-                    actionBar.newTab()
-                            .setIcon(adapter.getPageIcon(page, page == viewPager.getCurrentItem()))
-                            .setTabListener(tabListener));
-        }
-
-        viewPager.setOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
-            @Override
-            public void onPageSelected(int position) {
-                actionBar.setSelectedNavigationItem(position);
-                for (int i = 0; i < actionBar.getTabCount(); i++) {
-                    actionBar.getTabAt(i).setIcon(adapter.getPageIcon(i, false));
-                }
-                actionBar.getTabAt(position).setIcon(adapter.getPageIcon(position, true));
-                actionBar.setTitle(adapter.getPageTitle(position));
-            }
-        });
-        viewPager.setCurrentItem(0);
-    }
-
-    @Override
-    public void onBackPressed() {
-        if (viewPager.getCurrentItem() == PagerAdapter.MAIN) {
-            if (restaurantListFragmentCurrentlyOn != null) {
-                AnalyticsHelper helper = new AnalyticsHelper(getApplication());
-                helper.sendScreen("메인 화면");
-            }
-            super.onBackPressed();
-        } else {
-            viewPager.setCurrentItem(PagerAdapter.MAIN, true);
-        }
-    }
-
-
-
-
-    /**
-     * Update campus meta data of currently selected campus.
-     *
-     * @see com.lchpatners.shadal.Server.CampusesLoadingTask CampusesLoadingTask
-     */
-    public void updateCampusMetaData() {
-        new Server.CampusesLoadingTask() {
-                        @Override
-            public void onPostExecute(Void aVoid) {
-                if (results == null) return;
-                for (int i = 0; i < results.length(); i++) {
-                    try {
-                        JSONObject result = results.getJSONObject(i);
-                        if (result.getString("name_eng").equals(
-                                Preferences.getCampusEnglishName(MainActivity.this))) {
-                            Preferences.setCampus(MainActivity.this, result);
-                            break;
-                        }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-            protected Void doInBackground(Void... params) {
-
-                try {
-
-                    serviceCall = Server.makeServiceCall(
-
-                            Server.BASE_URL + Server.CAMPUSES, Server.GET, null);
-
-                    if (serviceCall == null) {
-
-                        return null;
-
-                    }
-                    results = new JSONArray(serviceCall);
-
-                } catch (Exception e) {
-
-                    e.printStackTrace();
-
-                }
-
-                return null;
-
-            }
-        }.execute();
-    }
-
-    /**
-     * The {@link android.support.v4.app.FragmentStatePagerAdapter
-     * FragmentStatePagerAdapter} of {@link #viewPager}.
-     */
-    private class PagerAdapter extends FragmentStatePagerAdapter {
-
-        /**
-         * Indicates the main {@link android.support.v4.app.Fragment Fragment}.
-         *
-         * @see com.lchpatners.shadal.CategoryListFragment CategoryListFragment
-         */
-        public static final int MAIN = 0;
-        /**
-         * Indicates the bookmark {@link android.support.v4.app.Fragment Fragment}.
-         *
-         * @see com.lchpatners.shadal.BookmarkFragment BookmarkFragment
-         */
-        public static final int BOOKMARK = 1;
-        /**
-         * Indicates the random {@link android.support.v4.app.Fragment Fragment}.
-         *
-         * @see com.lchpatners.shadal.RandomFragment RandomFragment
-         */
-        public static final int RANDOM = 2;
-        /**
-         * Indicates the see-more {@link android.support.v4.app.Fragment Fragment}.
-         *
-         * @see com.lchpatners.shadal.SeeMoreFragment SeeMoreFragment
-         */
-        public static final int SEE_MORE = 3;
-        /**
-         * The number of {@link android.support.v4.app.Fragment Fragments}.
-         */
-        public static final int MAX_PAGE = 4;
-
-        public PagerAdapter(FragmentManager fm) {
-            super(fm);
-        }
-
-        @Override
-        public Fragment getItem(int position) {
-            Fragment fragment = null;
-            switch (position) {
-                case MAIN:
-                    fragment = CategoryListFragment.newInstance();
-                    break;
-                case BOOKMARK:
-                    fragment = BookmarkFragment.newInstance();
-                    break;
-                case RANDOM:
-                    fragment = RandomFragment.newInstance();
-                    break;
-                case SEE_MORE:
-                    fragment = SeeMoreFragment.newInstance();
-                    break;
-            }
-            return fragment;
-        }
-
-        @Override
-        public int getCount() {
-            return MAX_PAGE;
-        }
-
-        @Override
-        public CharSequence getPageTitle(int position) {
-            String title = null;
-            switch (position) {
-                case MAIN:
-                    title = getString(R.string.app_name);
-                    break;
-                case BOOKMARK:
-                    title = getString(R.string.bookmark);
-                    break;
-                case RANDOM:
-                    title = getString(R.string.random);
-                    break;
-                case SEE_MORE:
-                    title = getString(R.string.see_more);
-                    break;
-            }
-            return title;
-        }
-
-        public Drawable getPageIcon(int page, boolean selected) {
-            Drawable icon = null;
-            switch (page) {
-                case MAIN:
-                    icon = getResources().getDrawable(
-                            selected ? R.drawable.tab_main_selected : R.drawable.tab_main_unselected
-                    );
-                    break;
-                case BOOKMARK:
-                    icon = getResources().getDrawable(
-                            selected ? R.drawable.tab_star_selected : R.drawable.tab_star_unselected
-                    );
-                    break;
-                case RANDOM:
-                    icon = getResources().getDrawable(
-                            selected ? R.drawable.tab_dice_selected : R.drawable.tab_dice_unselected
-                    );
-                    break;
-                case SEE_MORE:
-                    icon = getResources().getDrawable(
-                            selected ? R.drawable.tab_more_selected : R.drawable.tab_more_unselected
-                    );
-                    break;
-            }
-            return icon;
-        }
-    }
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentStatePagerAdapter;
+import android.support.v4.app.FragmentTransaction;
+import android.support.v4.view.ViewPager;
+import android.support.v7.app.ActionBar;
+import android.support.v7.app.ActionBarActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The main {@link android.app.Activity Activity}.
+ * Displays the {@link android.support.v4.app.Fragment Fragments}.
+ */
+public class MainActivity extends ActionBarActivity {
+
+    /**
+     * {@link com.lchpatners.shadal.Metrics Metrics} span from the creation of the activity
+     * to its first frame drawn.
+     */
+    public static final String FIRST_FRAME = "ui.first_frame_ms";
+
+    private static final long MINUTE_MS = 60 * 1000;
+
+    //public static String URL;
+    //public static boolean SHOW_POPUP=false;
+    /**
+     * Indicates the last instance of {@link com.lchpatners.shadal.RestaurantListFragment
+     * RestaurantListFragment}.
+     */
+    RestaurantListFragment restaurantListFragmentCurrentlyOn;
+    /**
+     * The main {@link android.support.v4.view.ViewPager ViewPager}.
+     */
+    ViewPager viewPager;
+    /**
+     * Runs the start-up queries off the UI thread.
+     */
+    private AsyncLoader loader = new AsyncLoader();
+    /**
+     * Runs {@link #minuteTick} while the activity is started.
+     */
+    private final Handler handler = new Handler();
+    /**
+     * Places open and close on the minute, so the lists of places open now are refreshed
+     * on every minute boundary.
+     */
+    private final Runnable minuteTick = new Runnable() {
+        @Override
+        public void run() {
+            ChangeTracker.getInstance().recordChange(OpeningHours.OPEN_NOW);
+            scheduleMinuteTick();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        Metrics.getInstance().startSpan(FIRST_FRAME);
+        super.onCreate(savedInstanceState);
+
+        setContentView(R.layout.activity_main);
+
+        new Server(this).checkAppMinimumVersion();
+
+
+        // If no campus is selected, have the user select one.
+        if (Preferences.getCampusKoreanShortName(this) == null) {
+            startActivity(new Intent(this, InitializationActivity.class));
+            finish();
+        }else{
+            new Server(this).getPopupList();
+        }
+
+
+        // If no database, get data from the server and update. Likewise if the last import
+        // stopped short of restoring the bookmarks, or of migrating the old version's.
+        // Checking the files is a disk read, so it is done off the UI thread.
+        loader.load(new AsyncLoader.Task<Boolean>() {
+            @Override
+            public Boolean load() {
+                String campus = Preferences.getCampusEnglishName(MainActivity.this);
+                return DatabaseHelper.getInstance(MainActivity.this).checkDatabase(campus)
+                        && !LegacyMigration.isPending(MainActivity.this)
+                        && !SavedBookmarks.exists(MainActivity.this, campus);
+            }
+        }, new AsyncLoader.Callback<Boolean>() {
+            @Override
+            public void onLoaded(Boolean imported) {
+                if (imported) return;
+                ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+                NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+                if (networkInfo != null && networkInfo.isConnected()) {
+                    new Server(MainActivity.this).importAll();
+                }
+            }
+        });
+
+
+        // The lists read the restaurants from memory once it is loaded.
+        CampusCatalog.observe(this);
+
+        updateCampusMetaData();
+
+        final IconCache icons = IconCache.getInstance(this);
+
+        viewPager = (ViewPager) findViewById(R.id.main_pager);
+        final PagerAdapter adapter = new PagerAdapter(getSupportFragmentManager());
+        viewPager.setAdapter(adapter);
+        // Pages are cheap placeholders until built, so keeping them all costs nothing
+        // at start-up, and keeps the built ones along with their states.
+        viewPager.setOffscreenPageLimit(PagerAdapter.MAX_PAGE);
+
+        final ActionBar actionBar = getSupportActionBar();
+        actionBar.setTitle(adapter.getPageTitle(viewPager.getCurrentItem()));
+        actionBar.setNavigationMode(ActionBar.NAVIGATION_MODE_TABS);
+        ActionBar.TabListener tabListener = new ActionBar.TabListener() {
+            public void onTabSelected(ActionBar.Tab tab, FragmentTransaction ft) {
+                viewPager.setCurrentItem(tab.getPosition());
+            }
+
+            public void onTabUnselected(ActionBar.Tab tab, FragmentTransaction ft) {
+                // Do nothing.
+            }
+
+            public void onTabReselected(ActionBar.Tab tab, FragmentTransaction ft) {
+                // Do nothing.
+            }
+        };
+        for (int page = 0; page < PagerAdapter.MAX_PAGE; page++) {
+            actionBar.addTab(
+                    actionBar.newTab()
+                            .setIcon(icons.getTabIcon(page, page == viewPager.getCurrentItem()))
+                            .setTabListener(tabListener));
+        }
+
+        viewPager.setOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
+            /**
+             * The page whose tab icon is currently shown as selected.
+             */
+            private int selectedPage = viewPager.getCurrentItem();
+
+            @Override
+            public void onPageSelected(int position) {
+                actionBar.setSelectedNavigationItem(position);
+                actionBar.getTabAt(selectedPage).setIcon(icons.getTabIcon(selectedPage, false));
+                actionBar.getTabAt(position).setIcon(icons.getTabIcon(position, true));
+                actionBar.setTitle(adapter.getPageTitle(position));
+                selectedPage = position;
+            }
+        });
+        viewPager.setCurrentItem(0);
+
+        // Build the rest of the icons and pages once the first frame is drawn.
+        Metrics.getInstance().endSpanOnNextDraw(viewPager, FIRST_FRAME);
+        viewPager.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                viewPager.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Posted from the first draw, so it runs once that frame is on screen.
+                viewPager.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        icons.warmUp();
+                        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                            @Override
+                            public boolean queueIdle() {
+                                // One page per idle time, so that input is never kept waiting for long.
+                                return !isFinishing() && adapter.buildNextPage();
+                            }
+                        });
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (!Server.isImporting()) {
+            // It may have ended while the activity was stopped.
+            getSupportActionBar().setSubtitle(null);
+        }
+        Server.setImportListener(new Server.ImportListener() {
+            @Override
+            public void onImportProgress(int done, int total) {
+                getSupportActionBar().setSubtitle(done < total
+                        ? getString(R.string.import_progress, done * 100 / total) : null);
+            }
+        });
+        scheduleMinuteTick();
+    }
+
+    /**
+     * Run {@link #minuteTick} at the start of the next minute.
+     */
+    private void scheduleMinuteTick() {
+        handler.postDelayed(minuteTick, MINUTE_MS - System.currentTimeMillis() % MINUTE_MS);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        // Some places may have opened or closed meanwhile.
+        ChangeTracker.getInstance().recordChange(OpeningHours.OPEN_NOW);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        Server.setImportListener(null);
+        handler.removeCallbacks(minuteTick);
+        // The user is leaving, so the database is idle.
+        if (!isChangingConfigurations()) {
+            DatabaseMaintenance.runIfDue(this);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.release();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.open_now_only).setChecked(Preferences.isOpenNowOnly(this));
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.search) {
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.cheapest_menu) {
+            startActivity(new Intent(this, CheapestMenuActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.open_now_only) {
+            boolean openNowOnly = !item.isChecked();
+            item.setChecked(openNowOnly);
+            Preferences.setOpenNowOnly(this, openNowOnly);
+
+            AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+            helper.sendEvent("UX", "open_now_only_clicked", String.valueOf(openNowOnly));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (viewPager.getCurrentItem() == PagerAdapter.MAIN) {
+            if (restaurantListFragmentCurrentlyOn != null) {
+                AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+                helper.sendScreen("메인 화면");
+            }
+            super.onBackPressed();
+        } else {
+            viewPager.setCurrentItem(PagerAdapter.MAIN, true);
+        }
+    }
+
+
+
+
+    /**
+     * Update campus meta data of currently selected campus.
+     *
+     * @see com.lchpatners.shadal.Server.CampusesLoadingTask CampusesLoadingTask
+     */
+    public void updateCampusMetaData() {
+        new Server.CampusesLoadingTask() {
+                        @Override
+            public void onPostExecute(Void aVoid) {
+                if (results == null) return;
+                for (int i = 0; i < results.length(); i++) {
+                    try {
+                        JSONObject result = results.getJSONObject(i);
+                        if (result.getString("name_eng").equals(
+                                Preferences.getCampusEnglishName(MainActivity.this))) {
+                            Preferences.setCampus(MainActivity.this, result);
+                            break;
+                        }
+                    } catch (JSONException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            protected Void doInBackground(Void... params) {
+
+                try {
+
+                    serviceCall = Server.makeServiceCall(
+
+                            Server.getBaseUrl() + Server.CAMPUSES, Server.GET, null);
+
+                    if (serviceCall == null) {
+
+                        return null;
+
+                    }
+                    results = new JSONArray(serviceCall);
+
+                } catch (Exception e) {
+
+                    e.printStackTrace();
+
+                }
+
+                return null;
+
+            }
+        }.execute();
+    }
+
+    /**
+     * The {@link android.support.v4.app.FragmentStatePagerAdapter
+     * FragmentStatePagerAdapter} of {@link #viewPager}. Each page is a
+     * {@link com.lchpatners.shadal.LazyFragment LazyFragment}, whose content is
+     * created when the page is first shown or {@link #buildNextPage() built} in advance.
+     */
+    private class PagerAdapter extends FragmentStatePagerAdapter {
+
+        /**
+         * Indicates the main {@link android.support.v4.app.Fragment Fragment}.
+         *
+         * @see com.lchpatners.shadal.CategoryListFragment CategoryListFragment
+         */
+        public static final int MAIN = 0;
+        /**
+         * Indicates the bookmark {@link android.support.v4.app.Fragment Fragment}.
+         *
+         * @see com.lchpatners.shadal.BookmarkFragment BookmarkFragment
+         */
+        public static final int BOOKMARK = 1;
+        /**
+         * Indicates the random {@link android.support.v4.app.Fragment Fragment}.
+         *
+         * @see com.lchpatners.shadal.RandomFragment RandomFragment
+         */
+        public static final int RANDOM = 2;
+        /**
+         * Indicates the see-more {@link android.support.v4.app.Fragment Fragment}.
+         *
+         * @see com.lchpatners.shadal.SeeMoreFragment SeeMoreFragment
+         */
+        public static final int SEE_MORE = 3;
+        /**
+         * The number of {@link android.support.v4.app.Fragment Fragments}.
+         */
+        public static final int MAX_PAGE = 4;
+
+        /**
+         * Pages instantiated so far, by position.
+         */
+        private final LazyFragment[] pages = new LazyFragment[MAX_PAGE];
+
+        public PagerAdapter(FragmentManager fm) {
+            super(fm);
+        }
+
+        @Override
+        public Fragment getItem(int position) {
+            LazyFragment fragment = null;
+            switch (position) {
+                case MAIN:
+                    fragment = LazyFragment.newInstance(CategoryListFragment.class);
+                    break;
+                case BOOKMARK:
+                    fragment = LazyFragment.newInstance(BookmarkFragment.class);
+                    break;
+                case RANDOM:
+                    fragment = LazyFragment.newInstance(RandomFragment.class);
+                    break;
+                case SEE_MORE:
+                    fragment = LazyFragment.newInstance(SeeMoreFragment.class);
+                    break;
+            }
+            return fragment;
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            LazyFragment page = (LazyFragment)super.instantiateItem(container, position);
+            pages[position] = page;
+            return page;
+        }
+
+        /**
+         * Build the content of a page which is not built yet, if any.
+         * @return If a page was built.
+         */
+        public boolean buildNextPage() {
+            for (LazyFragment page : pages) {
+                if (page != null && page.build()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getCount() {
+            return MAX_PAGE;
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            String title = null;
+            switch (position) {
+                case MAIN:
+                    title = getString(R.string.app_name);
+                    break;
+                case BOOKMARK:
+                    title = getString(R.string.bookmark);
+                    break;
+                case RANDOM:
+                    title = getString(R.string.random);
+                    break;
+                case SEE_MORE:
+                    title = getString(R.string.see_more);
+                    break;
+            }
+            return title;
+        }
+    }
 }
\ No newline at end of file
@@ -1,138 +1,111 @@
-package com.lchpatners.shadal;
-
-import android.content.Context;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.BaseAdapter;
-import android.widget.TextView;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * {@link android.widget.Adapter Adapter} of {@link com.lchpatners.shadal.MenuListActivity
- * MenuListActivity}. Displays menus.
- */
-public class MenuListAdapter extends BaseAdapter {
-
-    /**
-     * {@link android.content.Context Context} this belongs to.
-     */
-    private Context context;
-    /**
-     * {@link com.lchpatners.shadal.Restaurant Restaurant}
-     * of which {@link com.lchpatners.shadal.Menu Menu} information is
-     * to be displayed.
-     */
-    private Restaurant restaurant;
-    /**
-     * List of all data, including both {@link #HEADER} and {@link #ITEM}.
-     */
-    private List<Object> data;
-    /**
-     * List of {@link #HEADER} data.
-     */
-    private List<String> headers;
-
-    /**
-     * Indicates the header view type.
-     * Used for {@link com.lchpatners.shadal.Menu#section sections}.
-     */
-    private static final int HEADER = 0;
-    /**
-     * Indicates the item view type.
-     * Used for {@link com.lchpatners.shadal.Menu#item items}.
-     */
-    private static final int ITEM = 1;
-    /**
-     * The number of view types.
-     */
-    private static final int VIEW_TYPE_COUNT = 2;
-
-    public MenuListAdapter(Context context, Restaurant restaurant) {
-        this.context = context;
-        this.restaurant = restaurant;
-        data = new ArrayList<>();
-        headers = new ArrayList<>();
-        reloadData();
-    }
-
-    /**
-     * Reload all menu data of {@link #restaurant}.
-     */
-    public void reloadData() {
-        data.clear();
-        List<Menu> menus = DatabaseHelper.getInstance(context)
-                .getMenusByRestaurantServerId(restaurant.getServerId());
-        String header = null;
-        for (Menu menu : menus) {
-            if (!menu.getSection().equals(header)) {
-                header = menu.getSection();
-                data.add(header);
-                headers.add(header);
-            }
-            data.add(menu);
-        }
-        notifyDataSetChanged();
-    }
-
-    @Override
-    public int getItemViewType(int position) {
-        return data.get(position) instanceof String &&
-                headers.contains(data.get(position)) ? HEADER : ITEM;
-    }
-
-    @Override
-    public int getViewTypeCount() {
-        return VIEW_TYPE_COUNT;
-    }
-
-    @Override
-    public int getCount() {
-        return data.size();
-    }
-
-    @Override
-    public Object getItem(int position) {
-        return data.get(position);
-    }
-
-    @Override
-    public long getItemId(int position) {
-        return position;
-    }
-
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        if (convertView == null) {
-            LayoutInflater inflater = LayoutInflater.from(context);
-            switch (getItemViewType(position)) {
-                case HEADER:
-                    convertView = inflater.inflate(R.layout.list_header_menu, parent, false);
-                    break;
-                case ITEM:
-                    convertView = inflater.inflate(R.layout.list_item_menu, parent, false);
-                    break;
-            }
-        }
-        assert convertView != null;
-        switch (getItemViewType(position)) {
-            case HEADER:
-                TextView header = (TextView)convertView.findViewById(R.id.header);
-                header.setText((String)data.get(position));
-                break;
-            case ITEM:
-                TextView item = (TextView)convertView.findViewById(R.id.item);
-                item.setText(((Menu)data.get(position)).getItem());
-                TextView price = (TextView)convertView.findViewById(R.id.price);
-                int value = ((Menu)data.get(position)).getPrice();
-                if (value == 0) {
-                    price.setVisibility(View.INVISIBLE);
-                }
-                price.setText(value + context.getString(R.string.won));
-                break;
-        }
-        return convertView;
-    }
-}
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.Adapter Adapter} of
+ * {@link com.lchpatners.shadal.MenuListActivity MenuListActivity}. Displays menus.
+ */
+public class MenuListAdapter extends DiffingAdapter<MenuListAdapter.ViewHolder> {
+
+    /**
+     * {@link android.content.Context Context} this belongs to.
+     */
+    private Context context;
+    /**
+     * {@link com.lchpatners.shadal.Restaurant Restaurant}
+     * of which {@link com.lchpatners.shadal.Menu Menu} information is
+     * to be displayed.
+     */
+    private Restaurant restaurant;
+
+    public MenuListAdapter(Context context, Restaurant restaurant) {
+        this.context = context;
+        this.restaurant = restaurant;
+        observeMenus();
+    }
+
+    /**
+     * Show another {@link com.lchpatners.shadal.Restaurant Restaurant}'s menus.
+     * @param restaurant {@link com.lchpatners.shadal.Restaurant Restaurant} to display.
+     */
+    public void setRestaurant(Restaurant restaurant) {
+        if (this.restaurant.getServerId() != restaurant.getServerId()) {
+            this.restaurant = restaurant;
+            observeMenus();
+        }
+        this.restaurant = restaurant;
+    }
+
+    /**
+     * Load all menu data of {@link #restaurant} in the background, and again
+     * whenever its menus change. {@link com.lchpatners.shadal.Row#HEADER Headers} are used for
+     * {@link com.lchpatners.shadal.Menu#section sections}.
+     * Only the rows which changed are bound again.
+     */
+    private void observeMenus() {
+        final int restaurantServerId = restaurant.getServerId();
+        final String won = context.getString(R.string.won);
+        observe(new LiveQuery<Row[]>(new AsyncLoader.Task<Row[]>() {
+            @Override
+            public Row[] load() {
+                RestaurantDetail detail = DatabaseHelper.getInstance(context)
+                        .getRestaurantDetail(restaurantServerId);
+                if (detail == null) {
+                    return new Row[0];
+                }
+                return MenuSections.toRows(detail.getMenus(), won);
+            }
+        }, submitter, DatabaseHelper.MENUS).whereKeys(restaurantServerId));
+    }
+
+    @Override
+    public boolean areContentsTheSame(Row oldRow, Row newRow) {
+        // Everything displayed is a part of the stable id.
+        return true;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        return new ViewHolder(inflater.inflate(viewType == Row.HEADER ?
+                R.layout.list_header_menu : R.layout.list_item_menu, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Row row = rows[position];
+        switch (row.viewType) {
+            case Row.HEADER:
+                holder.header.setText(row.text);
+                break;
+            case Row.ITEM:
+                holder.item.setText(row.text);
+                holder.price.setVisibility(row.detail == null ? View.INVISIBLE : View.VISIBLE);
+                holder.price.setText(row.detail);
+                break;
+        }
+    }
+
+    /**
+     * Holds the views of a row, either a {@link com.lchpatners.shadal.Row#HEADER HEADER}
+     * or an {@link com.lchpatners.shadal.Row#ITEM ITEM}.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView header;
+        TextView item;
+        TextView price;
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            header = (TextView)itemView.findViewById(R.id.header);
+            item = (TextView)itemView.findViewById(R.id.item);
+            price = (TextView)itemView.findViewById(R.id.price);
+        }
+    }
+}
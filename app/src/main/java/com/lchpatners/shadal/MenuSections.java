@@ -0,0 +1,43 @@
+package com.lchpatners.shadal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lays menus out as the rows of {@link com.lchpatners.shadal.MenuListAdapter MenuListAdapter}.
+ */
+public class MenuSections {
+
+    /**
+     * @param menus Menus in the order displayed, i.e. grouped by section.
+     * @param won The currency suffix, e.g. "원".
+     * @return A {@link com.lchpatners.shadal.Row#HEADER header} for each
+     * {@link com.lchpatners.shadal.Menu#section section}, followed by its items.
+     */
+    public static Row[] toRows(List<Menu> menus, String won) {
+        List<Row> rows = new ArrayList<>(menus.size());
+        int section = -1;
+        // Times each entry was listed so far, so that identical entries still get ids of their own.
+        Map<Long, Integer> occurrences = new HashMap<>();
+        for (Menu menu : menus) {
+            if (menu.getSectionId() != section) {
+                section = menu.getSectionId();
+                rows.add(Row.header(menu.getSection()));
+            }
+            String price = String.valueOf(menu.getPrice());
+            // Menu rows are re-inserted on every update, so their ids are derived from the contents,
+            // along with how many identical entries came before, which an edit elsewhere can't change.
+            long contents = ListDiff.hash(menu.getSection(), menu.getItem(), price);
+            Integer occurrence = occurrences.get(contents);
+            occurrence = occurrence == null ? 0 : occurrence + 1;
+            occurrences.put(contents, occurrence);
+            long id = ListDiff.hash(menu.getSection(), menu.getItem(), price, String.valueOf(occurrence))
+                    & Long.MAX_VALUE;
+            rows.add(Row.item(id, menu, menu.getItem(),
+                    menu.getPrice() == 0 ? null : price + won));
+        }
+        return rows.toArray(new Row[rows.size()]);
+    }
+}
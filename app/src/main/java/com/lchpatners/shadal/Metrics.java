@@ -0,0 +1,241 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry of counters and histograms on the hot paths: network calls,
+ * JSON parsing, database writes and the time from a tap to the list it shows.
+ * Recording is a counter increment or a short uncontended lock, so it stays on in release
+ * builds. The numbers are shown by {@link com.lchpatners.shadal.MetricsActivity MetricsActivity},
+ * which is opened by long-pressing "change campus" on the "see more" tab.
+ */
+public class Metrics {
+
+    /**
+     * Counts something, e.g. failures.
+     */
+    public static class Counter {
+        private final AtomicLong count = new AtomicLong();
+
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            count.addAndGet(delta);
+        }
+
+        public long get() {
+            return count.get();
+        }
+    }
+
+    /**
+     * Keeps the count, sum, min and max of all values, and a uniform sample of
+     * {@link #RESERVOIR_SIZE} of them for the percentiles.
+     */
+    public static class Histogram {
+        private static final int RESERVOIR_SIZE = 256;
+
+        private final long[] reservoir = new long[RESERVOIR_SIZE];
+        private final Random random = new Random();
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        public synchronized void update(long value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (count <= RESERVOIR_SIZE) {
+                reservoir[(int)count - 1] = value;
+            } else {
+                // Each value so far stays in the sample with the same probability.
+                long index = (long)(random.nextDouble() * count);
+                if (index < RESERVOIR_SIZE) {
+                    reservoir[(int)index] = value;
+                }
+            }
+        }
+
+        /**
+         * @return e.g. "n=12 mean=80 min=41 p50=75 p90=120 p99=301 max=301".
+         */
+        public synchronized String summary() {
+            if (count == 0) {
+                return "n=0";
+            }
+            long[] sample = Arrays.copyOf(reservoir, (int)Math.min(count, RESERVOIR_SIZE));
+            Arrays.sort(sample);
+            return String.format(Locale.US, "n=%d mean=%d min=%d p50=%d p90=%d p99=%d max=%d",
+                    count, sum / count, min, percentile(sample, 50), percentile(sample, 90),
+                    percentile(sample, 99), max);
+        }
+
+        private static long percentile(long[] sorted, int percent) {
+            return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+        }
+    }
+
+    private static final Metrics instance = new Metrics();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    /**
+     * Start times of the spans in progress, in nanoseconds.
+     */
+    private final ConcurrentMap<String, Long> spans = new ConcurrentHashMap<>();
+
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * @param name e.g. "server./allRestaurants.failures".
+     * @return The counter of the name, created on first use.
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new Counter());
+            counter = counters.get(name);
+        }
+        return counter;
+    }
+
+    /**
+     * @param name e.g. "json.parse_ms".
+     * @return The histogram of the name, created on first use.
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histograms.putIfAbsent(name, new Histogram());
+            histogram = histograms.get(name);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The current time in milliseconds, for durations.
+     */
+    public static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * Record the milliseconds since <code>startMillis</code>.
+     * @param name Name of the histogram.
+     * @param startMillis {@link #now()} when it started.
+     */
+    public void recordSince(String name, long startMillis) {
+        histogram(name).update(now() - startMillis);
+    }
+
+    /**
+     * Start a span which ends on another screen, e.g. when a tapped list item's screen
+     * is drawn. Starting it again restarts it.
+     * @param name Name of the histogram of the span.
+     */
+    public void startSpan(String name) {
+        spans.put(name, System.nanoTime());
+    }
+
+    /**
+     * End a span, and record how long it took. Does nothing if it was not started,
+     * e.g. when the screen was restored rather than tapped into.
+     * @param name Name of the histogram of the span.
+     */
+    public void endSpan(String name) {
+        Long start = spans.remove(name);
+        if (start != null) {
+            histogram(name).update((System.nanoTime() - start) / 1000000);
+        }
+    }
+
+    /**
+     * {@link #endSpan(String) End a span} when the view is next drawn.
+     * @param view A view showing the result.
+     * @param name Name of the histogram of the span.
+     */
+    public void endSpanOnNextDraw(final View view, final String name) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                endSpan(name);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @return All counters and histograms, one per line, sorted by name.
+     */
+    public String dump() {
+        Map<String, String> lines = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            lines.put(entry.getKey(), String.valueOf(entry.getValue().get()));
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            lines.put(entry.getKey(), entry.getValue().summary());
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> line : lines.entrySet()) {
+            builder.append(line.getKey()).append(' ').append(line.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write {@link #dump()} to a new file in the app's external files directory,
+     * where it can be pulled without root, or in the internal one if there is none
+     * or it can't be written, e.g. before API 19 without WRITE_EXTERNAL_STORAGE.
+     * @param context {@link android.content.Context}
+     * @return The file written.
+     * @throws IOException If writing failed.
+     */
+    public File dumpToFile(Context context) throws IOException {
+        String name = "metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".txt";
+        File dir = context.getExternalFilesDir(null);
+        if (dir != null) {
+            try {
+                return writeDump(new File(dir, name));
+            } catch (IOException | SecurityException e) {
+                e.printStackTrace();
+            }
+        }
+        return writeDump(new File(context.getFilesDir(), name));
+    }
+
+    private File writeDump(File file) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(dump());
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,80 @@
+package com.lchpatners.shadal;
+
+import android.os.Bundle;
+import android.support.v7.app.ActionBarActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shows the {@link com.lchpatners.shadal.Metrics Metrics} of this process, and saves them
+ * to a file. Hidden from users: opened by long-pressing "change campus" on the "see more" tab.
+ */
+public class MetricsActivity extends ActionBarActivity {
+
+    private TextView metrics;
+    /**
+     * Writes the dump off the UI thread.
+     */
+    private AsyncLoader loader = new AsyncLoader();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        metrics = (TextView)findViewById(R.id.metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        metrics.setText(Metrics.getInstance().dump());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.release();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+
+        if (id == R.id.refresh) {
+            metrics.setText(Metrics.getInstance().dump());
+            return true;
+        } else if (id == R.id.save_metrics) {
+            loader.load(new AsyncLoader.Task<File>() {
+                @Override
+                public File load() {
+                    try {
+                        return Metrics.getInstance().dumpToFile(MetricsActivity.this);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        return null;
+                    }
+                }
+            }, new AsyncLoader.Callback<File>() {
+                @Override
+                public void onLoaded(File file) {
+                    Toast.makeText(MetricsActivity.this, file == null ? getString(R.string.metrics_save_failed)
+                            : getString(R.string.metrics_saved, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+                }
+            });
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -0,0 +1,112 @@
+package com.lchpatners.shadal;
+
+import java.util.Calendar;
+
+/**
+ * Opening hours as minutes of the day. The server sends hours as decimal strings
+ * like <code>"21.5"</code>, i.e. 21:30. These are parsed once when imported, into an
+ * opening minute in <code>[0, 1440)</code> and a closing minute after it. A place
+ * open overnight closes past <code>1440</code>, e.g. 17:00 ~ 02:00 is stored as
+ * <code>1020 ~ 1560</code>, so that a range never wraps around.
+ */
+public class OpeningHours {
+
+    /**
+     * Minutes of unknown hours, e.g. of a restaurant not fully loaded from the server yet.
+     */
+    public static final int UNKNOWN = -1;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Pseudo-table for {@link com.lchpatners.shadal.LiveQuery LiveQueries} which depend on
+     * whether places are open now. Recorded as changed when the time or the filter changes.
+     */
+    public static final String OPEN_NOW = "open_now";
+
+    /**
+     * @param hours Decimal hours, e.g. <code>"21.5"</code>.
+     * @return Minutes since midnight, or {@link #UNKNOWN} if not parsable.
+     */
+    public static int parseMinute(String hours) {
+        if (hours == null) {
+            return UNKNOWN;
+        }
+        try {
+            double value = Double.parseDouble(hours.trim());
+            if (value < 0 || value > 48) {
+                return UNKNOWN;
+            }
+            return (int)Math.round(value * 60);
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @param opening Decimal opening hour.
+     * @param closing Decimal closing hour.
+     * @return The opening and the closing minute as described {@link OpeningHours above},
+     * or both {@link #UNKNOWN}. Equal hours, like the <code>"0.0"</code> placeholders
+     * of {@link com.lchpatners.shadal.DatabaseHelper#updateCategory(org.json.JSONArray, String)
+     * updateCategory()}, are unknown.
+     */
+    public static int[] normalize(String opening, String closing) {
+        int open = parseMinute(opening);
+        int close = parseMinute(closing);
+        if (open == UNKNOWN || close == UNKNOWN || open == close) {
+            return new int[]{UNKNOWN, UNKNOWN};
+        }
+        open %= MINUTES_PER_DAY;
+        close %= MINUTES_PER_DAY;
+        if (close <= open) {
+            close += MINUTES_PER_DAY;
+        }
+        return new int[]{open, close};
+    }
+
+    /**
+     * @param open Normalized opening minute.
+     * @param close Normalized closing minute.
+     * @param minute Minute of the day to check.
+     * @return If open at the minute.
+     */
+    public static boolean isOpenAt(int open, int close, int minute) {
+        return open != UNKNOWN && ((open <= minute && minute < close)
+                || (open <= minute + MINUTES_PER_DAY && minute + MINUTES_PER_DAY < close));
+    }
+
+    /**
+     * The SQL version of {@link #isOpenAt(int, int, int)}. Both branches are ranges on
+     * <code>close_minute</code>, so they are answered by the index on it.
+     * @param minute Minute of the day to check.
+     * @return A boolean SQL expression over <code>open_minute</code> and <code>close_minute</code>.
+     */
+    public static String openAtClause(int minute) {
+        return String.format(
+                "((close_minute > %d AND open_minute <= %d) OR (close_minute > %d AND open_minute <= %d))",
+                minute, minute, minute + MINUTES_PER_DAY, minute + MINUTES_PER_DAY);
+    }
+
+    /**
+     * @param open Normalized opening minute.
+     * @param close Normalized closing minute.
+     * @return e.g. <code>"17:00 ~ 02:00"</code>, or <code>"-"</code> if unknown.
+     */
+    public static String format(int open, int close) {
+        if (open == UNKNOWN) {
+            return "-";
+        }
+        // Closing at midnight reads better as 24:00.
+        int displayedClose = close == MINUTES_PER_DAY ? close : close % MINUTES_PER_DAY;
+        return String.format("%02d:%02d ~ %02d:%02d",
+                open / 60, open % 60, displayedClose / 60, displayedClose % 60);
+    }
+
+    /**
+     * @return Minutes since midnight, in the device's time zone.
+     */
+    public static int now() {
+        Calendar calendar = Calendar.getInstance();
+        return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+}
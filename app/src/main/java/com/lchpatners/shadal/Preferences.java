@@ -1,115 +1,263 @@
-package com.lchpatners.shadal;
-
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.provider.Settings;
-import android.telephony.TelephonyManager;
-
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.UnsupportedEncodingException;
-import java.util.UUID;
-
-/**
- * Manages {@link android.content.SharedPreferences SharedPreferences}.
- * Saves campus meta-data and device UUID.
- */
-public class Preferences {
-
-    /**
-     * Preferences name.
-     */
-    private static final String PREFS_NAME = "Prefs";
-
-    public static void setCampus(Context context, JSONObject campus) {
-        try {
-            setCampusEnglishName(context, campus.getString("name_eng"));
-            setCampusKoreanName(context, campus.getString("name_kor"));
-            setCampusKoreanShortName(context, campus.getString("name_kor_short"));
-            setCampusEmail(context, campus.getString("email"));
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public static void setCampusEnglishName(Context context, String campus) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        SharedPreferences.Editor editor = settings.edit();
-        editor.putString("CAMPUS_ENG", campus);
-        editor.apply();
-    }
-
-    public static void setCampusKoreanName(Context context, String campus) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        SharedPreferences.Editor editor = settings.edit();
-        editor.putString("CAMPUS_KOR", campus);
-        editor.apply();
-    }
-
-    public static void setCampusKoreanShortName(Context context, String campus) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        SharedPreferences.Editor editor = settings.edit();
-        editor.putString("CAMPUS_KOR_SHORT", campus);
-        editor.apply();
-    }
-
-    public static void setCampusEmail(Context context, String email) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        SharedPreferences.Editor editor = settings.edit();
-        editor.putString("EMAIL", email);
-        editor.apply();
-    }
-
-    public static String getCampusEmail(Context context) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        return settings.getString("EMAIL", "campusdal@gmail.com");
-    }
-
-    public static String getCampusKoreanShortName(Context context) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        return settings.getString("CAMPUS_KOR_SHORT", null);
-    }
-
-    public static String getCampusEnglishName(Context context) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        return settings.getString("CAMPUS_ENG", null);
-    }
-
-    public static void setDeviceUuid(Context context, String id) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        SharedPreferences.Editor editor = settings.edit();
-        editor.putString("DEVICE_ID", id);
-        editor.apply();
-    }
-
-    /**
-     * Get device {@link java.util.UUID UUID} from {@link com.lchpatners.shadal.Preferences
-     * Preferences}, or generate newly when none is stored.
-     * @param context {@link android.content.Context}
-     * @return {@link java.util.UUID UUID} {@link java.lang.String String}.
-     */
-    public static String getDeviceUuid(Context context) {
-        SharedPreferences settings = context.getSharedPreferences(PREFS_NAME, 0);
-        final String id = settings.getString("DEVICE_ID", null);
-        UUID uuid = null;
-        if (id != null) {
-            uuid = UUID.fromString(id);
-        } else {
-            final String androidId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
-            try {
-                if (!"9774d56d682e549c".equals(androidId)) {
-                    uuid = UUID.nameUUIDFromBytes(androidId.getBytes("utf8"));
-                } else {
-                    final String deviceId = ((TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE)).getDeviceId();
-                    uuid = deviceId != null ? UUID.nameUUIDFromBytes(deviceId.getBytes("utf8")) : UUID.randomUUID();
-                }
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException(e);
-            } finally {
-                if (uuid != null) setDeviceUuid(context, uuid.toString());
-            }
-        }
-        return uuid.toString();
-    }
-}
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.provider.Settings;
+import android.telephony.TelephonyManager;
+import android.text.TextUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Manages {@link android.content.SharedPreferences SharedPreferences}.
+ * Saves campus meta-data and device UUID.
+ * <br>The preferences are read once per process into an immutable
+ * {@link com.lchpatners.shadal.Preferences.Snapshot Snapshot}, so getters only read a field.
+ * Setters write the changed fields in one commit and replace the snapshot.
+ */
+public class Preferences {
+
+    /**
+     * Notified after the user picks another campus, on the thread which set it.
+     */
+    public interface OnCampusChangeListener {
+        void onCampusChanged(Snapshot settings);
+    }
+
+    /**
+     * All preferences as of a moment. Never modified; a change makes a new one.
+     */
+    public static final class Snapshot {
+        public final String campusEnglishName;
+        public final String campusKoreanName;
+        public final String campusKoreanShortName;
+        public final String campusEmail;
+        public final boolean openNowOnly;
+        /**
+         * <code>null</code> until {@link Preferences#getDeviceUuid(android.content.Context)} generates it.
+         */
+        public final String deviceUuid;
+        /**
+         * When {@link com.lchpatners.shadal.DatabaseMaintenance DatabaseMaintenance} last ran,
+         * in milliseconds since the epoch, or 0 if never.
+         */
+        public final long lastMaintenance;
+
+        private Snapshot(String campusEnglishName, String campusKoreanName, String campusKoreanShortName,
+                         String campusEmail, boolean openNowOnly, String deviceUuid, long lastMaintenance) {
+            this.campusEnglishName = campusEnglishName;
+            this.campusKoreanName = campusKoreanName;
+            this.campusKoreanShortName = campusKoreanShortName;
+            this.campusEmail = campusEmail;
+            this.openNowOnly = openNowOnly;
+            this.deviceUuid = deviceUuid;
+            this.lastMaintenance = lastMaintenance;
+        }
+
+        private Snapshot(SharedPreferences settings) {
+            this(settings.getString("CAMPUS_ENG", null),
+                    settings.getString("CAMPUS_KOR", null),
+                    settings.getString("CAMPUS_KOR_SHORT", null),
+                    settings.getString("EMAIL", "campusdal@gmail.com"),
+                    settings.getBoolean("OPEN_NOW_ONLY", false),
+                    settings.getString("DEVICE_ID", null),
+                    settings.getLong("LAST_MAINTENANCE", 0));
+        }
+    }
+
+    /**
+     * Preferences name.
+     */
+    private static final String PREFS_NAME = "Prefs";
+
+    /**
+     * The current preferences, or <code>null</code> until first read.
+     * Replaced while holding the class lock.
+     */
+    private static volatile Snapshot snapshot;
+    private static final List<OnCampusChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param context {@link android.content.Context}
+     * @return The current preferences, read from the disk on first call only.
+     */
+    public static Snapshot getSnapshot(Context context) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (Preferences.class) {
+                if (snapshot == null) {
+                    snapshot = new Snapshot(getSettings(context));
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    public static void addOnCampusChangeListener(OnCampusChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeOnCampusChangeListener(OnCampusChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Save all fields of a campus in one commit, and notify the
+     * {@link com.lchpatners.shadal.Preferences.OnCampusChangeListener listeners}.
+     * @param context {@link android.content.Context}
+     * @param campus Campus from {@link com.lchpatners.shadal.Server Server}.
+     */
+    public static void setCampus(Context context, JSONObject campus) {
+        try {
+            setCampus(context, campus.getString("name_eng"), campus.getString("name_kor"),
+                    campus.getString("name_kor_short"), campus.getString("email"));
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void setCampusEnglishName(Context context, String campus) {
+        Snapshot current = getSnapshot(context);
+        setCampus(context, campus, current.campusKoreanName, current.campusKoreanShortName, current.campusEmail);
+    }
+
+    public static void setCampusKoreanName(Context context, String campus) {
+        Snapshot current = getSnapshot(context);
+        setCampus(context, current.campusEnglishName, campus, current.campusKoreanShortName, current.campusEmail);
+    }
+
+    public static void setCampusKoreanShortName(Context context, String campus) {
+        Snapshot current = getSnapshot(context);
+        setCampus(context, current.campusEnglishName, current.campusKoreanName, campus, current.campusEmail);
+    }
+
+    public static void setCampusEmail(Context context, String email) {
+        Snapshot current = getSnapshot(context);
+        setCampus(context, current.campusEnglishName, current.campusKoreanName, current.campusKoreanShortName, email);
+    }
+
+    private static void setCampus(Context context, String englishName, String koreanName,
+                                  String koreanShortName, String email) {
+        Snapshot updated;
+        boolean changed;
+        synchronized (Preferences.class) {
+            Snapshot current = getSnapshot(context);
+            changed = !TextUtils.equals(current.campusEnglishName, englishName)
+                    || !TextUtils.equals(current.campusKoreanName, koreanName)
+                    || !TextUtils.equals(current.campusKoreanShortName, koreanShortName)
+                    || !TextUtils.equals(current.campusEmail, email);
+            updated = new Snapshot(englishName, koreanName, koreanShortName, email,
+                    current.openNowOnly, current.deviceUuid, current.lastMaintenance);
+            getSettings(context).edit()
+                    .putString("CAMPUS_ENG", englishName)
+                    .putString("CAMPUS_KOR", koreanName)
+                    .putString("CAMPUS_KOR_SHORT", koreanShortName)
+                    .putString("EMAIL", email)
+                    .apply();
+            snapshot = updated;
+        }
+        if (!changed) return;
+        for (OnCampusChangeListener listener : listeners) {
+            listener.onCampusChanged(updated);
+        }
+    }
+
+    public static String getCampusEmail(Context context) {
+        return getSnapshot(context).campusEmail;
+    }
+
+    public static String getCampusKoreanShortName(Context context) {
+        return getSnapshot(context).campusKoreanShortName;
+    }
+
+    public static String getCampusEnglishName(Context context) {
+        return getSnapshot(context).campusEnglishName;
+    }
+
+    /**
+     * @param context {@link android.content.Context}
+     * @return If the restaurant lists show only the restaurants open now.
+     */
+    public static boolean isOpenNowOnly(Context context) {
+        return getSnapshot(context).openNowOnly;
+    }
+
+    /**
+     * Set the filter of the restaurant lists, which then reload.
+     * @param context {@link android.content.Context}
+     * @param openNowOnly If only the restaurants open now are to be shown.
+     */
+    public static void setOpenNowOnly(Context context, boolean openNowOnly) {
+        synchronized (Preferences.class) {
+            Snapshot current = getSnapshot(context);
+            snapshot = new Snapshot(current.campusEnglishName, current.campusKoreanName,
+                    current.campusKoreanShortName, current.campusEmail, openNowOnly, current.deviceUuid,
+                    current.lastMaintenance);
+            getSettings(context).edit().putBoolean("OPEN_NOW_ONLY", openNowOnly).apply();
+        }
+        ChangeTracker.getInstance().recordChange(OpeningHours.OPEN_NOW);
+    }
+
+    public static void setDeviceUuid(Context context, String id) {
+        synchronized (Preferences.class) {
+            Snapshot current = getSnapshot(context);
+            snapshot = new Snapshot(current.campusEnglishName, current.campusKoreanName,
+                    current.campusKoreanShortName, current.campusEmail, current.openNowOnly, id,
+                    current.lastMaintenance);
+            getSettings(context).edit().putString("DEVICE_ID", id).apply();
+        }
+    }
+
+    public static long getLastMaintenance(Context context) {
+        return getSnapshot(context).lastMaintenance;
+    }
+
+    public static void setLastMaintenance(Context context, long millis) {
+        synchronized (Preferences.class) {
+            Snapshot current = getSnapshot(context);
+            snapshot = new Snapshot(current.campusEnglishName, current.campusKoreanName,
+                    current.campusKoreanShortName, current.campusEmail, current.openNowOnly,
+                    current.deviceUuid, millis);
+            getSettings(context).edit().putLong("LAST_MAINTENANCE", millis).apply();
+        }
+    }
+
+    /**
+     * Get device {@link java.util.UUID UUID} from {@link com.lchpatners.shadal.Preferences
+     * Preferences}, or generate newly when none is stored.
+     * @param context {@link android.content.Context}
+     * @return {@link java.util.UUID UUID} {@link java.lang.String String}.
+     */
+    public static String getDeviceUuid(Context context) {
+        final String id = getSnapshot(context).deviceUuid;
+        if (id != null) {
+            return id;
+        }
+        UUID uuid = null;
+        final String androidId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        try {
+            if (!"9774d56d682e549c".equals(androidId)) {
+                uuid = UUID.nameUUIDFromBytes(androidId.getBytes("utf8"));
+            } else {
+                final String deviceId = ((TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE)).getDeviceId();
+                uuid = deviceId != null ? UUID.nameUUIDFromBytes(deviceId.getBytes("utf8")) : UUID.randomUUID();
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (uuid != null) setDeviceUuid(context, uuid.toString());
+        }
+        return uuid.toString();
+    }
+
+    private static SharedPreferences getSettings(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, 0);
+    }
+}
@@ -0,0 +1,184 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.Adapter Adapter} of
+ * {@link com.lchpatners.shadal.CheapestMenuActivity CheapestMenuActivity}. Displays
+ * menu items in a price range, cheapest first, loading a page at a time.
+ */
+public class PriceListAdapter extends DiffingAdapter<PriceListAdapter.ViewHolder> {
+
+    /**
+     * The number of items loaded at a time.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * {@link android.content.Context Context} this belongs to.
+     */
+    private Context context;
+    private String category;
+    private int minPrice;
+    private int maxPrice;
+    /**
+     * Items loaded so far, of all the pages.
+     */
+    private List<PricedMenu> loaded = new ArrayList<>();
+    /**
+     * If the last page was loaded.
+     */
+    private boolean exhausted = true;
+    /**
+     * Loads the pages after the first one. The first page is loaded by a
+     * {@link com.lchpatners.shadal.LiveQuery LiveQuery}, which starts over when menus change.
+     */
+    private final AsyncLoader pageLoader = new AsyncLoader();
+    private boolean loadingPage;
+    /**
+     * Incremented whenever the first page is loaded again, so that a page loaded
+     * for the previous items is not appended to the new ones.
+     */
+    private int generation;
+
+    public PriceListAdapter(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Start over with a new range.
+     * @param category Category to search in, or <code>null</code> for the whole campus.
+     * @param minPrice The minimum price, inclusive.
+     * @param maxPrice The maximum price, inclusive.
+     */
+    public void setRange(final String category, final int minPrice, final int maxPrice) {
+        this.category = category;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        observe(new LiveQuery<List<PricedMenu>>(new AsyncLoader.Task<List<PricedMenu>>() {
+            @Override
+            public List<PricedMenu> load() {
+                return DatabaseHelper.getInstance(context)
+                        .getMenusByPrice(category, minPrice, maxPrice, null, PAGE_SIZE);
+            }
+        }, new AsyncLoader.Callback<List<PricedMenu>>() {
+            @Override
+            public void onLoaded(List<PricedMenu> firstPage) {
+                generation++;
+                loadingPage = false;
+                loaded = new ArrayList<>(firstPage);
+                exhausted = firstPage.size() < PAGE_SIZE;
+                submit(toRows(loaded));
+            }
+        }, DatabaseHelper.MENUS, DatabaseHelper.RESTAURANTS));
+    }
+
+    /**
+     * Load the next page, unless it is being loaded or there are no more.
+     * Call this as the list is scrolled near to its end.
+     */
+    public void loadNextPage() {
+        if (loadingPage || exhausted || loaded.isEmpty()) return;
+        loadingPage = true;
+        final int pageGeneration = generation;
+        final PricedMenu after = loaded.get(loaded.size() - 1);
+        final String category = this.category;
+        final int minPrice = this.minPrice;
+        final int maxPrice = this.maxPrice;
+        pageLoader.load(new AsyncLoader.Task<List<PricedMenu>>() {
+            @Override
+            public List<PricedMenu> load() {
+                return DatabaseHelper.getInstance(context)
+                        .getMenusByPrice(category, minPrice, maxPrice, after, PAGE_SIZE);
+            }
+        }, new AsyncLoader.Callback<List<PricedMenu>>() {
+            @Override
+            public void onLoaded(List<PricedMenu> page) {
+                if (pageGeneration != generation) return;
+                loadingPage = false;
+                loaded.addAll(page);
+                exhausted = page.size() < PAGE_SIZE;
+                submit(toRows(loaded));
+            }
+        });
+    }
+
+    @Override
+    public void release() {
+        super.release();
+        pageLoader.release();
+    }
+
+    /**
+     * @param items Loaded items.
+     * @return A row per item.
+     */
+    private Row[] toRows(List<PricedMenu> items) {
+        String won = context.getString(R.string.won);
+        Row[] rows = new Row[items.size()];
+        // Times each entry was listed so far, as in MenuSections.
+        Map<Long, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < rows.length; i++) {
+            PricedMenu item = items.get(i);
+            Menu menu = item.getMenu();
+            Restaurant restaurant = item.getRestaurant();
+            String restaurantId = String.valueOf(restaurant.getServerId());
+            String price = String.valueOf(menu.getPrice());
+            // Menu rows are re-inserted on every update, so their ids are derived from the contents,
+            // along with how many identical entries came before.
+            long contents = ListDiff.hash(restaurantId, menu.getSection(), menu.getItem(), price);
+            Integer occurrence = occurrences.get(contents);
+            occurrence = occurrence == null ? 0 : occurrence + 1;
+            occurrences.put(contents, occurrence);
+            long id = ListDiff.hash(restaurantId, menu.getSection(), menu.getItem(), price,
+                    String.valueOf(occurrence)) & Long.MAX_VALUE;
+            rows[i] = Row.item(id, item, menu.getItem() + " · " + price + won, restaurant.getName());
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean areContentsTheSame(Row oldRow, Row newRow) {
+        return TextUtils.equals(oldRow.detail, newRow.detail);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        ViewHolder holder = new ViewHolder(inflater.inflate(R.layout.list_item_search, parent, false));
+        bindClick(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Row row = rows[position];
+        holder.name.setText(row.text);
+        holder.detail.setText(row.detail);
+    }
+
+    /**
+     * Holds the views of a row.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView name;
+        TextView detail;
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            name = (TextView)itemView.findViewById(R.id.name);
+            detail = (TextView)itemView.findViewById(R.id.detail);
+        }
+    }
+}
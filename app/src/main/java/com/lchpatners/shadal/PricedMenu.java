@@ -0,0 +1,25 @@
+package com.lchpatners.shadal;
+
+/**
+ * A {@link com.lchpatners.shadal.Menu Menu} item along with the
+ * {@link com.lchpatners.shadal.Restaurant Restaurant} selling it.
+ * @see com.lchpatners.shadal.DatabaseHelper#getMenusByPrice(String, int, int, PricedMenu, int)
+ */
+public class PricedMenu {
+
+    private Menu menu;
+    private Restaurant restaurant;
+
+    public PricedMenu(Menu menu, Restaurant restaurant) {
+        this.menu = menu;
+        this.restaurant = restaurant;
+    }
+
+    public Menu getMenu() {
+        return menu;
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+}
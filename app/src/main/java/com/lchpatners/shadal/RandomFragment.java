@@ -1,69 +1,100 @@
-package com.lchpatners.shadal;
-
-import android.app.Activity;
-import android.content.Intent;
-import android.os.Bundle;
-import android.support.v4.app.Fragment;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-
-/**
- * Shows a random {@link com.lchpatners.shadal.Restaurant Restaurant}
- * in a new {@link com.lchpatners.shadal.MenuListActivity MenuListActivity}
- * on clicking the dice button.
- */
-public class RandomFragment extends Fragment {
-
-    /**
-     * The {@link android.app.Activity Activity} to which this attaches.
-     */
-    private Activity activity;
-
-    public static RandomFragment newInstance() {
-        return new RandomFragment();
-    }
-
-    @Override
-    public void onAttach(Activity activity) {
-        super.onAttach(activity);
-        this.activity = activity;
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        if (getUserVisibleHint()) {
-            AnalyticsHelper helper = new AnalyticsHelper(activity.getApplication());
-            helper.sendScreen("아무거나 화면");
-        }
-    }
-
-    @Override
-    public void setUserVisibleHint(boolean isVisibleToUser) {
-        super.setUserVisibleHint(isVisibleToUser);
-        if (isVisibleToUser && isResumed()) {
-            onResume();
-        }
-    }
-
-    @Override
-    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        View view = inflater.inflate(R.layout.fragment_random, container, false);
-        view.findViewById(R.id.random_button).setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                Restaurant restaurant = DatabaseHelper.getInstance(activity).getRandomRestaurant();
-
-                AnalyticsHelper helper = new AnalyticsHelper(getActivity().getApplication());
-                helper.sendEvent("UX", "random_res_clicked", restaurant.getName());
-
-                Intent intent = new Intent(activity, MenuListActivity.class);
-                intent.putExtra("RESTAURANT", restaurant);
-                intent.putExtra("REFERRER", "RandomFragment");
-                startActivity(intent);
-            }
-        });
-        return view;
-    }
-}
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Random;
+
+/**
+ * Shows a random {@link com.lchpatners.shadal.Restaurant Restaurant}
+ * in a new {@link com.lchpatners.shadal.MenuListActivity MenuListActivity}
+ * on clicking the dice button.
+ */
+public class RandomFragment extends Fragment {
+
+    /**
+     * The {@link android.app.Activity Activity} to which this attaches.
+     */
+    private Activity activity;
+    /**
+     * Picks random restaurants off the UI thread.
+     */
+    private AsyncLoader loader;
+    /**
+     * Picks from the {@link com.lchpatners.shadal.CampusCatalog CampusCatalog}, once it is loaded.
+     */
+    private final Random random = new Random();
+
+    public static RandomFragment newInstance() {
+        return new RandomFragment();
+    }
+
+    @Override
+    public void onAttach(Activity activity) {
+        super.onAttach(activity);
+        this.activity = activity;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (getUserVisibleHint()) {
+            AnalyticsHelper helper = AnalyticsHelper.getInstance(activity.getApplication());
+            helper.sendScreen("아무거나 화면");
+        }
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (isVisibleToUser && isResumed()) {
+            onResume();
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_random, container, false);
+        loader = new AsyncLoader();
+        view.findViewById(R.id.random_button).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                loader.load(new AsyncLoader.Task<Restaurant>() {
+                    @Override
+                    public Restaurant load() {
+                        CampusCatalog catalog = CampusCatalog.get(Preferences.getCampusEnglishName(activity));
+                        if (catalog != null) {
+                            return catalog.randomRestaurant(random);
+                        }
+                        return DatabaseHelper.getInstance(activity).getRandomRestaurant();
+                    }
+                }, new AsyncLoader.Callback<Restaurant>() {
+                    @Override
+                    public void onLoaded(Restaurant restaurant) {
+                        if (restaurant == null) return;
+
+                        AnalyticsHelper helper = AnalyticsHelper.getInstance(activity.getApplication());
+                        helper.sendEvent("UX", "random_res_clicked", restaurant.getName());
+
+                        Intent intent = new Intent(activity, MenuListActivity.class);
+                        intent.putExtra("RESTAURANT", restaurant);
+                        intent.putExtra("REFERRER", "RandomFragment");
+                        startActivity(intent);
+                    }
+                });
+            }
+        });
+        return view;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        loader.release();
+    }
+}
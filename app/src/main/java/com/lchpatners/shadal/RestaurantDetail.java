@@ -0,0 +1,79 @@
+package com.lchpatners.shadal;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything {@link com.lchpatners.shadal.MenuListActivity MenuListActivity} shows of a
+ * restaurant. Held by {@link com.lchpatners.shadal.RestaurantDetailCache RestaurantDetailCache},
+ * and shared between screens, so it is never modified.
+ */
+public class RestaurantDetail {
+
+    private Restaurant restaurant;
+    /**
+     * Menus in the order displayed, or <code>null</code> if not loaded yet.
+     */
+    private List<Menu> menus;
+    /**
+     * Flyer urls, or <code>null</code> if not loaded yet.
+     */
+    private List<String> flyerUrls;
+
+    /**
+     * @param restaurant The restaurant row.
+     * @param menus Its menus in the order displayed, or <code>null</code> if not loaded.
+     * @param flyerUrls Its flyer urls, or <code>null</code> if not loaded.
+     */
+    public RestaurantDetail(Restaurant restaurant, List<Menu> menus, List<String> flyerUrls) {
+        this.restaurant = restaurant;
+        this.menus = menus == null ? null : Collections.unmodifiableList(menus);
+        this.flyerUrls = flyerUrls == null ? null : Collections.unmodifiableList(flyerUrls);
+    }
+
+    /**
+     * @return If the menus and the flyer urls are loaded, not only the restaurant row
+     * as the lists know it.
+     */
+    public boolean isComplete() {
+        return menus != null && flyerUrls != null;
+    }
+
+    /**
+     * @return An estimate of the bytes held, for the cache's budget.
+     */
+    public int sizeOf() {
+        // Object headers and fields, roughly.
+        int size = 128 + chars(restaurant.getName()) + chars(restaurant.getPhoneNumber())
+                + chars(restaurant.getCategory()) + chars(restaurant.getCouponString())
+                + chars(restaurant.getOpeningHour()) + chars(restaurant.getClosingHour())
+                + chars(restaurant.getHoursString()) + chars(restaurant.getUpdatedTime());
+        if (menus != null) {
+            for (Menu menu : menus) {
+                size += 48 + chars(menu.getItem()) + chars(menu.getSection());
+            }
+        }
+        if (flyerUrls != null) {
+            for (String url : flyerUrls) {
+                size += 24 + chars(url);
+            }
+        }
+        return size;
+    }
+
+    private static int chars(String string) {
+        return string == null ? 0 : 40 + 2 * string.length();
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    public List<Menu> getMenus() {
+        return menus;
+    }
+
+    public List<String> getFlyerUrls() {
+        return flyerUrls;
+    }
+}
@@ -0,0 +1,138 @@
+package com.lchpatners.shadal;
+
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of {@link com.lchpatners.shadal.RestaurantDetail RestaurantDetails}
+ * by the restaurants' server-side ids, bounded by an estimate of the bytes held.
+ * The lists put the restaurant rows they load, and
+ * {@link com.lchpatners.shadal.DatabaseHelper#getRestaurantDetail(int)
+ * DatabaseHelper.getRestaurantDetail(int)} completes them with the menus and flyer urls,
+ * so that opening a restaurant again reads nothing from the database.
+ * <br>Every write to the database invalidates the restaurants written. Loads read a
+ * {@link #generation()} before querying, and what they put is dropped if anything was
+ * invalidated meanwhile, so a load racing a write never caches the old data.
+ */
+public class RestaurantDetailCache {
+
+    /**
+     * The budget in bytes. A campus of a few hundred restaurants with their menus fits.
+     */
+    private static final int MAX_BYTES = 1024 * 1024;
+    /**
+     * How long a restaurant checked against the server is taken as up to date.
+     */
+    public static final long REFRESH_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static final RestaurantDetailCache instance = new RestaurantDetailCache();
+
+    private final LruCache<Integer, RestaurantDetail> details =
+            new LruCache<Integer, RestaurantDetail>(MAX_BYTES) {
+                @Override
+                protected int sizeOf(Integer serverId, RestaurantDetail detail) {
+                    return detail.sizeOf();
+                }
+            };
+    /**
+     * Incremented on every invalidation. Guarded by <code>this</code>.
+     */
+    private int generation;
+    /**
+     * When each restaurant was last checked against the server, by
+     * {@link com.lchpatners.shadal.Metrics#now() Metrics.now()}. Kept on
+     * {@link #invalidate(long) invalidation}, which the check's own write causes.
+     * Guarded by <code>this</code>.
+     */
+    private final Map<Integer, Long> refreshedAt = new HashMap<>();
+
+    public static RestaurantDetailCache getInstance() {
+        return instance;
+    }
+
+    private RestaurantDetailCache() {
+    }
+
+    /**
+     * @return The current generation, to be passed to {@link #put(RestaurantDetail, int)}
+     * or {@link #putRestaurants(java.util.List, int)} after loading.
+     */
+    public synchronized int generation() {
+        return generation;
+    }
+
+    /**
+     * @param serverId The restaurant's server-side id.
+     * @return The cached detail, which may not be {@link RestaurantDetail#isComplete() complete},
+     * or <code>null</code> if not cached.
+     */
+    public synchronized RestaurantDetail get(int serverId) {
+        return details.get(serverId);
+    }
+
+    /**
+     * Cache a detail, unless anything was invalidated since <code>loadedAt</code>.
+     * @param detail The detail loaded.
+     * @param loadedAt The {@link #generation()} read before loading.
+     */
+    public synchronized void put(RestaurantDetail detail, int loadedAt) {
+        if (loadedAt != generation) return;
+        details.put(detail.getRestaurant().getServerId(), detail);
+    }
+
+    /**
+     * Cache the restaurant rows of a list, keeping the menus and flyer urls cached
+     * along with them. Does nothing if anything was invalidated since <code>loadedAt</code>.
+     * @param restaurants The restaurants loaded.
+     * @param loadedAt The {@link #generation()} read before loading.
+     */
+    public synchronized void putRestaurants(List<Restaurant> restaurants, int loadedAt) {
+        if (loadedAt != generation) return;
+        for (Restaurant restaurant : restaurants) {
+            RestaurantDetail cached = details.get(restaurant.getServerId());
+            details.put(restaurant.getServerId(), cached == null ?
+                    new RestaurantDetail(restaurant, null, null) :
+                    new RestaurantDetail(restaurant, cached.getMenus(), cached.getFlyerUrls()));
+        }
+    }
+
+    /**
+     * @param serverId The restaurant's server-side id.
+     * @return If the restaurant was not checked against the server
+     * in the last {@link #REFRESH_INTERVAL_MS}.
+     */
+    public synchronized boolean needsRefresh(int serverId) {
+        Long at = refreshedAt.get(serverId);
+        return at == null || Metrics.now() - at >= REFRESH_INTERVAL_MS;
+    }
+
+    /**
+     * Take a restaurant as up to date for the next {@link #REFRESH_INTERVAL_MS}.
+     * @param serverId The restaurant's server-side id.
+     */
+    public synchronized void markRefreshed(int serverId) {
+        refreshedAt.put(serverId, Metrics.now());
+    }
+
+    /**
+     * Drop a restaurant, after it was written.
+     * @param serverId The restaurant's server-side id.
+     */
+    public synchronized void invalidate(long serverId) {
+        generation++;
+        details.remove((int)serverId);
+    }
+
+    /**
+     * Drop everything, e.g. when another campus is loaded.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        details.evictAll();
+        // Server-side ids are per campus.
+        refreshedAt.clear();
+    }
+}
@@ -1,152 +1,169 @@
-package com.lchpatners.shadal;
-
-import android.content.Context;
-import android.util.Log;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.BaseAdapter;
-import android.widget.TextView;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * {@link android.widget.Adapter Adapter} of {@link com.lchpatners.shadal.RestaurantListFragment
- * RestaurantListFragment}.
- */
-public class RestaurantListAdapter extends BaseAdapter {
-
-    /**
-     * Indicates that you need to get data from bookmarks,
-     * not by a specific category.
-     */
-    public static final String BOOKMARK = "bookmark";
-
-
-    /**
-     * Indicates the header view type.
-     * Used for {@link com.lchpatners.shadal.Restaurant#category categories},
-     * only when the data source is bookmarks.
-     */
-    private static final int HEADER = 0;
-    /**
-     * Indicates the item view type.
-     * Used for {@link com.lchpatners.shadal.Restaurant#name names}.
-     */
-    private static final int ITEM = 1;
-    /**
-     * The number of view types.
-     */
-    private static final int VIEW_TYPE_COUNT = 2;
-
-    /**
-     * {@link android.content.Context Context} this belongs to.
-     */
-    private Context context;
-    /**
-     * Data source of the list. Could either be a certain
-     * {@link com.lchpatners.shadal.Restaurant#category category}
-     * or bookmarks if this equals {@link #BOOKMARK}.
-     */
-    private String category;
-    /**
-     * List of all data, including both {@link #HEADER} and {@link #ITEM}.
-     */
-    private List<Object> data;
-    /**
-     * List of {@link #HEADER} data.
-     */
-    private List<String> headers;
-
-    public RestaurantListAdapter(Context context, String category) {
-        this.context = context;
-        this.category = category;
-        data = new ArrayList<>();
-        headers = new ArrayList<>();
-        reloadData();
-    }
-
-    @Override
-    public int getItemViewType(int position) {
-        return getItem(position) instanceof String
-                && headers.contains(getItem(position)) ? HEADER : ITEM;
-    }
-
-    @Override
-    public int getViewTypeCount() {
-        return VIEW_TYPE_COUNT;
-    }
-
-    /**
-     * Reload all menu data from {@link #category source}.
-     */
-    public void reloadData() {
-        data.clear();
-        headers.clear();
-        ArrayList<Restaurant> restaurants;
-        if (!category.equals(BOOKMARK)) {
-            restaurants = DatabaseHelper.getInstance(context).getRestaurantsByCategory(category);
-        } else {
-            restaurants = DatabaseHelper.getInstance(context).getFavoriteRestaurants();
-        }
-        String header = null;
-        for (Restaurant restaurant : restaurants) {
-            if (category.equals(BOOKMARK) && !restaurant.getCategory().equals(header)) {
-                header = restaurant.getCategory();
-                data.add(header);
-                headers.add(header);
-            }
-            data.add(restaurant);
-        }
-        notifyDataSetChanged();
-    }
-
-    @Override
-    public int getCount() {
-        return data.size();
-    }
-
-    @Override
-    public Object getItem(int position) {
-        return data.get(position);
-    }
-
-    @Override
-    public long getItemId(int position) {
-        return position;
-    }
-
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        if (convertView == null) {
-            LayoutInflater inflater = LayoutInflater.from(context);
-            switch (getItemViewType(position)) {
-                case HEADER:
-                    convertView = inflater.inflate(R.layout.list_header_menu, parent, false);
-                    break;
-                case ITEM:
-                    convertView = inflater.inflate(R.layout.list_item_restaurant, parent, false);
-                    break;
-            }
-        }
-        assert convertView != null;
-        switch (getItemViewType(position)) {
-            case HEADER:
-                TextView header = (TextView)convertView.findViewById(R.id.header);
-                header.setText((String)data.get(position));
-                break;
-            case ITEM:
-                Restaurant restaurant = (Restaurant)data.get(position);
-                TextView name = (TextView)convertView.findViewById(R.id.name);
-                name.setText(restaurant.getName());
-                convertView.findViewById(R.id.recent).setVisibility(restaurant.isNew() ? View.VISIBLE : View.GONE);
-                convertView.findViewById(R.id.coupon).setVisibility(restaurant.hasCoupon() ? View.VISIBLE : View.GONE);
-                convertView.findViewById(R.id.flyer).setVisibility(restaurant.hasFlyer() ? View.VISIBLE : View.GONE);
-                convertView.findViewById(R.id.bookmark).setVisibility(restaurant.isFavorite()
-                        && !category.equals("bookmark") ? View.VISIBLE : View.GONE);
-                break;
-        }
-        return convertView;
-    }
-}
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.Adapter Adapter} of
+ * {@link com.lchpatners.shadal.RestaurantListFragment RestaurantListFragment}.
+ */
+public class RestaurantListAdapter extends DiffingAdapter<RestaurantListAdapter.ViewHolder> {
+
+    /**
+     * Indicates that you need to get data from bookmarks,
+     * not by a specific category.
+     */
+    public static final String BOOKMARK = "bookmark";
+
+
+    /**
+     * {@link android.content.Context Context} this belongs to.
+     */
+    private Context context;
+    /**
+     * Data source of the list. Could either be a certain
+     * {@link com.lchpatners.shadal.Restaurant#category category}
+     * or bookmarks if this equals {@link #BOOKMARK}.
+     */
+    private String category;
+    /**
+     * If {@link #category} equals {@link #BOOKMARK}.
+     */
+    private boolean isBookmarks;
+
+    public RestaurantListAdapter(Context context, String category) {
+        this.context = context;
+        this.category = category;
+        isBookmarks = category.equals(BOOKMARK);
+        observeRestaurants();
+    }
+
+    /**
+     * Load all restaurant data from {@link #category source} in the background,
+     * and again whenever the restaurants table, the time or the
+     * {@link com.lchpatners.shadal.Preferences#isOpenNowOnly(android.content.Context) filter} changes.
+     * The restaurants open now come first.
+     * {@link com.lchpatners.shadal.Row#HEADER Headers} are used for categories,
+     * only when the data source is bookmarks. Only the rows which changed are bound again.
+     * <br>Once the {@link com.lchpatners.shadal.CampusCatalog CampusCatalog} is loaded, the rows
+     * are taken from it without reading the database, and its rows' values are its
+     * {@link com.lchpatners.shadal.CampusCatalog.Item Items} instead of
+     * {@link com.lchpatners.shadal.Restaurant Restaurants}.
+     */
+    private void observeRestaurants() {
+        observe(new LiveQuery<Row[]>(new AsyncLoader.Task<Row[]>() {
+            @Override
+            public Row[] load() {
+                ArrayList<Restaurant> restaurants;
+                int now = OpeningHours.now();
+                boolean openOnly = Preferences.isOpenNowOnly(context);
+                CampusCatalog catalog = CampusCatalog.get(Preferences.getCampusEnglishName(context));
+                if (catalog != null) {
+                    return isBookmarks ? catalog.rowsOfBookmarks(now, openOnly)
+                            : catalog.rowsOfCategory(category, now, openOnly);
+                }
+                if (!isBookmarks) {
+                    restaurants = DatabaseHelper.getInstance(context)
+                            .getRestaurantsByCategory(category, now, openOnly);
+                } else {
+                    restaurants = DatabaseHelper.getInstance(context).getFavoriteRestaurants(now, openOnly);
+                }
+                List<Row> rows = new ArrayList<>(restaurants.size());
+                int categoryId = -1;
+                for (Restaurant restaurant : restaurants) {
+                    if (isBookmarks && restaurant.getCategoryId() != categoryId) {
+                        categoryId = restaurant.getCategoryId();
+                        rows.add(Row.header(restaurant.getCategory()));
+                    }
+                    rows.add(Row.item(restaurant.getServerId(), restaurant, restaurant.getName(), null));
+                }
+                return rows.toArray(new Row[rows.size()]);
+            }
+        }, submitter, DatabaseHelper.RESTAURANTS, CampusCatalog.TABLE, OpeningHours.OPEN_NOW));
+    }
+
+    @Override
+    public boolean areContentsTheSame(Row oldRow, Row newRow) {
+        if (oldRow.viewType == Row.HEADER || oldRow == newRow) {
+            return true;
+        }
+        if (oldRow.value instanceof CampusCatalog.Item && newRow.value instanceof CampusCatalog.Item) {
+            return ((CampusCatalog.Item)oldRow.value).hasSameContents((CampusCatalog.Item)newRow.value);
+        }
+        if (oldRow.value instanceof Restaurant && newRow.value instanceof Restaurant) {
+            return ((Restaurant)oldRow.value).hasSameContents((Restaurant)newRow.value);
+        }
+        // Loaded from the database before the catalog was.
+        return false;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        ViewHolder holder = new ViewHolder(inflater.inflate(viewType == Row.HEADER ?
+                R.layout.list_header_menu : R.layout.list_item_restaurant, parent, false));
+        bindClick(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Row row = rows[position];
+        switch (row.viewType) {
+            case Row.HEADER:
+                holder.header.setText(row.text);
+                break;
+            case Row.ITEM:
+                boolean isNew, hasCoupon, hasFlyer, isFavorite;
+                if (row.value instanceof CampusCatalog.Item) {
+                    CampusCatalog.Item item = (CampusCatalog.Item)row.value;
+                    isNew = item.hasFlag(CampusCatalog.NEW);
+                    hasCoupon = item.hasFlag(CampusCatalog.COUPON);
+                    hasFlyer = item.hasFlag(CampusCatalog.FLYER);
+                    isFavorite = item.hasFlag(CampusCatalog.FAVORITE);
+                } else {
+                    Restaurant restaurant = (Restaurant)row.value;
+                    isNew = restaurant.isNew();
+                    hasCoupon = restaurant.hasCoupon();
+                    hasFlyer = restaurant.hasFlyer();
+                    isFavorite = restaurant.isFavorite();
+                }
+                holder.name.setText(row.text);
+                holder.recent.setVisibility(isNew ? View.VISIBLE : View.GONE);
+                holder.coupon.setVisibility(hasCoupon ? View.VISIBLE : View.GONE);
+                holder.flyer.setVisibility(hasFlyer ? View.VISIBLE : View.GONE);
+                holder.bookmark.setVisibility(isFavorite && !isBookmarks ? View.VISIBLE : View.GONE);
+                break;
+        }
+    }
+
+    /**
+     * Holds the views of a row, either a {@link com.lchpatners.shadal.Row#HEADER HEADER}
+     * or an {@link com.lchpatners.shadal.Row#ITEM ITEM}.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView header;
+        TextView name;
+        View recent;
+        View coupon;
+        View flyer;
+        View bookmark;
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            header = (TextView)itemView.findViewById(R.id.header);
+            name = (TextView)itemView.findViewById(R.id.name);
+            recent = itemView.findViewById(R.id.recent);
+            coupon = itemView.findViewById(R.id.coupon);
+            flyer = itemView.findViewById(R.id.flyer);
+            bookmark = itemView.findViewById(R.id.bookmark);
+        }
+    }
+}
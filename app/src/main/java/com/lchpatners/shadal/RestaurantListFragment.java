@@ -1,96 +1,136 @@
-package com.lchpatners.shadal;
-
-import android.app.Activity;
-import android.content.Intent;
-import android.os.Bundle;
-import android.support.v4.app.Fragment;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ListView;
-
-/**
- * Displays the restaurants of a category, or from the bookmarks.
- */
-public class RestaurantListFragment extends Fragment {
-
-    /**
-     * The lastly instantiated instance of
-     * {@link com.lchpatners.shadal.RestaurantListAdapter
-     * RestaurantListAdapter}
-     */
-    public static RestaurantListAdapter latestAdapter;
-
-    /**
-     * The {@link android.app.Activity Activity} to which this attaches.
-     */
-    private Activity activity;
-
-    public static RestaurantListFragment newInstance(String category) {
-        RestaurantListFragment rlf = new RestaurantListFragment();
-        Bundle args = new Bundle();
-        args.putString("CATEGORY", category);
-        rlf.setArguments(args);
-        return rlf;
-    }
-
-    @Override
-    public void onAttach(Activity activity) {
-        super.onAttach(activity);
-        this.activity = activity;
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        if (getUserVisibleHint()) {
-            AnalyticsHelper helper = new AnalyticsHelper(activity.getApplication());
-            helper.sendScreen("음식점 리스트 화면");
-        }
-    }
-
-    @Override
-    public void setUserVisibleHint(boolean isVisibleToUser) {
-        super.setUserVisibleHint(isVisibleToUser);
-        if (isVisibleToUser && isResumed()) {
-            AnalyticsHelper helper = new AnalyticsHelper(activity.getApplication());
-            helper.sendScreen("음식점 리스트 화면");
-        }
-    }
-
-    @Override
-    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        final String category = getArguments().getString("CATEGORY");
-
-        RestaurantListAdapter adapter = new RestaurantListAdapter(activity, category);
-        latestAdapter = adapter;
-
-        Server server = new Server(activity);
-        server.updateCategory(category);
-
-        View view = inflater.inflate(R.layout.list_view, container, false);
-        ListView listView = (ListView)view.findViewById(R.id.list_view);
-        listView.setAdapter(adapter);
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                if (latestAdapter.getItem(position) instanceof Restaurant) {
-                    Restaurant restaurant = (Restaurant)latestAdapter.getItem(position);
-
-                    AnalyticsHelper helper = new AnalyticsHelper(getActivity().getApplication());
-                    helper.sendEvent("UX", "res_clicked", restaurant.getName());
-
-                    Intent intent = new Intent(activity, MenuListActivity.class);
-                    intent.putExtra("RESTAURANT", restaurant);
-                    intent.putExtra("REFERRER", "RestaurantListFragment");
-                    startActivity(intent);
-                }
-            }
-        });
-
-        return view;
-    }
-
-
-}
+package com.lchpatners.shadal;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Displays the restaurants of a category, or from the bookmarks.
+ */
+public class RestaurantListFragment extends Fragment {
+
+    /**
+     * {@link com.lchpatners.shadal.Metrics Metrics} span from a tap on a category
+     * to its restaurants drawn.
+     */
+    public static final String TAP_TO_LIST = "ui.tap_to_restaurants_ms";
+
+    /**
+     * The {@link android.app.Activity Activity} to which this attaches.
+     */
+    private Activity activity;
+    /**
+     * {@link com.lchpatners.shadal.RestaurantListAdapter RestaurantListAdapter} of this.
+     */
+    private RestaurantListAdapter adapter;
+
+    public static RestaurantListFragment newInstance(String category) {
+        RestaurantListFragment rlf = new RestaurantListFragment();
+        Bundle args = new Bundle();
+        args.putString("CATEGORY", category);
+        rlf.setArguments(args);
+        return rlf;
+    }
+
+    @Override
+    public void onAttach(Activity activity) {
+        super.onAttach(activity);
+        this.activity = activity;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (getUserVisibleHint()) {
+            AnalyticsHelper helper = AnalyticsHelper.getInstance(activity.getApplication());
+            helper.sendScreen("음식점 리스트 화면");
+        }
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        if (isVisibleToUser && isResumed()) {
+            AnalyticsHelper helper = AnalyticsHelper.getInstance(activity.getApplication());
+            helper.sendScreen("음식점 리스트 화면");
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        final String category = getArguments().getString("CATEGORY");
+
+        adapter = new RestaurantListAdapter(activity, category);
+
+        // A first-run import writes the category anyway, and is told to write it first.
+        Server.setViewedCategory(category);
+        if (!Server.isImporting()) {
+            Server server = new Server(activity);
+            server.updateCategory(category);
+        }
+
+        View view = inflater.inflate(R.layout.recycler_view, container, false);
+        final RecyclerView recyclerView = (RecyclerView)view.findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.addItemDecoration(new DividerItemDecoration(activity));
+        recyclerView.setAdapter(adapter);
+        adapter.releaseWith(view);
+        adapter.runOnFirstLoad(new Runnable() {
+            @Override
+            public void run() {
+                Metrics.getInstance().endSpanOnNextDraw(recyclerView, TAP_TO_LIST);
+            }
+        });
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                onItemRangeInserted(0, adapter.getItemCount());
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                if (adapter.getItemCount() > 0) {
+                    adapter.unregisterAdapterDataObserver(this);
+                    Metrics.getInstance().endSpanOnNextDraw(recyclerView, Server.FIRST_USEFUL_LIST);
+                }
+            }
+        });
+        adapter.setOnItemClickListener(new DiffingAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(Object item) {
+                if (item instanceof CampusCatalog.Item) {
+                    item = ((CampusCatalog.Item)item).open();
+                }
+                if (item instanceof Restaurant) {
+                    Restaurant restaurant = (Restaurant)item;
+
+                    AnalyticsHelper helper = AnalyticsHelper.getInstance(getActivity().getApplication());
+                    helper.sendEvent("UX", "res_clicked", restaurant.getName());
+                    Metrics.getInstance().startSpan(MenuListActivity.TAP_TO_MENUS);
+
+                    Intent intent = new Intent(activity, MenuListActivity.class);
+                    intent.putExtra("RESTAURANT", restaurant);
+                    intent.putExtra("REFERRER", "RestaurantListFragment");
+                    startActivity(intent);
+                }
+            }
+        });
+
+        return view;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Unless another list is viewed since.
+        if (getArguments().getString("CATEGORY").equals(Server.getViewedCategory())) {
+            Server.setViewedCategory(null);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.lchpatners.shadal;
+
+/**
+ * A precomputed row of a sectioned list. Everything a row needs for binding
+ * is resolved when the rows are built, so binding is a few field reads.
+ */
+public class Row {
+
+    /**
+     * Indicates the header view type.
+     */
+    public static final int HEADER = 0;
+    /**
+     * Indicates the item view type.
+     */
+    public static final int ITEM = 1;
+    /**
+     * The number of view types.
+     */
+    public static final int VIEW_TYPE_COUNT = 2;
+
+    /**
+     * Either {@link #HEADER} or {@link #ITEM}.
+     */
+    public final int viewType;
+    /**
+     * An id which stays the same for the same real-world item across reloads.
+     */
+    public final long id;
+    /**
+     * The model this row displays, e.g. a {@link com.lchpatners.shadal.Restaurant Restaurant}.
+     * The header label for headers.
+     */
+    public final Object value;
+    /**
+     * The main text of the row.
+     */
+    public final String text;
+    /**
+     * The secondary text of the row, if any. e.g. a formatted price.
+     */
+    public final String detail;
+
+    private Row(int viewType, long id, Object value, String text, String detail) {
+        this.viewType = viewType;
+        this.id = id;
+        this.value = value;
+        this.text = text;
+        this.detail = detail;
+    }
+
+    /**
+     * @param label The header label.
+     * @return A header row. Its id is negative, so it never collides with an item's.
+     */
+    public static Row header(String label) {
+        return new Row(HEADER, ListDiff.hash(label) | Long.MIN_VALUE, label, label, null);
+    }
+
+    /**
+     * @param id A non-negative stable id.
+     * @param value The model.
+     * @param text The main text.
+     * @param detail The secondary text, or <code>null</code>.
+     * @return An item row.
+     */
+    public static Row item(long id, Object value, String text, String detail) {
+        return new Row(ITEM, id, value, text, detail);
+    }
+}
@@ -0,0 +1,119 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bookmarks of a campus kept outside its database, in a small file of server-side ids, one per
+ * line, so they survive the database being deleted, e.g. when
+ * {@link com.lchpatners.shadal.CampusStorage CampusStorage} evicts it. The next import of the
+ * campus bookmarks them again.
+ */
+public class SavedBookmarks {
+
+    private static final String DIR = "bookmarks";
+
+    /**
+     * Add to the saved bookmarks of a campus.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     * @param serverIds Server-side ids of the bookmarked restaurants.
+     * @throws IOException If the file could not be written, in which case it is left as it was.
+     */
+    public static synchronized void save(Context context, String campus, Collection<Integer> serverIds)
+            throws IOException {
+        Set<Integer> all = load(context, campus);
+        all.addAll(serverIds);
+        File file = file(context, campus);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Written aside and renamed, so a crash never leaves half a file.
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            Writer writer = new OutputStreamWriter(out, "UTF-8");
+            for (int serverId : all) {
+                writer.write(Integer.toString(serverId));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+    }
+
+    /**
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     * @return Server-side ids of the saved bookmarks, empty if there are none.
+     */
+    public static synchronized Set<Integer> load(Context context, String campus) {
+        Set<Integer> serverIds = new HashSet<>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file(context, campus)), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    serverIds.add(Integer.parseInt(line));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // None saved.
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return serverIds;
+    }
+
+    /**
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     * @return If any bookmarks of the campus are saved. Reads the disk.
+     */
+    public static synchronized boolean exists(Context context, String campus) {
+        return file(context, campus).exists();
+    }
+
+    /**
+     * Forget the saved bookmarks of a campus, once they are back in its database.
+     * @param context {@link android.content.Context Context}
+     * @param campus English name of the campus.
+     */
+    public static synchronized void delete(Context context, String campus) {
+        file(context, campus).delete();
+    }
+
+    private static File file(Context context, String campus) {
+        return new File(new File(context.getFilesDir(), DIR), campus);
+    }
+}
@@ -0,0 +1,72 @@
+package com.lchpatners.shadal;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.ActionBarActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+/**
+ * Searches restaurants by their names and menu items as the user types.
+ * @see com.lchpatners.shadal.DatabaseHelper#search(String, int) DatabaseHelper.search(String, int)
+ */
+public class SearchActivity extends ActionBarActivity {
+
+    /**
+     * {@link com.lchpatners.shadal.SearchListAdapter SearchListAdapter} of the results.
+     */
+    private SearchListAdapter adapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        RecyclerView recyclerView = (RecyclerView)findViewById(R.id.search_results);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.addItemDecoration(new DividerItemDecoration(this));
+        adapter = new SearchListAdapter(this);
+        recyclerView.setAdapter(adapter);
+        adapter.releaseWith(recyclerView);
+        adapter.setOnItemClickListener(new DiffingAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(Object item) {
+                Restaurant restaurant = ((SearchResult)item).getRestaurant();
+
+                AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+                helper.sendEvent("UX", "search_res_clicked", restaurant.getName());
+
+                Intent intent = new Intent(SearchActivity.this, MenuListActivity.class);
+                intent.putExtra("RESTAURANT", restaurant);
+                intent.putExtra("REFERRER", "SearchActivity");
+                startActivity(intent);
+            }
+        });
+
+        EditText query = (EditText)findViewById(R.id.search_query);
+        query.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                adapter.setQuery(s.toString());
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        AnalyticsHelper helper = AnalyticsHelper.getInstance(getApplication());
+        helper.sendScreen("검색 화면");
+    }
+}
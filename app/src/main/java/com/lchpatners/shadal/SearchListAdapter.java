@@ -0,0 +1,99 @@
+package com.lchpatners.shadal;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.Adapter Adapter} of
+ * {@link com.lchpatners.shadal.SearchActivity SearchActivity}. Displays
+ * {@link com.lchpatners.shadal.SearchResult SearchResults}.
+ */
+public class SearchListAdapter extends DiffingAdapter<SearchListAdapter.ViewHolder> {
+
+    /**
+     * The maximum number of results shown.
+     */
+    private static final int LIMIT = 100;
+
+    /**
+     * {@link android.content.Context Context} this belongs to.
+     */
+    private Context context;
+    /**
+     * The query as the user typed it.
+     */
+    private String query = "";
+
+    public SearchListAdapter(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Search again with a new query, cancelling the search in progress.
+     * @param query The query as the user typed it.
+     */
+    public void setQuery(String query) {
+        if (this.query.equals(query)) return;
+        this.query = query;
+        final String searched = query;
+        final String won = context.getString(R.string.won);
+        observe(new LiveQuery<Row[]>(new AsyncLoader.Task<Row[]>() {
+            @Override
+            public Row[] load() {
+                List<SearchResult> results = DatabaseHelper.getInstance(context).search(searched, LIMIT);
+                Row[] rows = new Row[results.size()];
+                for (int i = 0; i < rows.length; i++) {
+                    SearchResult result = results.get(i);
+                    Restaurant restaurant = result.getRestaurant();
+                    Menu menu = result.getMenu();
+                    String detail = menu == null ? restaurant.getCategory()
+                            : menu.getPrice() == 0 ? menu.getItem()
+                            : menu.getItem() + " " + menu.getPrice() + won;
+                    rows[i] = Row.item(restaurant.getServerId(), result, restaurant.getName(), detail);
+                }
+                return rows;
+            }
+        }, submitter, DatabaseHelper.RESTAURANTS, DatabaseHelper.MENUS));
+    }
+
+    @Override
+    public boolean areContentsTheSame(Row oldRow, Row newRow) {
+        return TextUtils.equals(oldRow.text, newRow.text) && TextUtils.equals(oldRow.detail, newRow.detail);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        ViewHolder holder = new ViewHolder(inflater.inflate(R.layout.list_item_search, parent, false));
+        bindClick(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Row row = rows[position];
+        holder.name.setText(row.text);
+        holder.detail.setText(row.detail);
+    }
+
+    /**
+     * Holds the views of a row.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView name;
+        TextView detail;
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            name = (TextView)itemView.findViewById(R.id.name);
+            detail = (TextView)itemView.findViewById(R.id.detail);
+        }
+    }
+}
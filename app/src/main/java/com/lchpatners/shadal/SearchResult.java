@@ -0,0 +1,69 @@
+package com.lchpatners.shadal;
+
+/**
+ * A restaurant found by {@link com.lchpatners.shadal.DatabaseHelper#search(String, int)
+ * DatabaseHelper.search()}, along with why it was found.
+ */
+public class SearchResult {
+
+    /**
+     * The restaurant's name matched.
+     */
+    public static final int NAME_MATCH = 2;
+    /**
+     * The restaurant's name starts with the query.
+     */
+    public static final int NAME_PREFIX_MATCH = 3;
+    /**
+     * Only some menu items matched.
+     */
+    public static final int MENU_MATCH = 1;
+
+    private Restaurant restaurant;
+    /**
+     * The cheapest of the matching menu items, or <code>null</code> if none matched.
+     */
+    private Menu menu;
+    /**
+     * How the restaurant matched, e.g. {@link #NAME_MATCH}. The higher, the better.
+     */
+    private int score;
+    /**
+     * The number of matching menu items.
+     */
+    private int menuMatches;
+
+    /**
+     * @param restaurant The restaurant found.
+     * @param score How the restaurant matched, e.g. {@link #NAME_MATCH}.
+     * @param menuMatches The number of matching menu items.
+     */
+    public SearchResult(Restaurant restaurant, int score, int menuMatches) {
+        this.restaurant = restaurant;
+        this.score = score;
+        this.menuMatches = menuMatches;
+    }
+
+    /**
+     * @param menu The cheapest matching {@link com.lchpatners.shadal.Menu Menu} of the restaurant.
+     */
+    public void setMenu(Menu menu) {
+        this.menu = menu;
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    public Menu getMenu() {
+        return menu;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMenuMatches() {
+        return menuMatches;
+    }
+}
@@ -0,0 +1,111 @@
+package com.lchpatners.shadal;
+
+/**
+ * Turns names into the tokens of the full-text search index. The SQLite tokenizer
+ * splits on ASCII punctuation and spaces only, and FTS matches whole tokens or their
+ * prefixes. Korean names are mostly compounds like "해물짬뽕", so every suffix of a word
+ * is indexed as well, and a prefix query "짬뽕*" then finds the word from its middle.
+ * The initial consonants (chosung) of Hangul syllables are indexed the same way,
+ * so that "ㅉㅃ" finds "해물짬뽕" too.
+ */
+public class SearchTokens {
+
+    private static final char HANGUL_FIRST = '가';
+    private static final char HANGUL_LAST = '힣';
+    /**
+     * Syllables sharing an initial consonant, i.e. 21 vowels times 28 final consonants.
+     */
+    private static final int SYLLABLES_PER_CHOSUNG = 21 * 28;
+    private static final char[] CHOSUNG = {
+            'ㄱ', 'ㄲ', 'ㄴ', 'ㄷ', 'ㄸ', 'ㄹ', 'ㅁ', 'ㅂ', 'ㅃ', 'ㅅ',
+            'ㅆ', 'ㅇ', 'ㅈ', 'ㅉ', 'ㅊ', 'ㅋ', 'ㅌ', 'ㅍ', 'ㅎ'
+    };
+    /**
+     * Suffixes of longer words are not indexed beyond this length,
+     * which no one types into a search box anyway.
+     */
+    private static final int MAX_WORD_LENGTH = 16;
+
+    /**
+     * @param text A name, e.g. "해물 짬뽕".
+     * @return The words and all their suffixes, separated by spaces.
+     */
+    public static String suffixes(String text) {
+        StringBuilder builder = new StringBuilder();
+        for (String word : words(text)) {
+            if (word.length() > MAX_WORD_LENGTH) {
+                word = word.substring(0, MAX_WORD_LENGTH);
+            }
+            for (int i = 0; i < word.length(); i++) {
+                builder.append(word, i, word.length()).append(' ');
+            }
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * @param text A name, e.g. "해물 짬뽕".
+     * @return {@link #suffixes(String) Suffixes} of the initial consonants, e.g. "ㅎㅁ ㅁ ㅉㅃ ㅃ".
+     * Characters other than Hangul syllables are kept as they are.
+     */
+    public static String chosungSuffixes(String text) {
+        return suffixes(chosung(text));
+    }
+
+    /**
+     * @param text Any text.
+     * @return The text with every Hangul syllable replaced by its initial consonant.
+     */
+    public static String chosung(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= HANGUL_FIRST && c <= HANGUL_LAST) {
+                chars[i] = CHOSUNG[(c - HANGUL_FIRST) / SYLLABLES_PER_CHOSUNG];
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param query A search query.
+     * @return If the query has initial consonants only, e.g. "ㅉㅃ".
+     */
+    public static boolean isChosungQuery(String query) {
+        boolean any = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= 'ㄱ' && c <= 'ㅎ') {
+                any = true;
+            } else if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Build an FTS <code>MATCH</code> expression, which requires every word of the query
+     * as a prefix of some token of the column.
+     * @param column The column to match against.
+     * @param query A search query as the user typed it.
+     * @return The expression, or <code>null</code> if the query has no words.
+     */
+    public static String matchExpression(String column, String query) {
+        StringBuilder builder = new StringBuilder();
+        for (String word : words(query)) {
+            builder.append(column).append(':').append(word).append("* ");
+        }
+        return builder.length() == 0 ? null : builder.toString().trim();
+    }
+
+    /**
+     * @param text Any text.
+     * @return Lower-cased words, split on anything but letters and digits,
+     * the way the SQLite tokenizer would, so they are also safe in a query.
+     */
+    private static String[] words(String text) {
+        String trimmed = text.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+    }
+}
@@ -13,13 +13,13 @@ import android.widget.Toast;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
@@ -27,7 +27,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Communicates with the server.
@@ -46,12 +48,17 @@ public class Server {
     /**
      * The server's domain name.
      */
-    public static final String BASE_URL = "http://www.shadal.kr";
+    public static final String DEFAULT_BASE_URL = "http://www.shadal.kr";
 
     /**
      * popup server url
      */
-    public static final String POPUP_URL = "http://52.68.248.249/popup";
+    public static final String DEFAULT_POPUP_URL = "http://52.68.248.249/popup";
+
+    /**
+     * Connect and read timeout of every call, unless {@link #setTimeout(int) set}.
+     */
+    public static final int DEFAULT_TIMEOUT_MS = 20000;
 
     public static final String POPUP_LIST = "/curList";
 
@@ -86,28 +93,155 @@ public class Server {
      * App version checking directory.
      */
     public static final String APP_MINIMUM_VERSION = "/appMinimumVersion";
+    /**
+     * Call log directory.
+     */
+    public static final String NEW_CALL = "/new_call";
+
+    /**
+     * The number of restaurants committed at a time by {@link #importAll()}.
+     */
+    public static final int IMPORT_CHUNK_SIZE = 25;
+
+    /**
+     * {@link com.lchpatners.shadal.Metrics Metrics} span from the start of {@link #importAll()}
+     * to the first restaurant list drawn with any restaurant in it.
+     */
+    public static final String FIRST_USEFUL_LIST = "ui.first_useful_list_ms";
+
+    private static volatile String baseUrl = DEFAULT_BASE_URL;
+    private static volatile String popupUrl = DEFAULT_POPUP_URL;
+    private static volatile int timeoutMillis = DEFAULT_TIMEOUT_MS;
+    /**
+     * The category whose restaurants {@link #importAll()} commits first, if any.
+     */
+    private static volatile String viewedCategory;
+    /**
+     * The campus {@link #importAll()} is importing, or <code>null</code> if none.
+     * Guarded by <code>Server.class</code>.
+     */
+    private static String importingCampus;
+    /**
+     * The campus whose import was requested while another was running, to be imported
+     * once that stops, or <code>null</code>. Guarded by <code>Server.class</code>.
+     */
+    private static String requestedCampus;
+    private static ImportListener importListener;
+
+    /**
+     * Told on the main thread how far {@link #importAll()} has come.
+     */
+    public interface ImportListener {
+        /**
+         * @param done Steps done: the old version's bookmarks migrated, then each chunk or
+         *             category of restaurants committed.
+         * @param total Steps in all, known once the restaurant list is received.
+         *              Equals <code>done</code> once the import has ended, successfully or not.
+         */
+        void onImportProgress(int done, int total);
+    }
 
     /**
      * {@link android.content.Context Context} this belongs to.
      */
     private Context context;
+    /**
+     * The task {@link #importAll()} runs, to publish its progress through.
+     */
+    private ImportTask importTask;
 
     public Server(Context context) {
         this.context = context;
     }
 
+    /**
+     * @return Base of every path but the popups', e.g. {@link #CAMPUSES}.
+     */
+    public static String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return Base of the popup paths, e.g. {@link #POPUP_LIST}.
+     */
+    public static String getPopupUrl() {
+        return popupUrl;
+    }
+
+    /**
+     * Point every call made from now on at other servers, e.g. a local stand-in in tests.
+     * @param baseUrl Replaces {@link #DEFAULT_BASE_URL}.
+     * @param popupUrl Replaces {@link #DEFAULT_POPUP_URL}.
+     */
+    public static void setEndpoints(String baseUrl, String popupUrl) {
+        Server.baseUrl = baseUrl;
+        Server.popupUrl = popupUrl;
+    }
+
+    /**
+     * @return Connect and read timeout of the calls, in milliseconds.
+     */
+    public static int getTimeout() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis Connect and read timeout of the calls made from now on.
+     */
+    public static void setTimeout(int timeoutMillis) {
+        Server.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param category The category the user is viewing, to be {@link #importAll() imported}
+     *                 before the others, or <code>null</code> if none is.
+     */
+    public static void setViewedCategory(String category) {
+        viewedCategory = category;
+    }
+
+    /**
+     * @return The category set by {@link #setViewedCategory(String)}.
+     */
+    public static String getViewedCategory() {
+        return viewedCategory;
+    }
+
+    /**
+     * @param listener Told of the progress of {@link #importAll()} from now on, in place of
+     *                 the one set before, or <code>null</code> for none. Must be called on
+     *                 the main thread.
+     */
+    public static void setImportListener(ImportListener listener) {
+        importListener = listener;
+    }
+
+    /**
+     * @return If {@link #importAll()} is running, which then writes every restaurant.
+     */
+    public static synchronized boolean isImporting() {
+        return importingCampus != null;
+    }
+
     /**
      * Make a service call with the arguments and return the result.
+     * The latency, the size of the response and failures are recorded per endpoint
+     * in {@link com.lchpatners.shadal.Metrics Metrics}.
      *
      * @param url    URL to fetch.
      * @param method HTTP method.
      * @param params HTTP request parameters.
-     * @return The content of the request.
+     * @return The content of the request, or <code>null</code> if it failed.
      */
     public static String makeServiceCall(String url, int method, List<NameValuePair> params) {
+        Metrics metrics = Metrics.getInstance();
+        String endpoint = "server." + Uri.parse(url).getPath();
+        long start = Metrics.now();
         String result;
         try {
             DefaultHttpClient client = new DefaultHttpClient();
+            HttpConnectionParams.setConnectionTimeout(client.getParams(), timeoutMillis);
+            HttpConnectionParams.setSoTimeout(client.getParams(), timeoutMillis);
             HttpEntity entity;
             HttpResponse response = null;
             switch (method) {
@@ -127,15 +261,58 @@ public class Server {
                     break;
             }
             assert response != null;
+            if (response.getStatusLine().getStatusCode() >= 400) {
+                metrics.counter(endpoint + ".failures").increment();
+                return null;
+            }
             entity = response.getEntity();
-            result = entity == null ? null : EntityUtils.toString(entity, HTTP.UTF_8);
+            if (entity == null) {
+                result = null;
+            } else {
+                byte[] bytes = EntityUtils.toByteArray(entity);
+                metrics.histogram(endpoint + ".bytes").update(bytes.length);
+                result = new String(bytes, HTTP.UTF_8);
+            }
         } catch (Exception e) {
             e.printStackTrace();
+            metrics.counter(endpoint + ".failures").increment();
             return null;
+        } finally {
+            metrics.recordSince(endpoint + ".latency_ms", start);
         }
         return result;
     }
 
+    /**
+     * Parse a response, recording the time taken in {@link com.lchpatners.shadal.Metrics Metrics}.
+     * @param json The response.
+     * @return The parsed array.
+     * @throws JSONException If the response is malformed.
+     */
+    private static JSONArray parseArray(String json) throws JSONException {
+        long start = Metrics.now();
+        try {
+            return new JSONArray(json);
+        } finally {
+            Metrics.getInstance().recordSince("json.parse_ms", start);
+        }
+    }
+
+    /**
+     * Parse a response, recording the time taken in {@link com.lchpatners.shadal.Metrics Metrics}.
+     * @param json The response.
+     * @return The parsed object.
+     * @throws JSONException If the response is malformed.
+     */
+    private static JSONObject parseObject(String json) throws JSONException {
+        long start = Metrics.now();
+        try {
+            return new JSONObject(json);
+        } finally {
+            Metrics.getInstance().recordSince("json.parse_ms", start);
+        }
+    }
+
     /**
      * Send the device UUID. Server registers if the ID's new to it.
      */
@@ -150,7 +327,7 @@ public class Server {
                 makeServiceCall(urls[0], GET, params);
                 return null;
             }
-        }.execute(BASE_URL + UPDATE_DEVICE);
+        }.execute(baseUrl + UPDATE_DEVICE);
     }
 
     /**
@@ -173,7 +350,7 @@ public class Server {
         protected Void doInBackground(Void... params) {
             try {
                 minimumVersion = -1;
-                String serviceCall = makeServiceCall(BASE_URL + APP_MINIMUM_VERSION, GET, null);
+                String serviceCall = makeServiceCall(baseUrl + APP_MINIMUM_VERSION, GET, null);
                 if (serviceCall == null) {
                     return null;
                 }
@@ -208,15 +385,15 @@ public class Server {
     }
 
     public void postponePopup(String pid) {
-        new requestPopupTask(pid).execute(POPUP_URL + POSTPONE_POPUP);
+        new requestPopupTask(pid).execute(popupUrl + POSTPONE_POPUP);
     }
 
     public void rejectPopup(String pid) {
-        new requestPopupTask(pid).execute(POPUP_URL + REJECT_POPUP);
+        new requestPopupTask(pid).execute(popupUrl + REJECT_POPUP);
     }
 
     public void acceptPopup(String pid) {
-        new requestPopupTask(pid).execute(POPUP_URL + ACCEPT_POPUP);
+        new requestPopupTask(pid).execute(popupUrl + ACCEPT_POPUP);
     }
 
     private class requestPopupTask extends AsyncTask<String, Void, Void> {
@@ -271,7 +448,7 @@ public class Server {
             try {
                 List<NameValuePair> params = new ArrayList<>();
                 params.add(new BasicNameValuePair("device_id", Preferences.getDeviceUuid(context)));
-                serviceCall = Server.makeServiceCall(Server.POPUP_URL + Server.POPUP_LIST, Server.POST, params);
+                serviceCall = Server.makeServiceCall(popupUrl + POPUP_LIST, Server.POST, params);
                 results = new JSONObject(serviceCall);
                 Log.d("rawResult", results.toString());
                 String result = results.getString("result");
@@ -324,43 +501,236 @@ public class Server {
     }
 
     /**
-     * Update all {@link com.lchpatners.shadal.Restaurant Restaurants}
-     * of the currently selected campus.
+     * Import all {@link com.lchpatners.shadal.Restaurant Restaurants} of a newly selected campus,
+     * unless its import is running already. Runs beside the other tasks rather than after them.
+     * An import of another campus, which is no longer selected, stops before its next chunk,
+     * and this one starts then. The stopped campus, if it had no database before, is
+     * {@link com.lchpatners.shadal.CampusStorage#evictIncomplete(Context, String) evicted},
+     * so that it is imported again, rather than taken as imported, when next selected.
+     * If a {@link com.lchpatners.shadal.CampusSnapshot CampusSnapshot} of the campus is bundled,
+     * it is installed, and only the changes since are fetched. Before that, the bookmarks
+     * of the old version's database are {@link com.lchpatners.shadal.LegacyMigration migrated}.
+     * The progress is told to the {@link #setImportListener(ImportListener) ImportListener}.
      *
-     * @see com.lchpatners.shadal.Server.TotalUpdateTask TotalUpdateTask
+     * @see #fetchAllInChunks()
+     * @see #fetchChangesSinceSnapshot()
      * @see CampusSelectionActivity#tryLoadingFromServer() CampusSelectionActivity.tryLoadingFromServer()
-     * @see com.lchpatners.shadal.MainActivity#onCreate(android.os.Bundle) MainActivity.onCreate(Bundle)
      */
-    public void updateAll() {
-        new TotalUpdateTask().execute(BASE_URL + ALL_RESTAURANTS +
-                Preferences.getCampusEnglishName(context));
+    public void importAll() {
+        String campus = Preferences.getCampusEnglishName(context);
+        if (campus == null) return;
+        synchronized (Server.class) {
+            if (importingCampus != null) {
+                if (!importingCampus.equals(campus)) {
+                    requestedCampus = campus;
+                }
+                return;
+            }
+            importingCampus = campus;
+        }
+        Metrics.getInstance().startSpan(FIRST_USEFUL_LIST);
+        importTask = new ImportTask(campus);
+        importTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @return If the campus is no longer the one selected, so its import should stop.
+     */
+    private boolean isSuperseded(String campus) {
+        return !campus.equals(Preferences.getCampusEnglishName(context));
+    }
+
+    /**
+     * Update all {@link com.lchpatners.shadal.Restaurant Restaurants} of the currently
+     * selected campus on this thread, which must not be the main one. The restaurants are
+     * committed {@link #IMPORT_CHUNK_SIZE} at a time, so the lists fill while the rest is imported. The chunks are taken from an
+     * {@link com.lchpatners.shadal.ImportQueue ImportQueue}: the
+     * {@link #setViewedCategory(String) viewed category} first, then the
+     * {@link com.lchpatners.shadal.DatabaseHelper#pendingBookmarks pending bookmarks}, then the rest.
+     * <br>The time to the first chunk committed is recorded in
+     * {@link com.lchpatners.shadal.Metrics Metrics} as "sync.first_chunk_ms".
+     * @return If the response was received and imported.
+     */
+    public boolean fetchAllInChunks() {
+        return fetchAllInChunks(Preferences.getCampusEnglishName(context), DatabaseHelper.getInstance(context));
+    }
+
+    /**
+     * {@link #fetchAllInChunks()} of a campus, which stops if another campus is selected meanwhile.
+     * @param campus English name of the campus.
+     * @param helper The campus's {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper}.
+     * @return If the response was received and imported.
+     */
+    private boolean fetchAllInChunks(String campus, DatabaseHelper helper) {
+        long start = Metrics.now();
+        Metrics metrics = Metrics.getInstance();
+        try {
+            String serviceCall = makeServiceCall(baseUrl + ALL_RESTAURANTS + campus, GET, null);
+            if (serviceCall == null) {
+                return false;
+            }
+            ImportQueue queue = new ImportQueue(parseArray(serviceCall), DatabaseHelper.pendingBookmarks);
+            boolean successful = true;
+            boolean first = true;
+            int chunks = (queue.size() + IMPORT_CHUNK_SIZE - 1) / IMPORT_CHUNK_SIZE;
+            int done = 0;
+            while (!queue.isEmpty()) {
+                if (isSuperseded(campus)) return false;
+                List<JSONObject> chunk = queue.next(IMPORT_CHUNK_SIZE, viewedCategory);
+                if (!helper.updateRestaurants(chunk)) {
+                    // Keep the good ones of a chunk which failed as a whole.
+                    for (JSONObject restaurant : chunk) {
+                        successful &= helper.updateRestaurant(restaurant);
+                    }
+                }
+                if (first) {
+                    metrics.recordSince("sync.first_chunk_ms", start);
+                    first = false;
+                }
+                metrics.counter("sync.import_chunks").increment();
+                reportProgress(1 + ++done, 1 + chunks);
+            }
+            return successful;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Bring a campus installed from a {@link com.lchpatners.shadal.CampusSnapshot CampusSnapshot}
+     * up to date: every category is {@link #fetchCategory(String) fetched}, the
+     * {@link #setViewedCategory(String) viewed one} first, which downloads only the restaurants
+     * added or changed since the snapshot was built. The bookmarks of the old version's database
+     * are then applied, as the snapshot has none.
+     * @return If every category was received and imported.
+     */
+    public boolean fetchChangesSinceSnapshot() {
+        return fetchChangesSinceSnapshot(Preferences.getCampusEnglishName(context), DatabaseHelper.getInstance(context));
+    }
+
+    /**
+     * {@link #fetchChangesSinceSnapshot()} of a campus, which stops if another campus is
+     * selected meanwhile.
+     * @param campus English name of the campus.
+     * @param helper The campus's {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper}.
+     * @return If every category was received and imported.
+     */
+    private boolean fetchChangesSinceSnapshot(String campus, DatabaseHelper helper) {
+        long start = Metrics.now();
+        List<String> categories = new ArrayList<>(Arrays.asList(
+                context.getResources().getStringArray(R.array.categories)));
+        String viewed = viewedCategory;
+        if (viewed != null && categories.remove(viewed)) {
+            categories.add(0, viewed);
+        }
+        boolean successful = true;
+        for (int i = 0; i < categories.size(); i++) {
+            if (isSuperseded(campus)) return false;
+            successful &= fetchCategory(campus, helper, categories.get(i));
+            reportProgress(2 + i, 1 + categories.size());
+        }
+        Metrics.getInstance().recordSince("sync.snapshot_delta_ms", start);
+        return successful;
+    }
+
+    /**
+     * Tell the {@link ImportListener} of the progress, if this is running {@link #importAll()}.
+     */
+    private void reportProgress(int done, int total) {
+        if (importTask != null) {
+            importTask.report(done, total);
+        }
     }
 
     /**
-     * An {@link android.os.AsyncTask} to update all in the campus.
+     * An {@link android.os.AsyncTask} to import all in a newly selected campus.
      */
-    private class TotalUpdateTask extends AsyncTask<String, Void, Void> {
+    private class ImportTask extends AsyncTask<Void, Integer, Void> {
+        /**
+         * English name of the campus imported.
+         */
+        private final String campus;
+
+        ImportTask(String campus) {
+            this.campus = campus;
+        }
+
         @Override
-        protected Void doInBackground(String... urls) {
+        protected Void doInBackground(Void... params) {
+            Set<Integer> pending = DatabaseHelper.pendingBookmarks;
+            boolean hadDatabase = context.getDatabasePath(campus).exists();
             try {
-                String serviceCall = makeServiceCall(urls[0], GET, null);
-                if (serviceCall == null) {
+                DatabaseHelper helper = DatabaseHelper.getInstance(context);
+                // Another campus may have been selected since this was started.
+                if (!campus.equals(helper.getDatabaseName())) return null;
+                // Left for the next import if it fails, with the saved bookmarks as they were.
+                boolean migrated = LegacyMigration.run(context, campus);
+                // Those of the old version, and of the campus from before it was evicted.
+                Set<Integer> saved = SavedBookmarks.load(context, campus);
+                pending.addAll(saved);
+                boolean imported = helper.isFromSnapshot()
+                        ? fetchChangesSinceSnapshot(campus, helper) : fetchAllInChunks(campus, helper);
+                if (isSuperseded(campus)) {
+                    if (!hadDatabase) {
+                        // Partly imported, and no longer the selected campus's, so it is not
+                        // open anywhere else: keep its bookmarks aside, and import it anew.
+                        helper.close();
+                        CampusStorage.evictIncomplete(context, campus);
+                    }
                     return null;
                 }
-                JSONArray restaurants = new JSONArray(serviceCall);
-                DatabaseHelper helper = DatabaseHelper.getInstance(context);
-                for (int i = 0; i < restaurants.length(); i++) {
-                    helper.updateRestaurant(restaurants.getJSONObject(i));
+                // Those unchanged by the import. Kept until all came back.
+                helper.addFavorites(saved);
+                if (migrated && imported) {
+                    SavedBookmarks.delete(context, campus);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+            } finally {
+                pending.clear();
             }
             return null;
         }
+
+        @Override
+        protected void onPreExecute() {
+            if (importListener != null) {
+                importListener.onImportProgress(0, 1);
+            }
+        }
+
+        void report(int done, int total) {
+            publishProgress(done, total);
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            if (importListener != null) {
+                importListener.onImportProgress(values[0], values[1]);
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Void aVoid) {
+            String next;
+            synchronized (Server.class) {
+                next = requestedCampus;
+                requestedCampus = null;
+                importingCampus = null;
+            }
+            if (importListener != null) {
+                importListener.onImportProgress(1, 1);
+            }
+            if (next != null && next.equals(Preferences.getCampusEnglishName(context))) {
+                new Server(context.getApplicationContext()).importAll();
+            }
+        }
     }
 
     /**
      * Update a single {@link com.lchpatners.shadal.Restaurant Restaurant}.
+     * Does nothing if it was checked in the last
+     * {@link com.lchpatners.shadal.RestaurantDetailCache#REFRESH_INTERVAL_MS
+     * RestaurantDetailCache.REFRESH_INTERVAL_MS}.
      *
      * @param id          Server-side id of the {@link com.lchpatners.shadal.Restaurant Restaurant}
      * @param updatedTime The time when the {@link com.lchpatners.shadal.Restaurant Restaurant}
@@ -368,53 +738,61 @@ public class Server {
      * @see com.lchpatners.shadal.Server.RestaurantUpdateTask RestaurantUpdateTask
      */
     public void updateRestaurant(int id, String updatedTime) {
-        updateRestaurant(id, updatedTime, null);
+        if (!RestaurantDetailCache.getInstance().needsRefresh(id)) return;
+        new RestaurantUpdateTask(id, updatedTime).execute();
     }
 
     /**
-     * Update a single {@link com.lchpatners.shadal.Restaurant Restaurant}.
+     * Update a single {@link com.lchpatners.shadal.Restaurant Restaurant} on this thread,
+     * which must not be the main one.
      *
      * @param id          Server-side id of the {@link com.lchpatners.shadal.Restaurant Restaurant}
      * @param updatedTime The time when the {@link com.lchpatners.shadal.Restaurant Restaurant}
      *                    was updated for the last time on the device.
-     * @param activity    {@link com.lchpatners.shadal.MenuListActivity MenuListActivity}
-     *                    to be refreshed as soon as the update is done.
-     * @see com.lchpatners.shadal.Server.RestaurantUpdateTask RestaurantUpdateTask
-     * @see MenuListActivity#setView() MenuListActivity.setView()
+     * @return If the response was received and imported.
      */
-    public void updateRestaurant(int id, String updatedTime, MenuListActivity activity) {
-        new RestaurantUpdateTask(id, updatedTime, activity).execute(BASE_URL + CHECK_FOR_UPDATE);
+    public boolean fetchRestaurant(int id, String updatedTime) {
+        try {
+            List<NameValuePair> params = new ArrayList<>();
+            params.add(new BasicNameValuePair("restaurant_id", Integer.toString(id)));
+            params.add(new BasicNameValuePair("updated_at", updatedTime));
+            String serviceCall = makeServiceCall(baseUrl + CHECK_FOR_UPDATE, GET, params);
+            if (serviceCall == null) {
+                return false;
+            }
+            JSONObject restaurant = parseObject(serviceCall);
+            RestaurantDetailCache cache = RestaurantDetailCache.getInstance();
+            RestaurantDetail cached = cache.get(id);
+            // A complete entry is what the database has, so an unchanged restaurant
+            // needs not even its hashes read.
+            boolean unchanged = cached != null && cached.isComplete() &&
+                    restaurant.getString("updated_at").equals(cached.getRestaurant().getUpdatedTime());
+            if (!unchanged && !DatabaseHelper.getInstance(context).updateRestaurant(restaurant)) {
+                return false;
+            }
+            cache.markRefreshed(id);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     /**
      * An {@link android.os.AsyncTask} to update a single {@link com.lchpatners.shadal.Restaurant Restaurant}.
      */
-    private class RestaurantUpdateTask extends AsyncTask<String, Void, Void> {
+    private class RestaurantUpdateTask extends AsyncTask<Void, Void, Void> {
         private int id;
         private String updatedTime;
-        private MenuListActivity activity;
 
-        public RestaurantUpdateTask(int id, String updatedTime, MenuListActivity activity) {
+        public RestaurantUpdateTask(int id, String updatedTime) {
             this.id = id;
             this.updatedTime = updatedTime;
-            this.activity = activity;
         }
 
         @Override
-        protected Void doInBackground(String... urls) {
-            try {
-                List<NameValuePair> params = new ArrayList<>();
-                params.add(new BasicNameValuePair("restaurant_id", Integer.toString(id)));
-                params.add(new BasicNameValuePair("updated_at", updatedTime));
-                String serviceCall = makeServiceCall(urls[0], GET, params);
-                if (serviceCall == null) {
-                    return null;
-                }
-                DatabaseHelper helper = DatabaseHelper.getInstance(context);
-                helper.updateRestaurant(new JSONObject(serviceCall), activity);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        protected Void doInBackground(Void... params) {
+            fetchRestaurant(id, updatedTime);
             return null;
         }
     }
@@ -427,7 +805,36 @@ public class Server {
      * @see com.lchpatners.shadal.Server.CategoryUpdateTask CategoryUpdateTask
      */
     public void updateCategory(String category) {
-        new CategoryUpdateTask(category).execute(BASE_URL + CHECK_FOR_RES_IN_CATEGORY);
+        new CategoryUpdateTask(category).execute();
+    }
+
+    /**
+     * Update {@link com.lchpatners.shadal.Restaurant Restaurants} in a
+     * {@link com.lchpatners.shadal.Restaurant#category category} on this thread,
+     * which must not be the main one. The outdated ones are fetched before this returns.
+     *
+     * @param category The category to be updated.
+     * @return If the response was received and imported.
+     */
+    public boolean fetchCategory(String category) {
+        return fetchCategory(Preferences.getCampusEnglishName(context), DatabaseHelper.getInstance(context), category);
+    }
+
+    private boolean fetchCategory(String campus, DatabaseHelper helper, String category) {
+        try {
+            List<NameValuePair> params = new ArrayList<>();
+            params.add(new BasicNameValuePair("campus", campus));
+            params.add(new BasicNameValuePair("category", category));
+            String serviceCall = makeServiceCall(baseUrl + CHECK_FOR_RES_IN_CATEGORY, GET, params);
+            if (serviceCall == null) {
+                return false;
+            }
+            helper.updateCategory(parseArray(serviceCall), category);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     /**
@@ -436,7 +843,7 @@ public class Server {
      *
      * @see com.lchpatners.shadal.RestaurantListFragment#onCreateView(android.view.LayoutInflater, android.view.ViewGroup, android.os.Bundle)
      */
-    private class CategoryUpdateTask extends AsyncTask<String, Void, Void> {
+    private class CategoryUpdateTask extends AsyncTask<Void, Void, Void> {
         private String category;
 
         public CategoryUpdateTask(String category) {
@@ -444,22 +851,8 @@ public class Server {
         }
 
         @Override
-        protected Void doInBackground(String... urls) {
-            try {
-                List<NameValuePair> params = new ArrayList<>();
-                params.add(new BasicNameValuePair("campus", Preferences.getCampusEnglishName(context)));
-                params.add(new BasicNameValuePair("category", category));
-                String serviceCall = makeServiceCall(urls[0], GET, params);
-                Log.d("urls", urls[0]);
-                Log.d("params", params.toString());
-                if (serviceCall == null) {
-                    return null;
-                }
-                DatabaseHelper helper = DatabaseHelper.getInstance(context);
-                helper.updateCategory(new JSONArray(serviceCall), category);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        protected Void doInBackground(Void... params) {
+            fetchCategory(category);
             return null;
         }
     }
@@ -473,21 +866,14 @@ public class Server {
         new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... params) {
-                try {
-                    HttpClient client = new DefaultHttpClient();
-                    HttpPost post = new HttpPost("http://shadal.kr/new_call");
-                    ArrayList<BasicNameValuePair> value = new ArrayList<>();
-                    value.add(new BasicNameValuePair("phoneNumber", restaurant.getPhoneNumber()));
-                    value.add(new BasicNameValuePair("name", restaurant.getName()));
-                    value.add(new BasicNameValuePair("device", "android"));
-                    value.add(new BasicNameValuePair("campus", Preferences.getCampusEnglishName(context)));
-                    value.add(new BasicNameValuePair("server_id", Integer.toString(restaurant.getServerId())));
-                    value.add(new BasicNameValuePair("uuid", Preferences.getDeviceUuid(context)));
-                    post.setEntity(new UrlEncodedFormEntity(value, "UTF-8"));
-                    client.execute(post);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+                List<NameValuePair> value = new ArrayList<>();
+                value.add(new BasicNameValuePair("phoneNumber", restaurant.getPhoneNumber()));
+                value.add(new BasicNameValuePair("name", restaurant.getName()));
+                value.add(new BasicNameValuePair("device", "android"));
+                value.add(new BasicNameValuePair("campus", Preferences.getCampusEnglishName(context)));
+                value.add(new BasicNameValuePair("server_id", Integer.toString(restaurant.getServerId())));
+                value.add(new BasicNameValuePair("uuid", Preferences.getDeviceUuid(context)));
+                makeServiceCall(baseUrl + NEW_CALL, POST, value);
                 return null;
             }
         }.execute();
@@ -505,11 +891,11 @@ public class Server {
         protected Void doInBackground(Void... params) {
             try {
                 serviceCall = Server.makeServiceCall(
-                        Server.BASE_URL + Server.CAMPUSES, Server.GET, null);
+                        baseUrl + CAMPUSES, Server.GET, null);
                 if (serviceCall == null) {
                     return null;
                 }
-                results = new JSONArray(serviceCall);
+                results = parseArray(serviceCall);
             } catch (Exception e) {
                 e.printStackTrace();
             }
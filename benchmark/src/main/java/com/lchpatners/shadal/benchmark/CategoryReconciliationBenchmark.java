@@ -0,0 +1,50 @@
+package com.lchpatners.shadal.benchmark;
+
+import com.lchpatners.shadal.CategoryReconciliation;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a category from the server with the one on the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CategoryReconciliationBenchmark {
+
+    @Param({"50", "400"})
+    public int restaurantCount;
+
+    private JSONArray fromServer;
+    private Map<Integer, String> onDevice;
+
+    @Setup
+    public void setUp() {
+        onDevice = new HashMap<>();
+        fromServer = Payloads.category(restaurantCount, onDevice);
+    }
+
+    @Benchmark
+    public CategoryReconciliation compute() throws JSONException {
+        return CategoryReconciliation.compute(fromServer, onDevice);
+    }
+}
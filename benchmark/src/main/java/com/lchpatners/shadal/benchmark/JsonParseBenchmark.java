@@ -0,0 +1,132 @@
+package com.lchpatners.shadal.benchmark;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the /allRestaurants response of the biggest campus, reading every field
+ * {@link com.lchpatners.shadal.DatabaseHelper DatabaseHelper} stores, with the DOM parser
+ * the app uses now and with a streaming one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonParseBenchmark {
+
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        payload = Payloads.allRestaurants();
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws JSONException {
+        JSONArray restaurants = new JSONArray(payload);
+        for (int i = 0; i < restaurants.length(); i++) {
+            JSONObject restaurant = restaurants.getJSONObject(i);
+            blackhole.consume(restaurant.getInt("id"));
+            blackhole.consume(restaurant.getString("updated_at"));
+            blackhole.consume(restaurant.getString("name"));
+            blackhole.consume(restaurant.getString("phone_number"));
+            blackhole.consume(restaurant.getString("category").trim());
+            blackhole.consume(restaurant.getString("openingHours"));
+            blackhole.consume(restaurant.getString("closingHours"));
+            blackhole.consume(restaurant.getBoolean("has_flyer"));
+            blackhole.consume(restaurant.getBoolean("has_coupon"));
+            blackhole.consume(restaurant.getBoolean("is_new"));
+            blackhole.consume(restaurant.getString("coupon_string"));
+            JSONArray menus = restaurant.getJSONArray("menus");
+            for (int j = 0; j < menus.length(); j++) {
+                JSONObject menu = menus.getJSONObject(j);
+                blackhole.consume(menu.getString("name"));
+                blackhole.consume(menu.getString("section"));
+                blackhole.consume(menu.getInt("price"));
+            }
+            JSONArray urls = restaurant.getJSONArray("flyers_url");
+            for (int j = 0; j < urls.length(); j++) {
+                blackhole.consume(urls.getString(j));
+            }
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(payload));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    switch (name) {
+                        case "id":
+                            blackhole.consume(reader.nextInt());
+                            break;
+                        case "has_flyer":
+                        case "has_coupon":
+                        case "is_new":
+                            blackhole.consume(reader.nextBoolean());
+                            break;
+                        case "category":
+                            blackhole.consume(reader.nextString().trim());
+                            break;
+                        case "menus":
+                            readMenus(reader, blackhole);
+                            break;
+                        case "flyers_url":
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                blackhole.consume(reader.nextString());
+                            }
+                            reader.endArray();
+                            break;
+                        default:
+                            blackhole.consume(reader.nextString());
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readMenus(JsonReader reader, Blackhole blackhole) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("price".equals(reader.nextName())) {
+                    blackhole.consume(reader.nextInt());
+                } else {
+                    blackhole.consume(reader.nextString());
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+}
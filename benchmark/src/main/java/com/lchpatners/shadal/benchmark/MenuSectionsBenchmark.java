@@ -0,0 +1,47 @@
+package com.lchpatners.shadal.benchmark;
+
+import com.lchpatners.shadal.Menu;
+import com.lchpatners.shadal.MenuSections;
+import com.lchpatners.shadal.Row;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the rows of the menu screen from a restaurant's menus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MenuSectionsBenchmark {
+
+    @Param({"50", "200"})
+    public int menuCount;
+
+    private List<Menu> menus;
+
+    @Setup
+    public void setUp() {
+        menus = Payloads.menus(menuCount);
+    }
+
+    @Benchmark
+    public Row[] toRows() {
+        return MenuSections.toRows(menus, "원");
+    }
+}
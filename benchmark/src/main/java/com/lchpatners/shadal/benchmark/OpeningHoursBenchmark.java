@@ -0,0 +1,45 @@
+package com.lchpatners.shadal.benchmark;
+
+import com.lchpatners.shadal.OpeningHours;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalizes and formats the opening hours of a whole campus, as the import does
+ * for every restaurant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OpeningHoursBenchmark {
+
+    private String[] hours;
+
+    @Setup
+    public void setUp() {
+        hours = Payloads.hours();
+    }
+
+    @Benchmark
+    public void normalizeAndFormat(Blackhole blackhole) {
+        for (int i = 0; i < hours.length; i += 2) {
+            int[] minutes = OpeningHours.normalize(hours[i], hours[i + 1]);
+            blackhole.consume(OpeningHours.format(minutes[0], minutes[1]));
+        }
+    }
+}
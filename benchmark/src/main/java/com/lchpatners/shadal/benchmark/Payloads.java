@@ -0,0 +1,95 @@
+package com.lchpatners.shadal.benchmark;
+
+import com.lchpatners.shadal.CampusGenerator;
+import com.lchpatners.shadal.Menu;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic payloads, sized like the biggest campus. Seeded, so every run measures the same data.
+ * @see com.lchpatners.shadal.CampusGenerator CampusGenerator
+ */
+public class Payloads {
+
+    public static final int RESTAURANTS = CampusGenerator.RESTAURANTS;
+    public static final int SECTIONS_PER_RESTAURANT = CampusGenerator.SECTIONS_PER_RESTAURANT;
+    private static final String[] HOURS = {"0.0", "9.0", "10.5", "11.0", "17.0", "24.0", "25.5", "26.0"};
+
+    /**
+     * @return The response of /allRestaurants for the whole campus.
+     */
+    public static String allRestaurants() {
+        return new CampusGenerator(1).allRestaurants();
+    }
+
+    /**
+     * @param count The number of menus.
+     * @return A restaurant's menus, grouped by section as the database returns them.
+     */
+    public static List<Menu> menus(int count) {
+        Random random = new Random(42);
+        List<Menu> menus = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Menu menu = new Menu();
+            menu.setId(i + 1);
+            int section = i * SECTIONS_PER_RESTAURANT / count;
+            menu.setSection("섹션 " + section);
+            menu.setSectionId(section + 1);
+            menu.setItem(menuName(random, i));
+            menu.setPrice(random.nextInt(8) == 0 ? 0 : 3000 + random.nextInt(40) * 500);
+            menu.setRestaurantId(1);
+            menus.add(menu);
+        }
+        return menus;
+    }
+
+    /**
+     * @return Opening and closing hours as the server sends them, two per restaurant.
+     */
+    public static String[] hours() {
+        Random random = new Random(42);
+        String[] hours = new String[RESTAURANTS * 2];
+        for (int i = 0; i < hours.length; i++) {
+            hours[i] = HOURS[random.nextInt(HOURS.length)];
+        }
+        return hours;
+    }
+
+    /**
+     * The response of /checkForResInCategory for a category of <code>count</code> restaurants.
+     * Compared to the device, every 20th restaurant is outdated, new, or removed.
+     * @param count The number of restaurants in the category.
+     * @param onDevice Filled with the category on the device: server-side id to update time.
+     * @return The restaurants from the server.
+     */
+    public static JSONArray category(int count, Map<Integer, String> onDevice) {
+        JSONArray fromServer = new JSONArray();
+        try {
+            for (int i = 1; i <= count; i++) {
+                String updatedAt = "2015-03-01 12:00:" + (i % 60);
+                if (i % 20 != 1) {
+                    fromServer.put(new JSONObject().put("id", i).put("updated_at", updatedAt));
+                }
+                if (i % 20 == 2) {
+                    continue;
+                }
+                onDevice.put(i, i % 20 == 3 ? "2015-01-01 00:00:00" : updatedAt);
+            }
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return fromServer;
+    }
+
+    private static String menuName(Random random, int i) {
+        String[] names = {"후라이드", "양념치킨", "간장치킨", "짜장면", "짬뽕", "탕수육", "김치찌개", "돈까스", "물냉면"};
+        return names[random.nextInt(names.length)] + " " + i;
+    }
+}
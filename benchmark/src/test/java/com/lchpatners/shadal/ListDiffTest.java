@@ -0,0 +1,151 @@
+package com.lchpatners.shadal;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that the operations of {@link com.lchpatners.shadal.ListDiff ListDiff} turn the old
+ * list into the new one, with no more of them than needed.
+ */
+public class ListDiffTest extends TestCase {
+
+    /**
+     * Items are strings, identified by their first letter and compared as a whole,
+     * e.g. "a" and "a2" are the same item with other contents.
+     */
+    private static final ListDiff.ItemCallback<String> CALLBACK = new ListDiff.ItemCallback<String>() {
+        @Override
+        public long getStableId(String item) {
+            return item.charAt(0);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    public void testEmpty() {
+        assertTrue(diff(list(), list()).isEmpty());
+        assertEquals(1, diff(list(), list("a", "b")).size());
+        assertEquals(1, diff(list("a", "b"), list()).size());
+    }
+
+    public void testUnchanged() {
+        assertTrue(diff(list("a", "b", "c"), list("a", "b", "c")).isEmpty());
+    }
+
+    public void testInserts() {
+        List<ListDiff.Op> ops = diff(list("b", "d"), list("a", "b", "c", "d", "e", "f"));
+        assertEquals(3, ops.size());
+        assertEquals(0, count(ops, ListDiff.Op.MOVE));
+
+        // A page appended is a single insert.
+        ops = diff(list("a", "b"), list("a", "b", "c", "d", "e"));
+        assertEquals(1, ops.size());
+        assertEquals(ListDiff.Op.INSERT, ops.get(0).type);
+        assertEquals(2, ops.get(0).position);
+        assertEquals(3, ops.get(0).extra);
+    }
+
+    public void testRemoves() {
+        List<ListDiff.Op> ops = diff(list("a", "b", "c", "d", "e"), list("b", "d"));
+        assertEquals(3, ops.size());
+        assertEquals(3, count(ops, ListDiff.Op.REMOVE));
+    }
+
+    public void testSingleMove() {
+        List<ListDiff.Op> ops = diff(list("a", "b", "c", "d", "e"), list("b", "c", "d", "e", "a"));
+        assertEquals(1, ops.size());
+        assertEquals(ListDiff.Op.MOVE, ops.get(0).type);
+        assertEquals(0, ops.get(0).position);
+        assertEquals(4, ops.get(0).extra);
+
+        ops = diff(list("a", "b", "c", "d", "e"), list("e", "a", "b", "c", "d"));
+        assertEquals(1, ops.size());
+        assertEquals(ListDiff.Op.MOVE, ops.get(0).type);
+
+        ops = diff(list("a", "b", "c", "d", "e"), list("a", "d", "b", "c", "e"));
+        assertEquals(1, ops.size());
+        assertEquals(ListDiff.Op.MOVE, ops.get(0).type);
+    }
+
+    public void testReversed() {
+        List<ListDiff.Op> ops = diff(list("a", "b", "c", "d"), list("d", "c", "b", "a"));
+        assertEquals(3, count(ops, ListDiff.Op.MOVE));
+    }
+
+    public void testDuplicates() {
+        diff(list("a", "a", "b"), list("b", "a", "a"));
+        diff(list("a", "b", "a"), list("a", "a"));
+        diff(list("a"), list("a", "b", "a", "a"));
+        List<ListDiff.Op> ops = diff(list("a", "b", "a", "c"), list("a", "b", "a", "c", "a"));
+        assertEquals(1, ops.size());
+        assertEquals(ListDiff.Op.INSERT, ops.get(0).type);
+    }
+
+    public void testChanges() {
+        List<ListDiff.Op> ops = diff(list("a", "b", "c"), list("c2", "a", "b2"));
+        assertEquals(1, count(ops, ListDiff.Op.MOVE));
+        assertEquals(2, count(ops, ListDiff.Op.CHANGE));
+    }
+
+    private static List<String> list(String... items) {
+        return Arrays.asList(items);
+    }
+
+    /**
+     * Compute the operations, and check that applying them in order gives the new list.
+     * What an insert shows is bound only later, so inserted items are <code>null</code> here,
+     * and must end up where the new list has items which the old one hasn't.
+     * @return The operations.
+     */
+    private static List<ListDiff.Op> diff(List<String> oldList, List<String> newList) {
+        List<ListDiff.Op> ops = ListDiff.compute(oldList, newList, CALLBACK);
+        List<String> list = new ArrayList<>(oldList);
+        int inserted = 0;
+        for (ListDiff.Op op : ops) {
+            switch (op.type) {
+                case ListDiff.Op.INSERT:
+                    list.addAll(op.position, Collections.<String>nCopies(op.extra, null));
+                    inserted += op.extra;
+                    break;
+                case ListDiff.Op.REMOVE:
+                    list.subList(op.position, op.position + op.extra).clear();
+                    break;
+                case ListDiff.Op.MOVE:
+                    list.add(op.extra, list.remove(op.position));
+                    break;
+                case ListDiff.Op.CHANGE:
+                    assertEquals(newList.get(op.position).charAt(0), list.get(op.position).charAt(0));
+                    list.set(op.position, newList.get(op.position));
+                    break;
+            }
+        }
+        assertEquals(newList.size(), list.size());
+        int nulls = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == null) {
+                nulls++;
+            } else {
+                assertEquals(newList.get(i), list.get(i));
+            }
+        }
+        assertEquals(inserted, nulls);
+        return ops;
+    }
+
+    private static int count(List<ListDiff.Op> ops, int type) {
+        int count = 0;
+        for (ListDiff.Op op : ops) {
+            if (op.type == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
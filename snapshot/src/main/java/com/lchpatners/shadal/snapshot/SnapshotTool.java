@@ -0,0 +1,235 @@
+package com.lchpatners.shadal.snapshot;
+
+import com.lchpatners.shadal.CampusSchema;
+import com.lchpatners.shadal.ContentHash;
+import com.lchpatners.shadal.OpeningHours;
+import com.lchpatners.shadal.SearchTokens;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds a campus snapshot from a response of /allRestaurants: the campus database as the app
+ * would have imported it, gzipped, along with the SHA-256 of the uncompressed file, which
+ * {@link com.lchpatners.shadal.CampusSnapshot CampusSnapshot} checks before swapping it in.
+ * <br>Rows are written the way <code>DatabaseHelper.updateRestaurant</code> writes them, so
+ * keep the two in step; the schema itself is shared through
+ * {@link com.lchpatners.shadal.CampusSchema CampusSchema}.
+ * <br>Usage: <code>SnapshotTool &lt;allRestaurants.json&gt; &lt;campus.db.gz&gt;</code>, which
+ * also writes <code>campus.db.gz.sha256</code>.
+ */
+public class SnapshotTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotTool <allRestaurants.json> <campus.db.gz>");
+            System.exit(1);
+        }
+        File json = new File(args[0]);
+        File snapshot = new File(args[1]);
+        File db = File.createTempFile("campus", ".db");
+        try {
+            build(new JSONArray(readFully(json)), db);
+            String sha256 = compress(db, snapshot);
+            Writer checksum = new OutputStreamWriter(new FileOutputStream(snapshot.getPath() + ".sha256"), "UTF-8");
+            try {
+                checksum.write(sha256);
+            } finally {
+                checksum.close();
+            }
+            System.out.println(String.format("%s: %d bytes, %d compressed, sha256 %s",
+                    snapshot, db.length(), snapshot.length(), sha256));
+        } finally {
+            db.delete();
+        }
+    }
+
+    /**
+     * Write the restaurants to a new database.
+     * @param restaurants The response of /allRestaurants.
+     * @param file Where to write the database: a new or empty file.
+     */
+    public static void build(JSONArray restaurants, File file) throws SQLException, JSONException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        try {
+            Statement statement = connection.createStatement();
+            // A rollback journal, as WAL is not readable by the SQLite of old devices.
+            statement.execute("PRAGMA journal_mode = DELETE;");
+            // Before any table, so the space freed by later updates can be given back.
+            statement.execute("PRAGMA auto_vacuum = INCREMENTAL;");
+            for (String create : CampusSchema.createStatements()) {
+                statement.execute(create);
+            }
+            connection.setAutoCommit(false);
+            Map<String, Integer> categories = new HashMap<>();
+            Map<String, Integer> sections = new HashMap<>();
+            PreparedStatement restaurant = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (server_id, updated_at, name, phoneNumber, category_id, openingHours, " +
+                            "closingHours, open_minute, close_minute, hours_string, has_flyer, has_coupon, " +
+                            "is_new, coupon_string, row_hash, menus_hash, flyers_hash, is_favorite) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0);",
+                    CampusSchema.RESTAURANTS));
+            PreparedStatement menu = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (menu, section_id, price, restaurant_id) VALUES (?, ?, ?, ?);",
+                    CampusSchema.MENUS), Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement flyer = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (url, restaurant_id) VALUES (?, ?);", CampusSchema.FLYERS));
+            PreparedStatement restaurantIndex = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (docid, tokens, chosung) VALUES (?, ?, ?);", CampusSchema.RESTAURANTS_FTS));
+            PreparedStatement menuIndex = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (docid, tokens, chosung) VALUES (?, ?, ?);", CampusSchema.MENUS_FTS));
+
+            for (int i = 0; i < restaurants.length(); i++) {
+                JSONObject json = restaurants.getJSONObject(i);
+                int serverId = json.getInt("id");
+                String name = json.getString("name");
+                JSONArray menus = json.getJSONArray("menus");
+                JSONArray urls = json.getJSONArray("flyers_url");
+                String opening = json.getString("openingHours");
+                String closing = json.getString("closingHours");
+                int[] minutes = OpeningHours.normalize(opening, closing);
+
+                restaurant.setInt(1, serverId);
+                restaurant.setString(2, json.getString("updated_at"));
+                restaurant.setString(3, name);
+                restaurant.setString(4, json.getString("phone_number"));
+                restaurant.setInt(5, labelId(connection, CampusSchema.CATEGORIES, categories,
+                        json.getString("category").trim()));
+                restaurant.setString(6, opening);
+                restaurant.setString(7, closing);
+                restaurant.setInt(8, minutes[0]);
+                restaurant.setInt(9, minutes[1]);
+                restaurant.setString(10, OpeningHours.format(minutes[0], minutes[1]));
+                restaurant.setInt(11, json.getBoolean("has_flyer") ? 1 : 0);
+                restaurant.setInt(12, json.getBoolean("has_coupon") ? 1 : 0);
+                restaurant.setInt(13, json.getBoolean("is_new") ? 1 : 0);
+                restaurant.setString(14, json.getString("coupon_string"));
+                restaurant.setLong(15, ContentHash.ofRestaurant(json));
+                restaurant.setLong(16, ContentHash.ofMenus(menus));
+                restaurant.setLong(17, ContentHash.ofFlyers(urls));
+                restaurant.executeUpdate();
+                index(restaurantIndex, serverId, name);
+
+                for (int j = 0; j < menus.length(); j++) {
+                    JSONObject item = menus.getJSONObject(j);
+                    menu.setString(1, item.getString("name"));
+                    menu.setInt(2, labelId(connection, CampusSchema.SECTIONS, sections, item.getString("section")));
+                    menu.setInt(3, item.getInt("price"));
+                    menu.setInt(4, serverId);
+                    menu.executeUpdate();
+                    ResultSet keys = menu.getGeneratedKeys();
+                    try {
+                        keys.next();
+                        index(menuIndex, keys.getLong(1), item.getString("name"));
+                    } finally {
+                        keys.close();
+                    }
+                }
+                for (int j = 0; j < urls.length(); j++) {
+                    flyer.setString(1, urls.getString(j));
+                    flyer.setInt(2, serverId);
+                    flyer.executeUpdate();
+                }
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            statement.execute(String.format("PRAGMA user_version = %d;", CampusSchema.VERSION));
+            // Drop the free pages, so the file is as small as the data.
+            statement.execute("VACUUM;");
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static int labelId(Connection connection, String table, Map<String, Integer> ids, String name)
+            throws SQLException {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size() + 1;
+            PreparedStatement insert = connection.prepareStatement(
+                    String.format("INSERT INTO %s (id, name) VALUES (?, ?);", table));
+            try {
+                insert.setInt(1, id);
+                insert.setString(2, name);
+                insert.executeUpdate();
+            } finally {
+                insert.close();
+            }
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    private static void index(PreparedStatement insert, long docid, String text) throws SQLException {
+        insert.setLong(1, docid);
+        insert.setString(2, SearchTokens.suffixes(text));
+        insert.setString(3, SearchTokens.chosungSuffixes(text));
+        insert.executeUpdate();
+    }
+
+    /**
+     * Gzip the database.
+     * @return SHA-256 of the uncompressed database, in lowercase hex.
+     */
+    private static String compress(File db, File snapshot) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        InputStream in = new FileInputStream(db);
+        try {
+            OutputStream out = new DigestOutputStream(new GZIPOutputStream(new FileOutputStream(snapshot)), digest);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    private static String readFully(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int)file.length());
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
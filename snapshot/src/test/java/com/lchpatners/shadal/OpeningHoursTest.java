@@ -0,0 +1,108 @@
+package com.lchpatners.shadal;
+
+import junit.framework.TestCase;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks {@link com.lchpatners.shadal.OpeningHours OpeningHours} around midnight, and that
+ * {@link com.lchpatners.shadal.OpeningHours#openAtClause(int) openAtClause(int)} agrees with
+ * {@link com.lchpatners.shadal.OpeningHours#isOpenAt(int, int, int) isOpenAt()} in SQLite.
+ */
+public class OpeningHoursTest extends TestCase {
+
+    /**
+     * Opening and closing hours as the server sends them.
+     */
+    private static final String[][] HOURS = {
+            {"11", "21.5"},
+            {"22", "2"},
+            {"17", "24"},
+            {"0", "24"},
+            {"24", "3"},
+            {"18.5", "27"},
+            {"0.0", "0.0"},
+    };
+
+    public void testNormalize() {
+        assertNormalized(660, 1290, "11", "21.5");
+        assertNormalized(1320, 1560, "22", "2");
+        assertNormalized(1020, 1440, "17", "24");
+        assertNormalized(0, 1440, "0", "24");
+        assertNormalized(0, 180, "24", "3");
+        assertNormalized(1110, 1620, "18.5", "27");
+        assertNormalized(OpeningHours.UNKNOWN, OpeningHours.UNKNOWN, "0.0", "0.0");
+        assertNormalized(OpeningHours.UNKNOWN, OpeningHours.UNKNOWN, "", "2");
+        assertNormalized(OpeningHours.UNKNOWN, OpeningHours.UNKNOWN, "22", "49");
+    }
+
+    public void testOvernight() {
+        int[] hours = OpeningHours.normalize("22", "2");
+        assertFalse(OpeningHours.isOpenAt(hours[0], hours[1], 21 * 60 + 59));
+        assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], 22 * 60));
+        assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], 23 * 60 + 59));
+        assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], 0));
+        assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], 60 + 59));
+        assertFalse(OpeningHours.isOpenAt(hours[0], hours[1], 2 * 60));
+        assertEquals("22:00 ~ 02:00", OpeningHours.format(hours[0], hours[1]));
+    }
+
+    public void testClosingAtMidnight() {
+        int[] hours = OpeningHours.normalize("17", "24");
+        assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], 23 * 60 + 59));
+        assertFalse(OpeningHours.isOpenAt(hours[0], hours[1], 0));
+        assertEquals("17:00 ~ 24:00", OpeningHours.format(hours[0], hours[1]));
+
+        hours = OpeningHours.normalize("0", "24");
+        for (int minute = 0; minute < OpeningHours.MINUTES_PER_DAY; minute++) {
+            assertTrue(OpeningHours.isOpenAt(hours[0], hours[1], minute));
+        }
+    }
+
+    public void testUnknown() {
+        assertFalse(OpeningHours.isOpenAt(OpeningHours.UNKNOWN, OpeningHours.UNKNOWN, 0));
+        assertEquals("-", OpeningHours.format(OpeningHours.UNKNOWN, OpeningHours.UNKNOWN));
+    }
+
+    public void testOpenAtClause() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("CREATE TABLE hours (id INTEGER, open_minute INTEGER, close_minute INTEGER);");
+            for (int i = 0; i < HOURS.length; i++) {
+                int[] hours = OpeningHours.normalize(HOURS[i][0], HOURS[i][1]);
+                statement.execute(String.format("INSERT INTO hours VALUES (%d, %d, %d);", i, hours[0], hours[1]));
+            }
+            for (int minute = 0; minute < OpeningHours.MINUTES_PER_DAY; minute++) {
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < HOURS.length; i++) {
+                    int[] hours = OpeningHours.normalize(HOURS[i][0], HOURS[i][1]);
+                    if (OpeningHours.isOpenAt(hours[0], hours[1], minute)) {
+                        expected.add(i);
+                    }
+                }
+                Set<Integer> open = new HashSet<>();
+                ResultSet result = statement.executeQuery(
+                        "SELECT id FROM hours WHERE " + OpeningHours.openAtClause(minute) + ";");
+                while (result.next()) {
+                    open.add(result.getInt(1));
+                }
+                result.close();
+                assertEquals("at minute " + minute, expected, open);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void assertNormalized(int open, int close, String opening, String closing) {
+        int[] hours = OpeningHours.normalize(opening, closing);
+        assertEquals(open, hours[0]);
+        assertEquals(close, hours[1]);
+    }
+}
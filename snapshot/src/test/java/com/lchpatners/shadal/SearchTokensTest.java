@@ -0,0 +1,106 @@
+package com.lchpatners.shadal;
+
+import junit.framework.TestCase;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks the tokens of {@link com.lchpatners.shadal.SearchTokens SearchTokens}, and that
+ * the full-text index built from them finds names from the middle of a word and from
+ * their initial consonants.
+ */
+public class SearchTokensTest extends TestCase {
+
+    private static final String[] NAMES = {"해물짬뽕", "짜장면", "BBQ 치킨", "교촌치킨"};
+
+    public void testSuffixes() {
+        assertEquals("해물짬뽕 물짬뽕 짬뽕 뽕", SearchTokens.suffixes("해물짬뽕"));
+        assertEquals("bbq bq q 치킨 킨", SearchTokens.suffixes("BBQ-치킨"));
+        assertEquals("", SearchTokens.suffixes(" !? "));
+        // Only the first letters of a long word.
+        assertEquals(16, SearchTokens.suffixes("가나다라마바사아자차카타파하가나다라").split(" ").length);
+    }
+
+    public void testChosung() {
+        assertEquals("ㅎㅁㅉㅃ", SearchTokens.chosung("해물짬뽕"));
+        assertEquals("BBQ ㅊㅋ", SearchTokens.chosung("BBQ 치킨"));
+        assertEquals("ㅎㅁ ㅁ ㅉㅃ ㅃ", SearchTokens.chosungSuffixes("해물 짬뽕"));
+        assertEquals("ㄱ ㄲ ㅎ", SearchTokens.chosung("가 까 힣"));
+    }
+
+    public void testIsChosungQuery() {
+        assertTrue(SearchTokens.isChosungQuery("ㅉㅃ"));
+        assertTrue(SearchTokens.isChosungQuery(" ㅊㅋ ㅉㅃ "));
+        assertFalse(SearchTokens.isChosungQuery("ㅉ뽕"));
+        assertFalse(SearchTokens.isChosungQuery("bbq"));
+        assertFalse(SearchTokens.isChosungQuery(" "));
+    }
+
+    public void testMatchExpression() {
+        assertEquals("tokens:해물* tokens:짬뽕*", SearchTokens.matchExpression("tokens", "해물, 짬뽕!"));
+        assertEquals("tokens:bbq*", SearchTokens.matchExpression("tokens", "BBQ\"*"));
+        assertNull(SearchTokens.matchExpression("tokens", " -* "));
+    }
+
+    public void testFullTextSearch() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute(String.format("CREATE VIRTUAL TABLE %s %s;",
+                    CampusSchema.RESTAURANTS_FTS, CampusSchema.FTS_COLUMNS));
+            PreparedStatement insert = connection.prepareStatement(String.format(
+                    "INSERT INTO %s (docid, tokens, chosung) VALUES (?, ?, ?);", CampusSchema.RESTAURANTS_FTS));
+            for (int i = 0; i < NAMES.length; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, SearchTokens.suffixes(NAMES[i]));
+                insert.setString(3, SearchTokens.chosungSuffixes(NAMES[i]));
+                insert.execute();
+            }
+            insert.close();
+
+            assertEquals(ids(0), search(connection, "짬뽕"));
+            assertEquals(ids(0), search(connection, "물짬"));
+            assertEquals(ids(2, 3), search(connection, "치킨"));
+            assertEquals(ids(2, 3), search(connection, "킨"));
+            assertEquals(ids(2), search(connection, "bb 치"));
+            assertEquals(ids(0), search(connection, "ㅉㅃ"));
+            assertEquals(ids(0, 1), search(connection, "ㅉ"));
+            assertEquals(ids(3), search(connection, "ㄱㅊ"));
+            assertEquals(ids(), search(connection, "탕수육"));
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return The docids the query finds, the way {@link DatabaseHelper#search(String, int)
+     * DatabaseHelper.search()} matches it.
+     */
+    private static Set<Integer> search(Connection connection, String query) throws Exception {
+        String column = SearchTokens.isChosungQuery(query) ? "chosung" : "tokens";
+        PreparedStatement select = connection.prepareStatement(String.format(
+                "SELECT docid FROM %s WHERE %s MATCH ?;", CampusSchema.RESTAURANTS_FTS, CampusSchema.RESTAURANTS_FTS));
+        select.setString(1, SearchTokens.matchExpression(column, query));
+        Set<Integer> found = new HashSet<>();
+        ResultSet result = select.executeQuery();
+        while (result.next()) {
+            found.add(result.getInt(1));
+        }
+        select.close();
+        return found;
+    }
+
+    private static Set<Integer> ids(Integer... ids) {
+        Set<Integer> set = new HashSet<>();
+        for (Integer id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}